@@ -0,0 +1,9 @@
+#!/bin/sh
+# Rôle de réplication et accès réseau pour le replica (service db-replica de docker-compose)
+set -e
+
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+	CREATE ROLE replicateur WITH REPLICATION LOGIN PASSWORD '${REPLICATION_PASSWORD:-replicateur_pass}';
+SQL
+
+echo "host replication replicateur all scram-sha-256" >> "$PGDATA/pg_hba.conf"
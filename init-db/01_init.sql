@@ -1,6 +1,8 @@
 -- 01_init.sql
 -- Schéma + tables pour le projet (PostgreSQL)
 -- Tout est créé dans le schéma: cinema
+-- Identique à la migration Flyway V1 (projetREST-back/src/main/resources/db/migration) ;
+-- les index et les évolutions suivantes ne sont que dans les migrations, appliquées au démarrage du backend
 
 CREATE SCHEMA IF NOT EXISTS cinema;
 SET search_path TO cinema;
@@ -80,3 +82,12 @@ CREATE TABLE IF NOT EXISTS creneau_hebdo (
   heure_debut TIME NOT NULL,
   id_programmation INTEGER NOT NULL REFERENCES cinema.programmation(id)
 );
+
+-- ----------------------------
+-- Séquences en INCREMENT BY 50 : Hibernate réserve les ids par blocs (pooled)
+-- et peut ainsi grouper les insert
+-- ----------------------------
+ALTER SEQUENCE film_id_seq INCREMENT BY 50;
+ALTER SEQUENCE cinema_id_seq INCREMENT BY 50;
+ALTER SEQUENCE programmation_id_seq INCREMENT BY 50;
+ALTER SEQUENCE creneau_hebdo_id_seq INCREMENT BY 50;
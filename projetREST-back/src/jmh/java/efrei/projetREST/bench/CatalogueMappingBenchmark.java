@@ -0,0 +1,77 @@
+package efrei.projetREST.bench;
+
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CreneauHebdoRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.VilleIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion entités -> DTO de CatalogueService, repositories remplacés par des listes en mémoire :
+ * on ne mesure que la construction des réponses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogueMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int programmations;
+
+    private static final Set<ColonneFilm> TOUTES = CatalogueService.colonnes(null, ColonneFilm.class);
+    private static final Set<ColonneFilm> ID_TITRE = CatalogueService.colonnes("titre", ColonneFilm.class);
+
+    CatalogueService catalogueService;
+    CatalogueSynthetique catalogue;
+
+    @Setup
+    public void setup() {
+        catalogue = new CatalogueSynthetique(programmations);
+        CatalogueSynthetique c = catalogue;
+
+        FilmRepository films = CatalogueSynthetique.repository(FilmRepository.class, Map.of(
+                "findById", CatalogueSynthetique.optional(c.film),
+                "findColonnesApres", CatalogueSynthetique.lignesFilms(c.films)));
+        CinemaRepository cinemas = CatalogueSynthetique.repository(CinemaRepository.class, Map.of(
+                "findById", CatalogueSynthetique.optional(c.cinema)));
+        ProgrammationRepository progs = CatalogueSynthetique.repository(ProgrammationRepository.class, Map.of(
+                "findWithCinemaByFilmId", args -> c.programmationsDuFilm,
+                "findWithFilmByCinemaId", args -> c.programmationsDuCinema));
+        CreneauHebdoRepository creneaux = CatalogueSynthetique.repository(CreneauHebdoRepository.class, Map.of(
+                "findByProgrammationIds", args -> ((java.util.Collection<?>) args[0]).contains(c.programmationsDuFilm.get(0).getId())
+                        ? c.creneauxDuFilm : c.creneauxDuCinema));
+
+        // index des villes vide : la branche ville n'est pas mesurée ici
+        catalogueService = new CatalogueService(progs, films, creneaux, cinemas, new VilleIndex(cinemas, progs));
+    }
+
+    @Benchmark
+    public CatalogueService.FilmDetailsResponse filmDetails() {
+        return catalogueService.getFilmDetails(1L);
+    }
+
+    @Benchmark
+    public CatalogueService.CinemaDetailsResponse cinemaDetails() {
+        return catalogueService.getCinemaDetails(1L);
+    }
+
+    @Benchmark
+    public CatalogueService.CursorPage<CatalogueService.FilmLightResponse> pageDeFilms() {
+        return catalogueService.getFilms(null, null, null, CatalogueService.LIMITE_MAX, TOUTES);
+    }
+
+    @Benchmark
+    public CatalogueService.CursorPage<CatalogueService.FilmLightResponse> pageDeFilmsIdTitre() {
+        return catalogueService.getFilms(null, null, null, CatalogueService.LIMITE_MAX, ID_TITRE);
+    }
+}
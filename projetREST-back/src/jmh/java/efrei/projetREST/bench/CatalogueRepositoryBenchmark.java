@@ -0,0 +1,118 @@
+package efrei.projetREST.bench;
+
+import efrei.projetREST.ProjetRestApplication;
+import efrei.projetREST.entities.Utilisateur;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import efrei.projetREST.repository.UtilisateurRepository;
+import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.PublicationBulkService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins de lecture complets (requêtes JPA + conversion) sur une base H2 en mode PostgreSQL,
+ * remplie par PublicationBulkService. Les ordres de grandeur comptent, pas les valeurs absolues :
+ * H2 en mémoire n'a ni réseau ni planificateur comparables à PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogueRepositoryBenchmark {
+
+    private static final Set<ColonneFilm> TOUTES = CatalogueService.colonnes(null, ColonneFilm.class);
+    private static final Set<ColonneFilm> ID_TITRE = CatalogueService.colonnes("titre", ColonneFilm.class);
+
+    @Param({"1000"})
+    int nbFilms;
+
+    @Param({"100"})
+    int nbCinemas;
+
+    @Param({"20"})
+    int programmationsParCinema;
+
+    ConfigurableApplicationContext context;
+    CatalogueService catalogueService;
+    List<Long> filmIds;
+    List<Long> cinemaIds;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(ProjetRestApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments de ligne de commande : prioritaires sur application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                                + "DEFAULT_NULL_ORDERING=HIGH;INIT=CREATE SCHEMA IF NOT EXISTS cinema",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.flyway.enabled=false",
+                        // pas de table outbox sans Flyway : événements distribués directement après commit
+                        "--catalogue.outbox.actif=false",
+                        "--auth.token.secret=" + ChargeCatalogue.cleJetons(),
+                        "--logging.level.root=WARN");
+        catalogueService = context.getBean(CatalogueService.class);
+        remplir(context.getBean(PublicationBulkService.class), context.getBean(UtilisateurRepository.class));
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void remplir(PublicationBulkService bulk, UtilisateurRepository utilisateurs) {
+        SplittableRandom r = new SplittableRandom(42);
+        Long proprietaireId = utilisateurs.save(new Utilisateur("bench@cinema.fr", "x", "proprio_cinema")).getId();
+
+        filmIds = bulk.publierFilms(CatalogueSynthetique.demandesFilms(nbFilms, r), proprietaireId);
+        cinemaIds = bulk.creerCinemas(CatalogueSynthetique.demandesCinemas(nbCinemas), proprietaireId);
+        bulk.publierProgrammations(CatalogueSynthetique.demandesProgrammations(
+                filmIds, cinemaIds, programmationsParCinema, LocalDate.now(), r));
+    }
+
+    @Benchmark
+    public Object pageDeFilms() {
+        return catalogueService.getFilms(null, null, null, CatalogueService.LIMITE_DEFAUT, TOUTES);
+    }
+
+    // fields=titre : deux colonnes lues et matérialisées au lieu de sept
+    @Benchmark
+    public Object pageDeFilmsIdTitre() {
+        return catalogueService.getFilms(null, null, null, CatalogueService.LIMITE_DEFAUT, ID_TITRE);
+    }
+
+    @Benchmark
+    public Object filmsParVille() {
+        String ville = CatalogueSynthetique.VILLES[random.nextInt(CatalogueSynthetique.VILLES.length)];
+        return catalogueService.getFilms(ville, null, null, CatalogueService.LIMITE_DEFAUT, TOUTES);
+    }
+
+    @Benchmark
+    public Object filmsParTitre() {
+        return catalogueService.getFilms(null, "nuit", null, CatalogueService.LIMITE_DEFAUT, TOUTES);
+    }
+
+    @Benchmark
+    public Object filmDetails() {
+        return catalogueService.getFilmDetails(filmIds.get(random.nextInt(filmIds.size())));
+    }
+
+    @Benchmark
+    public Object cinemaDetails() {
+        return catalogueService.getCinemaDetails(cinemaIds.get(random.nextInt(cinemaIds.size())));
+    }
+}
@@ -0,0 +1,227 @@
+package efrei.projetREST.bench;
+
+import efrei.projetREST.entities.*;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import efrei.projetREST.service.PublicationService.CinemaCreateRequest;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmCreateRequest;
+import efrei.projetREST.service.PublicationService.ProgrammationCreateRequest;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Catalogue synthétique déterministe (graine fixe) partagé par les benchmarks :
+ * un film et un cinéma "chargés" avec n programmations de 3 créneaux chacune.
+ * Les méthodes statiques demandes* préparent un catalogue à publier par PublicationBulkService ou /publication/bulk.
+ */
+final class CatalogueSynthetique {
+
+    static final String[] VILLES = {"Paris", "Lyon", "Marseille", "Bordeaux", "Nice", "Lille", "Nantes"};
+    private static final JourSemaine[] JOURS = JourSemaine.values();
+    private static final LocalTime[] HEURES = {
+            LocalTime.of(10, 0), LocalTime.of(13, 30), LocalTime.of(17, 0), LocalTime.of(20, 30)};
+
+    final Utilisateur proprietaire;
+    final Film film;
+    final Cinema cinema;
+    final List<Programmation> programmationsDuFilm = new ArrayList<>();
+    final List<Programmation> programmationsDuCinema = new ArrayList<>();
+    final List<CreneauHebdo> creneauxDuFilm = new ArrayList<>();
+    final List<CreneauHebdo> creneauxDuCinema = new ArrayList<>();
+    final List<Film> films = new ArrayList<>();
+
+    CatalogueSynthetique(int programmations) {
+        SplittableRandom random = new SplittableRandom(42);
+
+        proprietaire = new Utilisateur("proprio@cinema.fr", "x", "proprio_cinema");
+        proprietaire.setId(1L);
+
+        film = film(1L, random);
+        cinema = cinema(1L, random);
+        films.add(film);
+
+        long creneauId = 1;
+        for (int i = 0; i < programmations; i++) {
+            Film autreFilm = film(i + 2L, random);
+            Cinema autreCinema = cinema(i + 2L, random);
+            films.add(autreFilm);
+
+            Programmation pf = programmation(2L * i + 1, film, autreCinema, random);
+            Programmation pc = programmation(2L * i + 2, autreFilm, cinema, random);
+            programmationsDuFilm.add(pf);
+            programmationsDuCinema.add(pc);
+
+            int premierJour = random.nextInt(JOURS.length);
+            for (int j = 0; j < 3; j++) {
+                JourSemaine jour = JOURS[(premierJour + 2 * j) % JOURS.length];
+                LocalTime heure = LocalTime.of(14 + random.nextInt(8), random.nextBoolean() ? 0 : 30);
+                creneauxDuFilm.add(creneau(creneauId++, jour, heure, pf));
+                creneauxDuCinema.add(creneau(creneauId++, jour, heure, pc));
+            }
+        }
+    }
+
+    private Film film(long id, SplittableRandom random) {
+        Film f = new Film("Film synthétique numéro " + id, 80 + random.nextInt(100),
+                random.nextBoolean() ? "Français" : "Anglais", "Réalisateur " + random.nextInt(500),
+                random.nextInt(4) * 4, random.nextBoolean() ? "Français" : "Aucun", proprietaire);
+        f.setId(id);
+        return f;
+    }
+
+    private Cinema cinema(long id, SplittableRandom random) {
+        String ville = VILLES[random.nextInt(VILLES.length)];
+        Cinema c = new Cinema("Cinéma " + id, id + " avenue de la République, " + ville, ville, proprietaire);
+        c.setId(id);
+        return c;
+    }
+
+    private static Programmation programmation(long id, Film film, Cinema cinema, SplittableRandom random) {
+        LocalDate debut = LocalDate.of(2026, 1, 1).plusDays(random.nextInt(300));
+        Programmation p = new Programmation(debut, debut.plusWeeks(2 + random.nextInt(10)), film, cinema);
+        p.setId(id);
+        return p;
+    }
+
+    private static CreneauHebdo creneau(long id, JourSemaine jour, LocalTime heure, Programmation p) {
+        CreneauHebdo ch = new CreneauHebdo(jour, heure, p);
+        ch.setId(id);
+        return ch;
+    }
+
+    // Un film sur dix a "nuit" dans son titre : de quoi chercher par sous-chaîne
+    static List<FilmCreateRequest> demandesFilms(int nombre, SplittableRandom random) {
+        List<FilmCreateRequest> films = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            films.add(new FilmCreateRequest("Film " + i + (i % 10 == 0 ? " nuit" : ""), 80 + random.nextInt(100),
+                    "Français", "Réalisateur " + random.nextInt(200), random.nextInt(4) * 4, "Aucun"));
+        }
+        return films;
+    }
+
+    static List<CinemaCreateRequest> demandesCinemas(int nombre) {
+        List<CinemaCreateRequest> cinemas = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            String ville = VILLES[i % VILLES.length];
+            cinemas.add(new CinemaCreateRequest("Cinéma " + i, i + " rue du Port, " + ville, ville));
+        }
+        return cinemas;
+    }
+
+    static List<ProgrammationCreateRequest> demandesProgrammations(List<Long> filmIds, List<Long> cinemaIds,
+                                                                   int parCinema, LocalDate debut,
+                                                                   SplittableRandom random) {
+        List<ProgrammationCreateRequest> programmations = new ArrayList<>(cinemaIds.size() * parCinema);
+        for (Long cinemaId : cinemaIds) {
+            for (int i = 0; i < parCinema; i++) {
+                programmations.add(demandeProgrammation(filmIds.get(random.nextInt(filmIds.size())), cinemaId, i, debut));
+            }
+        }
+        return programmations;
+    }
+
+    // i-ème programmation d'un cinéma, sans chevauchement avec les précédentes (refusé par CreneauIndex) :
+    // 4 horaires espacés de plus que le film le plus long, jours lun/mer/ven ou mar/jeu/sam,
+    // soit 8 programmations par période de 4 semaines
+    static ProgrammationCreateRequest demandeProgrammation(Long filmId, Long cinemaId, int i, LocalDate debut) {
+        LocalTime heure = HEURES[i % HEURES.length];
+        int jour = i / HEURES.length % 2;
+        LocalDate deb = debut.plusWeeks(4L * (i / (2 * HEURES.length)));
+        return new ProgrammationCreateRequest(filmId, cinemaId, deb, deb.plusWeeks(4).minusDays(1), List.of(
+                new CreneauInput(JOURS[jour], heure),
+                new CreneauInput(JOURS[jour + 2], heure),
+                new CreneauInput(JOURS[jour + 4], heure)));
+    }
+
+    // Faux repository : chaque méthode appelée renvoie la réponse préparée (pas de Mockito, trop coûteux en boucle)
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> reponses) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> reponse = reponses.get(method.getName());
+            if (reponse == null) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return reponse.apply(args);
+        });
+    }
+
+    static Function<Object[], Object> optional(Object valeur) {
+        return args -> Optional.of(valeur);
+    }
+
+    // Lignes de FilmRepository.findColonnesApres : seules les colonnes demandées, comme le select généré
+    @SuppressWarnings("unchecked")
+    static Function<Object[], Object> lignesFilms(List<Film> films) {
+        return args -> {
+            Set<ColonneFilm> colonnes = (Set<ColonneFilm>) args[0];
+            int limite = (int) args[4];
+            List<Tuple> lignes = new ArrayList<>(limite);
+            for (Film f : films.subList(0, Math.min(films.size(), limite))) {
+                Map<String, Object> valeurs = new LinkedHashMap<>();
+                for (ColonneFilm c : colonnes) {
+                    valeurs.put(c.champ(), switch (c) {
+                        case ID -> f.getId();
+                        case TITRE -> f.getTitre();
+                        case DUREE -> f.getDuree();
+                        case LANGUE -> f.getLangue();
+                        case REALISATEUR -> f.getRealisateur();
+                        case AGE_MIN -> f.getAge_min();
+                        case SOUS_TITRE -> f.getSous_titre();
+                    });
+                }
+                lignes.add(new Ligne(valeurs));
+            }
+            return lignes;
+        };
+    }
+
+    private record Ligne(Map<String, Object> valeurs) implements Tuple {
+
+        @Override
+        public <X> X get(String alias, Class<X> type) {
+            return type.cast(valeurs.get(alias));
+        }
+
+        @Override
+        public Object get(String alias) {
+            return valeurs.get(alias);
+        }
+
+        @Override
+        public <X> X get(int i, Class<X> type) {
+            return type.cast(get(i));
+        }
+
+        @Override
+        public Object get(int i) {
+            return toArray()[i];
+        }
+
+        @Override
+        public Object[] toArray() {
+            return valeurs.values().toArray();
+        }
+
+        @Override
+        public <X> X get(TupleElement<X> element) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TupleElement<?>> getElements() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
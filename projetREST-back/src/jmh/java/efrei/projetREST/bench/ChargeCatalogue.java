@@ -0,0 +1,214 @@
+package efrei.projetREST.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import efrei.projetREST.ProjetRestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test de charge de /Catalogue/films et /Catalogue/films/{id} : pool de threads Tomcat contre threads virtuels.
+ *
+ * Sans --url, l'application est démarrée deux fois dans ce processus (spring.threads.virtual.enabled=false puis true)
+ * sur la base configurée, avec le cache du catalogue désactivé pour que chaque appel aille en base,
+ * et sans les cloisons de LimitationFilter (tous les clients viennent de la même adresse).
+ * Avec --url, la charge est envoyée à un backend déjà lancé (à relancer soi-même dans l'autre mode).
+ *
+ *   mvn -Pjmh test-compile exec:exec@charge -Dcharge.args="--clients=400 --duree=30"
+ *
+ * Les autres arguments (--spring.datasource.url=..., etc.) sont passés tels quels à l'application.
+ */
+public class ChargeCatalogue {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> argsApplication = new ArrayList<>();
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (List.of("url", "clients", "duree", "echauffement").contains(kv[0])) {
+                options.put(kv[0], kv.length > 1 ? kv[1] : "");
+            } else {
+                argsApplication.add(arg);
+            }
+        }
+        int clients = Integer.parseInt(options.getOrDefault("clients", "400"));
+        Duration duree = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duree", "30")));
+        Duration echauffement = Duration.ofSeconds(Long.parseLong(options.getOrDefault("echauffement", "10")));
+
+        List<Resultat> resultats = new ArrayList<>();
+        if (options.containsKey("url")) {
+            resultats.addAll(charger("externe", options.get("url"), clients, echauffement, duree));
+        } else {
+            for (boolean virtuels : new boolean[]{false, true}) {
+                List<String> a = new ArrayList<>(argsApplication);
+                a.add("--server.port=0");
+                a.add("--spring.threads.virtual.enabled=" + virtuels);
+                a.add("--catalogue.cache.taille-max=0");
+                a.add("--limites.actif=false");
+                if (argsApplication.stream().noneMatch(arg -> arg.startsWith("--auth.token.secret="))) {
+                    a.add("--auth.token.secret=" + cleJetons());
+                }
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjetRestApplication.class)
+                        .run(a.toArray(String[]::new))) {
+                    String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                            + context.getEnvironment().getProperty("server.servlet.context-path", "");
+                    resultats.addAll(charger(virtuels ? "virtuels" : "pool", url, clients, echauffement, duree));
+                }
+            }
+        }
+
+        System.out.printf("%n%-9s %-22s %9s %9s %9s %9s %9s %8s%n",
+                "mode", "endpoint", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "erreurs");
+        resultats.forEach(r -> System.out.printf("%-9s %-22s %9.0f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                r.mode, r.endpoint, r.debit, r.percentile(0.50), r.percentile(0.95), r.percentile(0.99),
+                r.percentile(1.0), r.erreurs));
+    }
+
+    private static List<Resultat> charger(String mode, String url, int clients, Duration echauffement, Duration duree)
+            throws Exception {
+        long[] filmIds = filmIds(url);
+        if (filmIds.length == 0) {
+            throw new IllegalStateException("Aucun film dans le catalogue de " + url);
+        }
+        System.out.printf("%s : %d clients sur %s (%d films), %ds d'échauffement puis %ds de mesure%n",
+                mode, clients, url, filmIds.length, echauffement.toSeconds(), duree.toSeconds());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+
+            long debutMesure = System.nanoTime() + echauffement.toNanos();
+            long fin = debutMesure + duree.toNanos();
+            List<Future<Mesures[]>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                futures.add(executor.submit(() -> client(http, url, filmIds, random, debutMesure, fin)));
+            }
+
+            Mesures liste = new Mesures();
+            Mesures detail = new Mesures();
+            for (Future<Mesures[]> f : futures) {
+                Mesures[] m = f.get();
+                liste.ajouterTout(m[0]);
+                detail.ajouterTout(m[1]);
+            }
+            double secondes = duree.toNanos() / 1e9;
+            return List.of(new Resultat(mode, "/Catalogue/films", liste, secondes),
+                    new Resultat(mode, "/Catalogue/films/{id}", detail, secondes));
+        }
+    }
+
+    // Un client enchaîne les appels sans pause : moitié liste, moitié détail d'un film au hasard
+    private static Mesures[] client(HttpClient http, String url, long[] filmIds, SplittableRandom random,
+                                    long debutMesure, long fin) {
+        Mesures liste = new Mesures();
+        Mesures detail = new Mesures();
+        HttpRequest requeteListe = HttpRequest.newBuilder(URI.create(url + "/Catalogue/films?limit=50")).build();
+        for (long t = System.nanoTime(); t < fin; t = System.nanoTime()) {
+            boolean estListe = random.nextBoolean();
+            HttpRequest requete = estListe ? requeteListe : HttpRequest.newBuilder(
+                    URI.create(url + "/Catalogue/films/" + filmIds[random.nextInt(filmIds.length)])).build();
+            boolean ok;
+            try {
+                ok = http.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (Exception e) {
+                ok = false;
+            }
+            long apres = System.nanoTime();
+            if (t >= debutMesure && apres <= fin) {
+                (estListe ? liste : detail).ajouter(apres - t, ok);
+            }
+        }
+        return new Mesures[]{liste, detail};
+    }
+
+    // Clé HMAC jetable pour une application lancée par un banc (auth.token.secret est obligatoire)
+    static String cleJetons() {
+        byte[] cle = new byte[32];
+        new SecureRandom().nextBytes(cle);
+        return Base64.getEncoder().encodeToString(cle);
+    }
+
+    private static long[] filmIds(String url) throws Exception {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(url + "/Catalogue/films?limit=200")).build();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            JsonNode films = JSON.readTree(http.send(requete, HttpResponse.BodyHandlers.ofString()).body());
+            long[] ids = new long[films.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = films.get(i).get("id").asLong();
+            }
+            return ids;
+        }
+    }
+
+    static final class Mesures {
+        long[] durees = new long[1024];
+        int n;
+        long erreurs;
+
+        void ajouter(long nanos, boolean ok) {
+            if (!ok) {
+                erreurs++;
+            }
+            if (n == durees.length) {
+                durees = Arrays.copyOf(durees, n * 2);
+            }
+            durees[n++] = nanos;
+        }
+
+        void ajouterTout(Mesures autres) {
+            if (n + autres.n > durees.length) {
+                durees = Arrays.copyOf(durees, n + autres.n);
+            }
+            System.arraycopy(autres.durees, 0, durees, n, autres.n);
+            n += autres.n;
+            erreurs += autres.erreurs;
+        }
+    }
+
+    static final class Resultat {
+        final String mode;
+        final String endpoint;
+        final long[] durees;
+        final double debit;
+        final long erreurs;
+
+        Resultat(String mode, String endpoint, Mesures mesures, double secondes) {
+            this.mode = mode;
+            this.endpoint = endpoint;
+            this.durees = Arrays.copyOf(mesures.durees, mesures.n);
+            Arrays.sort(durees);
+            this.debit = mesures.n / secondes;
+            this.erreurs = mesures.erreurs;
+        }
+
+        double percentile(double p) {
+            if (durees.length == 0) {
+                return 0;
+            }
+            int i = (int) Math.ceil(p * durees.length) - 1;
+            return durees[Math.max(0, Math.min(durees.length - 1, i))] / 1e6;
+        }
+    }
+}
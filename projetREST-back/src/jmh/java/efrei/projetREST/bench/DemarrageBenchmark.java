@@ -0,0 +1,137 @@
+package efrei.projetREST.bench;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Temps jusqu'à la première requête servie : du lancement de la JVM à la première réponse 200
+ * de /Catalogue/films (qui crée les beans paresseux et ouvre la première session Hibernate).
+ * Chaque mode est lancé dans sa propre JVM, à tour de rôle, sur un PostgreSQL embarqué déjà migré :
+ *  - classique : jar exécutable, configuration par défaut ;
+ *  - demarrage : jar mince + target/lib, classes AOT, profil "demarrage" (beans paresseux, repositories différés) ;
+ *  - demarrage+cds : la même chose avec l'archive CDS produite à la construction.
+ *
+ *   mvn -Pdemarrage -DskipTests package
+ *   mvn -Pjmh test-compile exec:exec@demarrage -Ddemarrage.args="--tours=10"
+ *
+ * Options : --tours (5), --cible (dossier des jars, target). Les autres arguments sont passés aux applications.
+ */
+public class DemarrageBenchmark {
+
+    private static final String JAR = "projetREST-0.0.1-SNAPSHOT";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> argsApplication = new ArrayList<>();
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (List.of("tours", "cible").contains(kv[0])) {
+                options.put(kv[0], kv.length > 1 ? kv[1] : "");
+            } else {
+                argsApplication.add(arg);
+            }
+        }
+        int tours = Integer.parseInt(options.getOrDefault("tours", "5"));
+        Path cible = Path.of(options.getOrDefault("cible", "target"));
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        Path jar = cible.resolve(JAR + ".jar");
+        Path jarMince = cible.resolve(JAR + "-demarrage.jar");
+        Path archive = cible.resolve("projetREST.jsa");
+        for (Path p : List.of(jar, jarMince, archive)) {
+            if (!Files.exists(p)) {
+                throw new IllegalStateException(p + " absent : lancer d'abord mvn -Pdemarrage -DskipTests package");
+            }
+        }
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("classique", List.of(java, "-jar", jar.toString()));
+        modes.put("demarrage", List.of(java, "-Dspring.aot.enabled=true", "-jar", jarMince.toString(),
+                "--spring.profiles.active=demarrage"));
+        modes.put("demarrage+cds", List.of(java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off",
+                "-Dspring.aot.enabled=true", "-jar", jarMince.toString(), "--spring.profiles.active=demarrage"));
+
+        // sorties des applications
+        Path journal = cible.resolve("demarrage-benchmark.log");
+        Map<String, long[]> mesures = new LinkedHashMap<>();
+        modes.keySet().forEach(m -> mesures.put(m, new long[tours]));
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            List<String> a = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres")
+                            + "&currentSchema=cinema&reWriteBatchedInserts=true",
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--auth.token.secret=" + ChargeCatalogue.cleJetons(),
+                    "--logging.level.root=WARN"));
+            a.addAll(argsApplication);
+
+            // premier lancement hors mesure : migrations Flyway, caches disque de l'OS
+            demarrer(modes.get("classique"), a, journal);
+            for (int tour = 0; tour < tours; tour++) {
+                for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                    long ms = demarrer(mode.getValue(), a, journal);
+                    mesures.get(mode.getKey())[tour] = ms;
+                    System.out.printf("tour %d, %-13s : %d ms%n", tour + 1, mode.getKey(), ms);
+                }
+            }
+        }
+
+        System.out.printf("%n%-13s %9s %9s %9s%n", "mode", "min ms", "médiane", "max ms");
+        mesures.forEach((mode, ms) -> {
+            long[] tries = ms.clone();
+            Arrays.sort(tries);
+            System.out.printf("%-13s %9d %9d %9d%n", mode, tries[0], tries[tries.length / 2], tries[tries.length - 1]);
+        });
+    }
+
+    // Lance l'application, attend la première réponse 200, l'arrête ; renvoie le temps écoulé
+    private static long demarrer(List<String> commande, List<String> argsApplication, Path journal) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> c = new ArrayList<>(commande);
+        c.addAll(argsApplication);
+        c.add("--server.port=" + port);
+
+        HttpRequest requete = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/Catalogue/films?limit=1"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        long debut = System.nanoTime();
+        Process process = new ProcessBuilder(c)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(journal.toFile()))
+                .start();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application arrêtée au démarrage (voir " + journal + ")");
+                }
+                try {
+                    if (http.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - debut) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // pas encore à l'écoute
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+}
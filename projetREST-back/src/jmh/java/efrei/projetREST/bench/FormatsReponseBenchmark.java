@@ -0,0 +1,91 @@
+package efrei.projetREST.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CreneauHebdoRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.VilleIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Détail d'un gros cinéma selon le format négocié (JSON, CBOR, Smile), avec ou sans gzip (comme Tomcat).
+ * Le temps mesure le CPU de sérialisation (+ compression) ; la taille envoyée est affichée au début de chaque essai.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="FormatsReponseBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatsReponseBenchmark {
+
+    @Param({"100", "2000"})
+    int programmations;
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"aucune", "gzip"})
+    String compression;
+
+    ObjectMapper objectMapper;
+    CatalogueService.CinemaDetailsResponse cinemaDetails;
+
+    @Setup
+    public void setup() {
+        // mêmes fabriques que WebConfig
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(SmileFactory.builder()
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()).build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+
+        CatalogueSynthetique c = new CatalogueSynthetique(programmations);
+        CatalogueService catalogueService = new CatalogueService(
+                CatalogueSynthetique.repository(ProgrammationRepository.class, Map.of(
+                        "findWithFilmByCinemaId", args -> c.programmationsDuCinema)),
+                CatalogueSynthetique.repository(FilmRepository.class, Map.of()),
+                CatalogueSynthetique.repository(CreneauHebdoRepository.class, Map.of(
+                        "findByProgrammationIds", args -> c.creneauxDuCinema)),
+                CatalogueSynthetique.repository(CinemaRepository.class, Map.of(
+                        "findById", CatalogueSynthetique.optional(c.cinema))),
+                new VilleIndex(null, null));
+        cinemaDetails = catalogueService.getCinemaDetails(1L);
+
+        try {
+            System.out.printf("%ntaille %s/%s, %s programmations : %d octets%n",
+                    format, compression, programmations, cinemaDetails().length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] cinemaDetails() throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream(8192);
+        if ("gzip".equals(compression)) {
+            try (OutputStream gzip = new GZIPOutputStream(octets, 8192)) {
+                objectMapper.writeValue(gzip, cinemaDetails);
+            }
+        } else {
+            objectMapper.writeValue(octets, cinemaDetails);
+        }
+        return octets.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package efrei.projetREST.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CreneauHebdoRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.VilleIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation JSON des réponses détail, avec un ObjectMapper configuré comme celui de Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerialisationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int programmations;
+
+    ObjectMapper objectMapper;
+    CatalogueService.FilmDetailsResponse filmDetails;
+    CatalogueService.CinemaDetailsResponse cinemaDetails;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        CatalogueSynthetique c = new CatalogueSynthetique(programmations);
+        CatalogueService catalogueService = new CatalogueService(
+                CatalogueSynthetique.repository(ProgrammationRepository.class, Map.of(
+                        "findWithCinemaByFilmId", args -> c.programmationsDuFilm,
+                        "findWithFilmByCinemaId", args -> c.programmationsDuCinema)),
+                CatalogueSynthetique.repository(FilmRepository.class, Map.of(
+                        "findById", CatalogueSynthetique.optional(c.film))),
+                CatalogueSynthetique.repository(CreneauHebdoRepository.class, Map.of(
+                        "findByProgrammationIds", args -> ((java.util.Collection<?>) args[0]).contains(c.programmationsDuFilm.get(0).getId())
+                                ? c.creneauxDuFilm : c.creneauxDuCinema)),
+                CatalogueSynthetique.repository(CinemaRepository.class, Map.of(
+                        "findById", CatalogueSynthetique.optional(c.cinema))),
+                new VilleIndex(null, null));
+
+        filmDetails = catalogueService.getFilmDetails(1L);
+        cinemaDetails = catalogueService.getCinemaDetails(1L);
+    }
+
+    @Benchmark
+    public byte[] filmDetailsJson() throws Exception {
+        return objectMapper.writeValueAsBytes(filmDetails);
+    }
+
+    @Benchmark
+    public byte[] cinemaDetailsJson() throws Exception {
+        return objectMapper.writeValueAsBytes(cinemaDetails);
+    }
+}
@@ -0,0 +1,453 @@
+package efrei.projetREST.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import efrei.projetREST.ProjetRestApplication;
+import efrei.projetREST.controller.CatalogueController;
+import efrei.projetREST.service.PublicationService.CinemaCreateRequest;
+import efrei.projetREST.service.PublicationService.FilmCreateRequest;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scénarios de charge reproductibles, sans rien d'installé sur la machine : l'application démarre dans ce processus
+ * sur un PostgreSQL embarqué (binaire zonky, migrations Flyway), ou sur H2 en mode PostgreSQL s'il ne peut pas
+ * démarrer (--base=h2 pour le forcer), puis reçoit un catalogue synthétique déterministe par /publication/bulk.
+ * Des clients en boucle fermée mélangent ensuite quatre scénarios :
+ * parcourir (pages de films au curseur, films d'une ville, cinémas), rechercher (query, suggest),
+ * detail (film ou cinéma) et publier (films, et programmations sur un cinéma propre à chaque client).
+ *
+ * Débit et percentiles sont affichés par scénario et, avec --resultat, écrits en JSON.
+ * Avec --seuils=fichier.properties (clés &lt;scenario ou total&gt;.{p95-ms, p99-ms, debit-min, erreurs-max (en %)}),
+ * un seuil dépassé fait sortir en erreur : de quoi refuser une version qui régresse.
+ *
+ *   mvn -Pjmh test-compile exec:exec@scenarios -Dscenarios.args="--clients=200 --duree=60"
+ *
+ * Options : --base=postgres|h2, --clients (100), --duree (30 s), --echauffement (10 s), --films (5000),
+ * --cinemas (200), --programmations (par cinéma, 16), --melange (parcourir:40,rechercher:30,detail:25,publier:5),
+ * --graine (42), --seuils, --resultat. Les autres arguments sont passés tels quels à l'application.
+ * Les clients tournent dans la même JVM que l'application : comparer des résultats obtenus sur la même machine.
+ */
+public class ScenariosCharge {
+
+    private static final List<String> OPTIONS = List.of("base", "clients", "duree", "echauffement", "films", "cinemas",
+            "programmations", "melange", "graine", "seuils", "resultat");
+    private static final List<String> SCENARIOS = List.of("parcourir", "rechercher", "detail", "publier");
+    private static final String[] TERMES = {"nuit", "Film 4", "Film 12", "ilm 7", "Film 1 nuit"};
+    private static final int TAILLE_ENVOI = 1000;
+
+    // Dates et heures en ISO, comme les attend l'API
+    private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json().build();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> argsApplication = new ArrayList<>();
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (OPTIONS.contains(kv[0])) {
+                options.put(kv[0], kv.length > 1 ? kv[1] : "");
+            } else {
+                argsApplication.add(arg);
+            }
+        }
+        int clients = Integer.parseInt(options.getOrDefault("clients", "100"));
+        Duration duree = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duree", "30")));
+        Duration echauffement = Duration.ofSeconds(Long.parseLong(options.getOrDefault("echauffement", "10")));
+        int nbFilms = Integer.parseInt(options.getOrDefault("films", "5000"));
+        int nbCinemas = Integer.parseInt(options.getOrDefault("cinemas", "200"));
+        int parCinema = Integer.parseInt(options.getOrDefault("programmations", "16"));
+        long graine = Long.parseLong(options.getOrDefault("graine", "42"));
+        Map<String, Integer> melange = melange(options.getOrDefault("melange", "parcourir:40,rechercher:30,detail:25,publier:5"));
+
+        EmbeddedPostgres postgres = null;
+        String base = options.getOrDefault("base", "postgres");
+        if (base.equals("postgres")) {
+            try {
+                postgres = EmbeddedPostgres.start();
+            } catch (Exception e) {
+                System.out.println("PostgreSQL embarqué indisponible (" + e.getMessage() + ") : repli sur H2");
+                base = "h2";
+            }
+        }
+
+        List<String> defauts = new ArrayList<>();
+        if (postgres != null) {
+            defauts.add("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres")
+                    + "&currentSchema=cinema&reWriteBatchedInserts=true");
+            defauts.add("--spring.datasource.username=postgres");
+            defauts.add("--spring.datasource.password=");
+        } else {
+            defauts.add("--spring.datasource.url=jdbc:h2:mem:scenarios;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                    + "DEFAULT_NULL_ORDERING=HIGH;INIT=CREATE SCHEMA IF NOT EXISTS cinema");
+            defauts.add("--spring.datasource.username=sa");
+            defauts.add("--spring.datasource.password=");
+            defauts.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+            defauts.add("--spring.jpa.hibernate.ddl-auto=create");
+            defauts.add("--spring.flyway.enabled=false");
+            // pas de table outbox sans Flyway : événements distribués directement après commit
+            defauts.add("--catalogue.outbox.actif=false");
+        }
+        defauts.add("--server.port=0");
+        defauts.add("--auth.token.secret=" + ChargeCatalogue.cleJetons());
+        // tous les clients viennent de la même adresse : les seaux à jetons les refuseraient presque tous
+        defauts.add("--limites.actif=false");
+        defauts.add("--logging.level.root=WARN");
+        // une propriété répétée en ligne de commande serait lue "v1,v2" : celles passées à ScenariosCharge remplacent les nôtres
+        List<String> a = new ArrayList<>(argsApplication);
+        for (String defaut : defauts) {
+            String cle = defaut.substring(0, defaut.indexOf('=') + 1);
+            if (argsApplication.stream().noneMatch(arg -> arg.startsWith(cle))) {
+                a.add(defaut);
+            }
+        }
+
+        List<ChargeCatalogue.Resultat> resultats;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjetRestApplication.class)
+                .run(a.toArray(String[]::new))) {
+            String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "");
+            Catalogue catalogue = remplir(url, nbFilms, nbCinemas, parCinema, graine);
+            resultats = charger(base, url, catalogue, clients, melange, graine, echauffement, duree);
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+
+        System.out.printf("%n%-9s %-11s %9s %9s %9s %9s %9s %9s %8s%n",
+                "base", "scenario", "requetes", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "erreurs");
+        resultats.forEach(r -> System.out.printf("%-9s %-11s %9d %9.0f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                r.mode, r.endpoint, r.durees.length, r.debit, r.percentile(0.50), r.percentile(0.95),
+                r.percentile(0.99), r.percentile(1.0), r.erreurs));
+
+        if (options.containsKey("resultat")) {
+            ecrire(Path.of(options.get("resultat")), base, clients, duree, nbFilms, nbCinemas, parCinema, resultats);
+        }
+        if (options.containsKey("seuils")) {
+            List<String> depassements = verifier(Path.of(options.get("seuils")), resultats);
+            if (!depassements.isEmpty()) {
+                System.out.println("\nSeuils dépassés :");
+                depassements.forEach(d -> System.out.println("  " + d));
+                System.exit(1);
+            }
+            System.out.println("\nSeuils respectés");
+        }
+    }
+
+    private static Map<String, Integer> melange(String texte) {
+        Map<String, Integer> poids = new LinkedHashMap<>();
+        for (String part : texte.split(",")) {
+            String[] kv = part.trim().split(":", 2);
+            if (!SCENARIOS.contains(kv[0]) || kv.length != 2) {
+                throw new IllegalArgumentException("Scénario inconnu dans --melange : " + part + " (" + SCENARIOS + ")");
+            }
+            int p = Integer.parseInt(kv[1]);
+            if (p > 0) {
+                poids.put(kv[0], p);
+            }
+        }
+        if (poids.isEmpty()) {
+            throw new IllegalArgumentException("--melange ne contient aucun scénario");
+        }
+        return poids;
+    }
+
+    // Même catalogue, dans le même ordre, que CatalogueRepositoryBenchmark pour une même graine
+    private static Catalogue remplir(String url, int nbFilms, int nbCinemas, int parCinema, long graine)
+            throws Exception {
+        long debut = System.nanoTime();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            // un compte par rôle : les films sont publiés par un proprio_film, cinémas et programmations par un proprio_cinema
+            String jetonFilms = inscrire(http, url, "charge-films@cinema.fr", "proprio_film");
+            String jetonCinemas = inscrire(http, url, "charge-cinemas@cinema.fr", "proprio_cinema");
+
+            SplittableRandom r = new SplittableRandom(graine);
+            List<Long> filmIds = envoyerParLots(http, url + "/publication/bulk/films", jetonFilms,
+                    CatalogueSynthetique.demandesFilms(nbFilms, r));
+            List<Long> cinemaIds = envoyerParLots(http, url + "/publication/bulk/cinemas", jetonCinemas,
+                    CatalogueSynthetique.demandesCinemas(nbCinemas));
+            List<Long> programmations = envoyerParLots(http, url + "/publication/bulk/programmations", jetonCinemas,
+                    CatalogueSynthetique.demandesProgrammations(filmIds, cinemaIds, parCinema, LocalDate.now(), r));
+
+            System.out.printf("Catalogue : %d films, %d cinémas, %d programmations publiés en %d ms%n",
+                    filmIds.size(), cinemaIds.size(), programmations.size(), (System.nanoTime() - debut) / 1_000_000);
+            return new Catalogue(jetonFilms, jetonCinemas, filmIds.stream().mapToLong(Long::longValue).toArray(),
+                    cinemaIds.stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    private static String inscrire(HttpClient http, String url, String email, String role) throws Exception {
+        JsonNode compte = JSON.readTree(envoyer(http, url + "/auth/register", null,
+                Map.of("email", email, "mdp", "charge", "role", role)));
+        return compte.get("token").asText();
+    }
+
+    private static List<Long> envoyerParLots(HttpClient http, String url, String jeton, List<?> demandes)
+            throws Exception {
+        List<Long> ids = new ArrayList<>(demandes.size());
+        for (int i = 0; i < demandes.size(); i += TAILLE_ENVOI) {
+            String corps = envoyer(http, url, jeton, demandes.subList(i, Math.min(demandes.size(), i + TAILLE_ENVOI)));
+            for (JsonNode id : JSON.readTree(corps)) {
+                ids.add(id.asLong());
+            }
+        }
+        return ids;
+    }
+
+    private static String envoyer(HttpClient http, String url, String jeton, Object corps) throws Exception {
+        HttpResponse<String> reponse = http.send(post(url, jeton, corps), HttpResponse.BodyHandlers.ofString());
+        if (reponse.statusCode() != 200) {
+            throw new IllegalStateException("POST " + url + " : " + reponse.statusCode() + " " + reponse.body());
+        }
+        return reponse.body();
+    }
+
+    private static HttpRequest post(String url, String jeton, Object corps) throws IOException {
+        HttpRequest.Builder requete = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(corps)));
+        if (jeton != null) {
+            requete.header("Authorization", "Bearer " + jeton);
+        }
+        return requete.build();
+    }
+
+    private static List<ChargeCatalogue.Resultat> charger(String base, String url, Catalogue catalogue, int clients,
+                                                         Map<String, Integer> melange, long graine,
+                                                         Duration echauffement, Duration duree) throws Exception {
+        System.out.printf("%s : %d clients sur %s, mélange %s, %ds d'échauffement puis %ds de mesure%n",
+                base, clients, url, melange, echauffement.toSeconds(), duree.toSeconds());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+
+            long debutMesure = System.nanoTime() + echauffement.toNanos();
+            long fin = debutMesure + duree.toNanos();
+            List<Future<Map<String, ChargeCatalogue.Mesures>>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                Client client = new Client(http, url, catalogue, melange, i, new SplittableRandom(graine + i));
+                futures.add(executor.submit(() -> client.executer(debutMesure, fin)));
+            }
+
+            Map<String, ChargeCatalogue.Mesures> parScenario = new LinkedHashMap<>();
+            melange.keySet().forEach(s -> parScenario.put(s, new ChargeCatalogue.Mesures()));
+            ChargeCatalogue.Mesures total = new ChargeCatalogue.Mesures();
+            for (Future<Map<String, ChargeCatalogue.Mesures>> f : futures) {
+                f.get().forEach((scenario, mesures) -> {
+                    parScenario.get(scenario).ajouterTout(mesures);
+                    total.ajouterTout(mesures);
+                });
+            }
+            double secondes = duree.toNanos() / 1e9;
+            List<ChargeCatalogue.Resultat> resultats = new ArrayList<>();
+            parScenario.forEach((scenario, mesures) ->
+                    resultats.add(new ChargeCatalogue.Resultat(base, scenario, mesures, secondes)));
+            resultats.add(new ChargeCatalogue.Resultat(base, "total", total, secondes));
+            return resultats;
+        }
+    }
+
+    private static void ecrire(Path fichier, String base, int clients, Duration duree, int nbFilms, int nbCinemas,
+                               int parCinema, List<ChargeCatalogue.Resultat> resultats) throws IOException {
+        ObjectNode racine = JSON.createObjectNode()
+                .put("base", base)
+                .put("clients", clients)
+                .put("dureeSecondes", duree.toSeconds());
+        racine.putObject("catalogue")
+                .put("films", nbFilms)
+                .put("cinemas", nbCinemas)
+                .put("programmationsParCinema", parCinema);
+        ObjectNode scenarios = racine.putObject("scenarios");
+        for (ChargeCatalogue.Resultat r : resultats) {
+            scenarios.putObject(r.endpoint)
+                    .put("requetes", r.durees.length)
+                    .put("debit", r.debit)
+                    .put("p50Ms", r.percentile(0.50))
+                    .put("p95Ms", r.percentile(0.95))
+                    .put("p99Ms", r.percentile(0.99))
+                    .put("maxMs", r.percentile(1.0))
+                    .put("erreurs", r.erreurs);
+        }
+        if (fichier.getParent() != null) {
+            Files.createDirectories(fichier.getParent());
+        }
+        JSON.writerWithDefaultPrettyPrinter().writeValue(fichier.toFile(), racine);
+        System.out.println("Résultats écrits dans " + fichier);
+    }
+
+    private static List<String> verifier(Path fichier, List<ChargeCatalogue.Resultat> resultats) throws IOException {
+        Properties seuils = new Properties();
+        try (Reader reader = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            seuils.load(reader);
+        }
+        List<String> depassements = new ArrayList<>();
+        for (ChargeCatalogue.Resultat r : resultats) {
+            double erreurs = r.durees.length == 0 ? 0 : 100.0 * r.erreurs / r.durees.length;
+            plafond(seuils, r.endpoint + ".p95-ms", r.percentile(0.95), depassements);
+            plafond(seuils, r.endpoint + ".p99-ms", r.percentile(0.99), depassements);
+            plafond(seuils, r.endpoint + ".erreurs-max", erreurs, depassements);
+            String debitMin = seuils.getProperty(r.endpoint + ".debit-min");
+            if (debitMin != null && r.debit < Double.parseDouble(debitMin.trim())) {
+                depassements.add(String.format("%s.debit-min : %.0f req/s < %s", r.endpoint, r.debit, debitMin.trim()));
+            }
+        }
+        return depassements;
+    }
+
+    private static void plafond(Properties seuils, String cle, double valeur, List<String> depassements) {
+        String seuil = seuils.getProperty(cle);
+        if (seuil != null && valeur > Double.parseDouble(seuil.trim())) {
+            depassements.add(String.format("%s : %.2f > %s", cle, valeur, seuil.trim()));
+        }
+    }
+
+    private record Catalogue(String jetonFilms, String jetonCinemas, long[] filmIds, long[] cinemaIds) {}
+
+    // Un client virtuel : enchaîne les requêtes sans pause, une par tirage de scénario
+    private static final class Client {
+        private final HttpClient http;
+        private final String url;
+        private final Catalogue catalogue;
+        private final String[] tirages;
+        private final int numero;
+        private final SplittableRandom random;
+
+        // Parcours en cours des pages de films, cinéma où ce client publie ses programmations
+        private String curseur;
+        private Long cinemaPropre;
+        private int programmations;
+        private int films;
+
+        Client(HttpClient http, String url, Catalogue catalogue, Map<String, Integer> melange, int numero,
+               SplittableRandom random) {
+            this.http = http;
+            this.url = url;
+            this.catalogue = catalogue;
+            this.tirages = melange.entrySet().stream()
+                    .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                    .toArray(String[]::new);
+            this.numero = numero;
+            this.random = random;
+        }
+
+        Map<String, ChargeCatalogue.Mesures> executer(long debutMesure, long fin) {
+            Map<String, ChargeCatalogue.Mesures> mesures = new LinkedHashMap<>();
+            for (long t = System.nanoTime(); t < fin; t = System.nanoTime()) {
+                String scenario = tirages[random.nextInt(tirages.length)];
+                boolean ok;
+                try {
+                    ok = switch (scenario) {
+                        case "parcourir" -> parcourir();
+                        case "rechercher" -> rechercher();
+                        case "detail" -> detail();
+                        default -> publier();
+                    };
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long apres = System.nanoTime();
+                if (t >= debutMesure && apres <= fin) {
+                    mesures.computeIfAbsent(scenario, s -> new ChargeCatalogue.Mesures()).ajouter(apres - t, ok);
+                }
+            }
+            return mesures;
+        }
+
+        // Pages de films au curseur (jusqu'au bout puis on recommence), films d'une ville, cinémas
+        private boolean parcourir() throws Exception {
+            int choix = random.nextInt(4);
+            if (choix == 0) {
+                String ville = CatalogueSynthetique.VILLES[random.nextInt(CatalogueSynthetique.VILLES.length)];
+                return ok(get("/Catalogue/films?limit=50&ville=" + encoder(ville)));
+            }
+            if (choix == 1) {
+                return ok(get("/Catalogue/cinemas?limit=50"));
+            }
+            HttpResponse<String> page = get("/Catalogue/films?limit=50" + (curseur == null ? "" : "&after=" + encoder(curseur)));
+            curseur = page.headers().firstValue(CatalogueController.NEXT_CURSOR_HEADER).orElse(null);
+            return ok(page);
+        }
+
+        private boolean rechercher() throws Exception {
+            if (random.nextBoolean()) {
+                return ok(get("/Catalogue/films?limit=20&query=" + encoder(TERMES[random.nextInt(TERMES.length)])));
+            }
+            return ok(get("/Catalogue/films/suggest?limit=10&prefix=" + encoder("Film " + random.nextInt(100))));
+        }
+
+        private boolean detail() throws Exception {
+            if (random.nextInt(4) == 0) {
+                return ok(get("/Catalogue/cinemas/" + catalogue.cinemaIds()[random.nextInt(catalogue.cinemaIds().length)]));
+            }
+            return ok(get("/Catalogue/films/" + catalogue.filmIds()[random.nextInt(catalogue.filmIds().length)]));
+        }
+
+        // Trois fois sur quatre un film ; sinon une programmation, sur le cinéma du client (créé au premier tirage)
+        private boolean publier() throws Exception {
+            if (random.nextInt(4) != 0) {
+                return ok(post("/publication/films", catalogue.jetonFilms(), new FilmCreateRequest("Film charge " + numero + "-" + films++,
+                        80 + random.nextInt(100), "Français", "Réalisateur charge", 0, "Aucun")));
+            }
+            if (cinemaPropre == null) {
+                String ville = CatalogueSynthetique.VILLES[numero % CatalogueSynthetique.VILLES.length];
+                HttpResponse<String> cree = post("/publication/cinemas", catalogue.jetonCinemas(),
+                        new CinemaCreateRequest("Cinéma charge " + numero, numero + " quai de la Charge, " + ville, ville));
+                if (ok(cree)) {
+                    cinemaPropre = Long.valueOf(cree.body().trim());
+                }
+                return ok(cree);
+            }
+            long filmId = catalogue.filmIds()[random.nextInt(catalogue.filmIds().length)];
+            return ok(post("/publication/programmations", catalogue.jetonCinemas(), CatalogueSynthetique.demandeProgrammation(
+                    filmId, cinemaPropre, programmations++, LocalDate.now())));
+        }
+
+        private HttpResponse<String> get(String chemin) throws Exception {
+            return http.send(HttpRequest.newBuilder(URI.create(url + chemin)).build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private HttpResponse<String> post(String chemin, String jeton, Object corps) throws Exception {
+            return http.send(ScenariosCharge.post(url + chemin, jeton, corps), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static boolean ok(HttpResponse<String> reponse) {
+            return reponse.statusCode() == 200;
+        }
+
+        private static String encoder(String valeur) {
+            return URLEncoder.encode(valeur, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package efrei.projetREST.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import efrei.projetREST.repository.ProgrammationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+/**
+ * Cache de second niveau Hibernate : gestionnaire JCache (Caffeine) configuré par hibernate-cache.conf,
+ * et taux de hit par région.
+ * Les compteurs hit/miss/put par région sont déjà publiés par HibernateMetrics
+ * (hibernate.second.level.cache.requests) ; on y ajoute le ratio, NaN tant qu'une région n'a pas été lue.
+ */
+@Configuration
+public class CacheHibernateConfig {
+
+    // Fichier lu par Caffeine (ressource du classpath, aussi dans le jar exécutable) ; passé par
+    // hibernate.javax.cache.uri, Hibernate ne le retrouve que selon le chargeur de classes
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("classpath:hibernate-cache.conf"), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder cacheHibernateMetriques(EntityManagerFactory entityManagerFactory) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        CacheImplementor cache = sessionFactory.getCache();
+        // les régions de requêtes ne sont créées qu'à la première requête : celle-ci doit exister pour sa jauge
+        cache.getQueryResultsCache(ProgrammationRepository.REGION_CACHE);
+        // régions d'entités, de collections et de requêtes ; pas les horodatages
+        String horodatages = cache.getTimestampsCache().getRegion().getName();
+        return registry -> {
+            for (String region : cache.getCacheRegionNames()) {
+                if (region.equals(horodatages)) {
+                    continue;
+                }
+                Gauge.builder("hibernate.second.level.cache.ratio", statistics, s -> ratio(s.getCacheRegionStatistics(region)))
+                        .tag("region", region)
+                        .description("Part des lectures de la région servies par le cache")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double ratio(CacheRegionStatistics region) {
+        if (region == null) {
+            return Double.NaN;
+        }
+        long lectures = region.getHitCount() + region.getMissCount();
+        return lectures == 0 ? Double.NaN : (double) region.getHitCount() / lectures;
+    }
+}
@@ -0,0 +1,24 @@
+package efrei.projetREST.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Initialisation paresseuse des beans (spring.main.lazy-initialization, profil "demarrage") :
+ * un bean qui a des méthodes @Scheduled est créé au démarrage quand même, sinon ses tâches
+ * (scrutation de l'outbox, battement SSE, vérification du replica...) ne seraient jamais planifiées.
+ */
+@Configuration
+public class DemarrageConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter tachesPlanifiees() {
+        return (nom, definition, type) -> !MethodIntrospector.selectMethods(type,
+                (MethodIntrospector.MetadataLookup<Scheduled>) m -> AnnotatedElementUtils.findMergedAnnotation(m, Scheduled.class))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,56 @@
+package efrei.projetREST.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Compte, pour le thread courant, les requêtes SQL préparées et les entités chargées par Hibernate.
+ * Remis à zéro au début de chaque requête HTTP par RequeteMetriquesInterceptor.
+ */
+@Component
+public class HibernateCompteurs implements HibernatePropertiesCustomizer, StatementInspector, Interceptor {
+
+    private static final ThreadLocal<Compteurs> COURANTS = ThreadLocal.withInitial(Compteurs::new);
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+        hibernateProperties.put("hibernate.session_factory.interceptor", this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COURANTS.get().sql++;
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        COURANTS.get().entites++;
+        return false;
+    }
+
+    public static void reinitialiser() {
+        Compteurs c = COURANTS.get();
+        c.sql = 0;
+        c.entites = 0;
+    }
+
+    public static int sql() {
+        return COURANTS.get().sql;
+    }
+
+    public static int entites() {
+        return COURANTS.get().entites;
+    }
+
+    private static final class Compteurs {
+        int sql;
+        int entites;
+    }
+}
@@ -0,0 +1,75 @@
+package efrei.projetREST.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Deux pools Hikari quand un replica est configuré (replica.datasource.jdbc-url) : le primaire
+ * (spring.datasource.*) et le replica (replica.datasource.*), chacun avec sa taille.
+ * Sans URL de replica, le pool replica n'est jamais démarré et RoutageDataSource envoie tout au primaire.
+ * Le choix est fait à l'exécution et non par une condition sur la configuration : le traitement AOT
+ * (profil Maven "demarrage") figerait la condition telle qu'évaluée à la construction.
+ */
+@Configuration
+public class ReplicaConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaireDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primaire");
+        return ds;
+    }
+
+    // Hors de l'injection (santé db, métriques de pool par source de données) : sans URL, ce pool ne se connecte pas
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("replica.datasource")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName("replica");
+        return ds;
+    }
+
+    @Bean
+    public RoutageDataSource routageDataSource(@Qualifier("primaireDataSource") DataSource primaire,
+                                               @Value("${replica.retard-max:5s}") Duration retardMax) {
+        HikariDataSource replica = replicaDataSource();
+        boolean configure = replica.getJdbcUrl() != null && !replica.getJdbcUrl().isBlank();
+        return new RoutageDataSource(primaire, configure ? replica : null, retardMax);
+    }
+
+    // La connexion n'est prise qu'à la première requête SQL : JpaTransactionManager ouvre la transaction
+    // avant d'avoir marqué le thread en lecture seule, le routage se ferait sinon toujours vers le primaire
+    @Bean
+    @Primary
+    public DataSource dataSource(RoutageDataSource routageDataSource) {
+        return new LazyConnectionDataSourceProxy(routageDataSource);
+    }
+
+    @Bean
+    public MeterBinder replicaMetriques(RoutageDataSource routageDataSource) {
+        return registry -> {
+            Gauge.builder("replica.retard", routageDataSource, RoutageDataSource::retardSecondes)
+                    .baseUnit("seconds")
+                    .description("Retard de rejeu du replica (NaN s'il ne répond pas)")
+                    .register(registry);
+            Gauge.builder("replica.utilisable", routageDataSource, r -> r.replicaUtilisable() ? 1 : 0)
+                    .description("1 si les lectures sont envoyées au replica")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package efrei.projetREST.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.projetREST.controller.AuthTokenFilter;
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactions en lecture seule vers le replica, toutes les autres vers le primaire.
+ * Les lectures reviennent au primaire quand le replica a trop de retard (ou ne répond pas), et pendant retardMax
+ * pour le client (utilisateur du jeton, adresse IP) qui vient de commiter une écriture, pour qu'il relise
+ * ses propres écritures ; les lectures des autres clients restent sur le replica.
+ * Sans replica (null), tout va au primaire et le retard n'est pas vérifié.
+ */
+public class RoutageDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutageDataSource.class);
+
+    private static final String PRIMAIRE = "primaire";
+    private static final String REPLICA = "replica";
+
+    // 0 si la base n'est pas un standby ou si tout le WAL reçu est rejoué, null si rien n'a encore été rejoué
+    private static final String RETARD_SQL = """
+            select case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else extract(epoch from now() - pg_last_xact_replay_timestamp()) end""";
+
+    private final JdbcTemplate replica;
+    private final Duration retardMax;
+
+    // inutilisable tant que la première vérification n'est pas passée
+    private volatile boolean replicaUtilisable;
+    private volatile double retardSecondes = Double.NaN;
+    // Clients qui ont écrit depuis moins de retardMax
+    private final Cache<String, Boolean> ecrivainsRecents;
+
+    public RoutageDataSource(DataSource primaire, DataSource replica, Duration retardMax) {
+        this.replica = replica != null ? new JdbcTemplate(replica) : null;
+        this.retardMax = retardMax;
+        this.ecrivainsRecents = Caffeine.newBuilder()
+                .expireAfterWrite(retardMax)
+                .maximumSize(100_000)
+                .build();
+        setTargetDataSources(replica != null ? Map.of(PRIMAIRE, primaire, REPLICA, replica) : Map.of(PRIMAIRE, primaire));
+        setDefaultTargetDataSource(primaire);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            List<String> clients = clients();
+            if (!clients.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        clients.forEach(client -> ecrivainsRecents.put(client, true));
+                    }
+                });
+            }
+            return PRIMAIRE;
+        }
+        if (!replicaUtilisable) {
+            return PRIMAIRE;
+        }
+        for (String client : clients()) {
+            if (ecrivainsRecents.getIfPresent(client) != null) {
+                return PRIMAIRE;
+            }
+        }
+        return REPLICA;
+    }
+
+    // Client de la requête en cours sur ce thread (aucun hors requête : outbox, export asynchrone, SSE) :
+    // son adresse, et l'utilisateur du jeton sur /publication, pour que ses lectures anonymes suivent aussi
+    private static List<String> clients() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributs)) {
+            return List.of();
+        }
+        HttpServletRequest request = attributs.getRequest();
+        String ip = "ip:" + request.getRemoteAddr();
+        return request.getAttribute(AuthTokenFilter.UTILISATEUR) instanceof SessionUtilisateur session
+                ? List.of(ip, "u:" + session.userId())
+                : List.of(ip);
+    }
+
+    @Scheduled(fixedDelayString = "${replica.verification:PT2S}")
+    public void verifierRetard() {
+        if (replica == null) {
+            return;
+        }
+        Double retard;
+        String erreur = null;
+        try {
+            retard = replica.queryForObject(RETARD_SQL, Double.class);
+        } catch (RuntimeException e) {
+            retard = null;
+            erreur = e.getMessage();
+        }
+        boolean utilisable = retard != null && retard <= retardMax.toMillis() / 1000.0;
+        if (utilisable && !replicaUtilisable) {
+            log.info("Replica à jour ({} s de retard), lectures envoyées au replica", retard);
+        } else if (!utilisable && replicaUtilisable) {
+            log.warn("Replica {}, lectures envoyées au primaire",
+                    erreur != null ? "injoignable : " + erreur
+                            : retard == null ? "sans transaction rejouée" : "en retard (" + retard + " s)");
+        }
+        retardSecondes = retard == null ? Double.NaN : retard;
+        replicaUtilisable = utilisable;
+    }
+
+    public double retardSecondes() {
+        return retardSecondes;
+    }
+
+    public boolean replicaUtilisable() {
+        return replicaUtilisable;
+    }
+}
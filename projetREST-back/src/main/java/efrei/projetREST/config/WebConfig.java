@@ -0,0 +1,64 @@
+package efrei.projetREST.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import efrei.projetREST.controller.CatalogueEtagInterceptor;
+import efrei.projetREST.controller.RequeteMetriquesInterceptor;
+import efrei.projetREST.service.CatalogueService;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final CatalogueEtagInterceptor catalogueEtagInterceptor;
+    private final RequeteMetriquesInterceptor requeteMetriquesInterceptor;
+
+    public WebConfig(CatalogueEtagInterceptor catalogueEtagInterceptor,
+                     RequeteMetriquesInterceptor requeteMetriquesInterceptor) {
+        this.catalogueEtagInterceptor = catalogueEtagInterceptor;
+        this.requeteMetriquesInterceptor = requeteMetriquesInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // en premier : ses compteurs sont remis à zéro même quand l'ETag court-circuite la requête (304)
+        registry.addInterceptor(requeteMetriquesInterceptor);
+        // pas d'ETag sur le flux des changements : il ne se termine pas et ne dépend pas de la version ;
+        // ni sur les séances, dont la fenêtre par défaut part de l'heure courante : la réponse change sans publication
+        registry.addInterceptor(catalogueEtagInterceptor).addPathPatterns("/Catalogue/**")
+                .excludePathPatterns("/Catalogue/changes", "/Catalogue/seances", "/Catalogue/films/*/seances");
+    }
+
+    // Filtre des listes du catalogue (voir CatalogueController.page) : sans fields=, tous les champs sont écrits ;
+    // aussi pour les ObjectMapper CBOR, Smile et celui de l'export, construits à partir du même builder.
+    // static : l'ObjectMapper (utilisé par l'Outbox) ne dépend pas des intercepteurs de cette configuration
+    @Bean
+    public static Jackson2ObjectMapperBuilderCustomizer filtreChamps() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(CatalogueService.FILTRE_CHAMPS, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    // CBOR (application/cbor) et Smile (application/x-jackson-smile) sur demande du client (Accept),
+    // avec la configuration Jackson de Spring Boot ; sans Accept explicite, la réponse reste en JSON
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // Smile référence les chaînes déjà émises (langue, sous-titre, nom et adresse du cinéma répétés à chaque programmation)
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory smile = SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smile).build());
+    }
+}
@@ -0,0 +1,62 @@
+package efrei.projetREST.controller;
+
+import efrei.projetREST.service.TokenService;
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Les endpoints /publication/** exigent "Authorization: Bearer <jeton>".
+ * L'utilisateur du jeton est posé sur la requête (attribut UTILISATEUR), sans requête SQL.
+ */
+// Avant LimitationFilter, qui limite le débit par utilisateur du jeton
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    public static final String UTILISATEUR = "utilisateur";
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public AuthTokenFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        // les pré-requêtes CORS ne portent pas l'en-tête Authorization
+        return !chemin.startsWith("/publication/") || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        SessionUtilisateur session = authorization != null && authorization.startsWith(BEARER)
+                ? tokenService.verifier(authorization.substring(BEARER.length()).trim())
+                : null;
+
+        if (session == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            // réponse envoyée avant le contrôleur : sans cet en-tête le navigateur masquerait le 401 derrière une erreur CORS
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Jeton absent, invalide ou expiré");
+            return;
+        }
+        request.setAttribute(UTILISATEUR, session);
+        chain.doFilter(request, response);
+    }
+}
@@ -1,48 +1,191 @@
 package efrei.projetREST.controller;
 
-import efrei.projetREST.entities.Film;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import efrei.projetREST.repository.CinemaRepositoryColonnes.ColonneCinema;
+import efrei.projetREST.repository.Colonne;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import efrei.projetREST.service.CatalogueCache;
+import efrei.projetREST.service.CatalogueChangements;
+import efrei.projetREST.service.CatalogueExportService;
 import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.CreneauIndex;
+import efrei.projetREST.service.FilmTitreIndex;
+import efrei.projetREST.service.SeanceIndex;
+import efrei.projetREST.service.VilleIndex;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = CatalogueController.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/Catalogue")
 public class CatalogueController {
 
-    private final CatalogueService catalogueService;
+    // Curseur de la page suivante (absent sur la dernière page) ; le corps reste un tableau JSON
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    public CatalogueController(CatalogueService catalogueService) {
-        this.catalogueService = catalogueService;
+    private static final int SUGGESTIONS_MAX = 50;
+    private static final int SEANCES_MAX = 1000;
+
+    private final CatalogueCache catalogueCache;
+    private final FilmTitreIndex filmTitreIndex;
+    private final SeanceIndex seanceIndex;
+    private final CatalogueExportService catalogueExportService;
+    private final VilleIndex villeIndex;
+    private final CreneauIndex creneauIndex;
+    private final CatalogueChangements catalogueChangements;
+
+    public CatalogueController(CatalogueCache catalogueCache, FilmTitreIndex filmTitreIndex, SeanceIndex seanceIndex,
+                               CatalogueExportService catalogueExportService, VilleIndex villeIndex,
+                               CreneauIndex creneauIndex, CatalogueChangements catalogueChangements) {
+        this.catalogueCache = catalogueCache;
+        this.filmTitreIndex = filmTitreIndex;
+        this.seanceIndex = seanceIndex;
+        this.catalogueExportService = catalogueExportService;
+        this.villeIndex = villeIndex;
+        this.creneauIndex = creneauIndex;
+        this.catalogueChangements = catalogueChangements;
     }
 
 
     @GetMapping("/films")
-    public ResponseEntity<List<CatalogueService.FilmLightResponse>> films(
+    public ResponseEntity<MappingJacksonValue> films(
             @RequestParam(required = false) String ville,
-            @RequestParam(required = false) String query
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields
     ) {
-        return ResponseEntity.ok(catalogueService.getFilms(ville, query));
+        return page(catalogueCache.getFilms(ville, query, after, limit, fields), fields, ColonneFilm.class);
     }
 
 
+    // Autocomplétion : servie par l'index en mémoire, sans transaction ni requête SQL
+    @GetMapping("/films/suggest")
+    public ResponseEntity<List<FilmTitreIndex.FilmSuggestion>> suggererFilms(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(filmTitreIndex.suggerer(prefix, Math.min(limit, SUGGESTIONS_MAX)));
+    }
+
     @GetMapping("/films/{id}")
     public ResponseEntity<CatalogueService.FilmDetailsResponse> detailsFilm(@PathVariable Long id) {
-        return ResponseEntity.ok(catalogueService.getFilmDetails(id));
+        return ResponseEntity.ok(catalogueCache.getFilmDetails(id));
+    }
+
+    // Villes avec leur nombre de films programmés et de cinémas (facette du filtre par ville)
+    @GetMapping("/villes")
+    public ResponseEntity<List<VilleIndex.VilleResponse>> villes() {
+        return ResponseEntity.ok(villeIndex.villes());
+    }
+
+    // Séances à l'affiche dans une ville (ou un cinéma) entre from et to ; par défaut les prochaines 24 h
+    @GetMapping("/seances")
+    public ResponseEntity<List<SeanceIndex.SeanceResponse>> seances(
+            @RequestParam(required = false) String ville,
+            @RequestParam(required = false) Long cinemaId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "200") int limit
+    ) {
+        LocalDateTime debut = from != null ? from : seanceIndex.maintenant();
+        LocalDateTime fin = to != null ? to : debut.plusDays(1);
+        int limite = limiterSeances(limit);
+
+        if (cinemaId != null) {
+            return ResponseEntity.ok(seanceIndex.seancesParCinema(cinemaId, debut, fin, limite));
+        }
+        if (ville == null || ville.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ville ou cinemaId est obligatoire");
+        }
+        return ResponseEntity.ok(seanceIndex.seancesParVille(ville, debut, fin, limite));
+    }
+
+    @GetMapping("/films/{id}/seances")
+    public ResponseEntity<List<SeanceIndex.SeanceResponse>> prochainesSeances(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(seanceIndex.prochainesSeances(id, limiterSeances(limit)));
+    }
+
+    private static int limiterSeances(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit doit être >= 1");
+        }
+        return Math.min(limit, SEANCES_MAX);
     }
 
     @GetMapping("/cinemas")
-    public ResponseEntity<List<CatalogueService.CinemaLightResponse>> tousLesCinemas() {
-        return ResponseEntity.ok(catalogueService.getAllCinemas());
+    public ResponseEntity<MappingJacksonValue> tousLesCinemas(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields
+    ) {
+        return page(catalogueCache.getAllCinemas(after, limit, fields), fields, ColonneCinema.class);
+    }
+
+    // Plages libres d'un cinéma pour une programmation du..au (au moins duree minutes, 0 : toutes)
+    @GetMapping("/cinemas/{id}/creneaux-libres")
+    public ResponseEntity<List<CreneauIndex.CreneauLibre>> creneauxLibres(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate du,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate au,
+            @RequestParam(defaultValue = "0") int duree
+    ) {
+        return ResponseEntity.ok(creneauIndex.creneauxLibres(id, du, au, duree));
     }
 
     @GetMapping("/cinemas/{id}")
     public ResponseEntity<CatalogueService.CinemaDetailsResponse> getCinemaDetails(@PathVariable Long id) {
-        return ResponseEntity.ok(catalogueService.getCinemaDetails(id));
+        return ResponseEntity.ok(catalogueCache.getCinemaDetails(id));
+    }
+
+    // Dump complet pour les agrégateurs : NDJSON écrit au fil de la lecture en base, hors du thread de requête
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(catalogueExportService::exporter);
     }
 
+    // Changements poussés en SSE ; Last-Event-ID à la reconnexion, ou lastEventId pour reprendre un id mémorisé
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changements(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                  @RequestParam(required = false) String lastEventId) {
+        return catalogueChangements.abonner(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
 
+    // Avec fields=, seuls les champs demandés (et l'id) sont écrits ; sans fields, tous, même null
+    private static <T, C extends Enum<C> & Colonne> ResponseEntity<MappingJacksonValue> page(
+            CatalogueService.CursorPage<T> page, String fields, Class<C> type) {
+        MappingJacksonValue corps = new MappingJacksonValue(page.items());
+        if (fields != null && !fields.isBlank()) {
+            Set<String> champs = CatalogueService.colonnes(fields, type).stream()
+                    .map(Colonne::champ)
+                    .collect(Collectors.toSet());
+            corps.setFilters(new SimpleFilterProvider()
+                    .addFilter(CatalogueService.FILTRE_CHAMPS, SimpleBeanPropertyFilter.filterOutAllExcept(champs)));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(corps);
+    }
 
 }
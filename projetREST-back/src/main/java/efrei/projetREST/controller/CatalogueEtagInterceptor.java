@@ -0,0 +1,81 @@
+package efrei.projetREST.controller;
+
+import efrei.projetREST.service.CatalogueVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Requêtes conditionnelles sur les GET du catalogue : l'ETag est la version du catalogue,
+ * le 304 est renvoyé avant d'appeler le contrôleur (ni requête SQL, ni sérialisation JSON).
+ * Pas de Last-Modified : à la seconde, et fait d'heures propres à chaque nœud, il validerait une copie périmée.
+ * Sans lui, If-Modified-Since n'est jamais honoré (200), seul If-None-Match l'est.
+ * JSON, CBOR et Smile sont des représentations différentes : chacune a son ETag, et la réponse varie selon Accept.
+ */
+@Component
+public class CatalogueEtagInterceptor implements HandlerInterceptor {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    private final CatalogueVersion catalogueVersion;
+
+    public CatalogueEtagInterceptor(CatalogueVersion catalogueVersion) {
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+
+        // lue avant le contrôleur : au pire la réponse est plus récente que son ETag, jamais l'inverse
+        String version = catalogueVersion.version();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (version == null) {
+            // démarrage en cours : pas encore de version, réponse complète sans ETag
+            return true;
+        }
+        // ETag faible : Tomcat ne compresse pas une réponse qui porte un ETag fort (les octets gzip ne sont pas les mêmes)
+        String etag = "W/\"" + version + format(request) + "\"";
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+
+    // Même choix que la négociation de Spring MVC : type accepté de plus forte qualité, JSON par défaut (*/*)
+    private static String format(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            if (type.isCompatibleWith(CBOR)) {
+                return "-cbor";
+            }
+            if (type.isCompatibleWith(SMILE)) {
+                return "-smile";
+            }
+        }
+        return "";
+    }
+}
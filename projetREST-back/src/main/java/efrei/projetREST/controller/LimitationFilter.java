@@ -0,0 +1,249 @@
+package efrei.projetREST.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cloisons par classe d'endpoints : lectures du catalogue, export, écritures de publication, authentification.
+ * Chacune a sa limite de concurrence adaptative (LimiteAdaptative) : une rafale de recherches sur le catalogue
+ * ne prend plus tous les threads et connexions dont ont besoin les publications et le login.
+ * Saturée, une cloison répond 503 + Retry-After tout de suite.
+ * L'export NDJSON a sa cloison : il dure par nature bien plus que la latence cible des lectures, ses durées
+ * feraient reculer la limite du catalogue ; sa concurrence est fixe (initiale = min = max), son débit faible.
+ * Avant elle, un seau à jetons par client (utilisateur du jeton sur /publication, adresse IP sinon)
+ * limite le débit de chacun : 429 + Retry-After au-delà.
+ * Réglages par classe : limites.<classe>.{concurrence-initiale, concurrence-min, concurrence-max, latence-cible,
+ * debit (requêtes/s par client), rafale} ; limites.actif=false retire le filtre (tirs de charge).
+ */
+@Component
+public class LimitationFilter extends OncePerRequestFilter {
+
+    enum Classe {
+        CATALOGUE(20, 4, 200, Duration.ofMillis(250), 20, 50),
+        EXPORT(4, 4, 4, Duration.ofMinutes(10), 0.2, 3),
+        PUBLICATION(6, 2, 20, Duration.ofSeconds(2), 5, 20),
+        AUTH(4, 1, 16, Duration.ofMillis(500), 1, 10);
+
+        final int initiale;
+        final int minimum;
+        final int maximum;
+        final Duration latenceCible;
+        final double debit;
+        final int rafale;
+
+        Classe(int initiale, int minimum, int maximum, Duration latenceCible, double debit, int rafale) {
+            this.initiale = initiale;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.latenceCible = latenceCible;
+            this.debit = debit;
+            this.rafale = rafale;
+        }
+
+        String nom() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Classe, Cloison> cloisons = new EnumMap<>(Classe.class);
+    private final boolean actif;
+
+    public LimitationFilter(Environment environment, MeterRegistry meterRegistry) {
+        this.actif = environment.getProperty("limites.actif", Boolean.class, true);
+        for (Classe classe : Classe.values()) {
+            cloisons.put(classe, new Cloison(classe, environment, meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !actif || HttpMethod.OPTIONS.matches(request.getMethod()) || classe(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Cloison cloison = cloisons.get(classe(request));
+
+        long attente = cloison.jetons(client(request)).prendre();
+        if (attente > 0) {
+            cloison.rejetsDebit.increment();
+            refuser(response, HttpStatus.TOO_MANY_REQUESTS, attente, "Trop de requêtes pour ce client");
+            return;
+        }
+        if (!cloison.limite.acquerir()) {
+            cloison.rejetsConcurrence.increment();
+            refuser(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "Service saturé, réessayez plus tard");
+            return;
+        }
+
+        long debut = System.nanoTime();
+        boolean liberationDifferee = false;
+        try {
+            chain.doFilter(request, response);
+            // réponse asynchrone (export) : le permis est gardé jusqu'à la fin de l'écriture
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Liberation(cloison.limite, debut));
+                liberationDifferee = true;
+            }
+        } finally {
+            if (!liberationDifferee) {
+                cloison.limite.liberer(System.nanoTime() - debut, response.getStatus() >= 500);
+            }
+        }
+    }
+
+    // Le flux SSE des changements reste ouvert : il a son propre plafond d'abonnés (CatalogueChangements)
+    private static Classe classe(HttpServletRequest request) {
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        if (chemin.startsWith("/Catalogue/")) {
+            return chemin.equals("/Catalogue/changes") ? null
+                    : chemin.equals("/Catalogue/export") ? Classe.EXPORT
+                    : Classe.CATALOGUE;
+        }
+        if (chemin.startsWith("/publication/")) {
+            return Classe.PUBLICATION;
+        }
+        if (chemin.startsWith("/auth/")) {
+            return Classe.AUTH;
+        }
+        return null;
+    }
+
+    // L'utilisateur est posé par AuthTokenFilter (passé avant) ; derrière un proxy, voir server.forward-headers-strategy
+    private static String client(HttpServletRequest request) {
+        return request.getAttribute(AuthTokenFilter.UTILISATEUR) instanceof SessionUtilisateur session
+                ? "u:" + session.userId()
+                : "ip:" + request.getRemoteAddr();
+    }
+
+    private static void refuser(HttpServletResponse response, HttpStatus statut, long attenteNanos, String message)
+            throws IOException {
+        long secondes = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(attenteNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(secondes));
+        // réponse envoyée avant le contrôleur : sans cet en-tête le navigateur masquerait l'erreur derrière une erreur CORS
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        // lisible par le front (api.js attend avant de réessayer)
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.RETRY_AFTER);
+        response.sendError(statut.value(), message);
+    }
+
+    private static final class Cloison {
+        final LimiteAdaptative limite;
+        final Cache<String, SeauJetons> seaux;
+        final double debit;
+        final int rafale;
+        final Counter rejetsConcurrence;
+        final Counter rejetsDebit;
+
+        Cloison(Classe classe, Environment env, MeterRegistry registry) {
+            String prefixe = "limites." + classe.nom() + ".";
+            this.limite = new LimiteAdaptative(
+                    env.getProperty(prefixe + "concurrence-initiale", Integer.class, classe.initiale),
+                    env.getProperty(prefixe + "concurrence-min", Integer.class, classe.minimum),
+                    env.getProperty(prefixe + "concurrence-max", Integer.class, classe.maximum),
+                    env.getProperty(prefixe + "latence-cible", Duration.class, classe.latenceCible));
+            this.debit = env.getProperty(prefixe + "debit", Double.class, classe.debit);
+            this.rafale = env.getProperty(prefixe + "rafale", Integer.class, classe.rafale);
+            // un seau plein est identique à un seau absent : on peut oublier les clients inactifs
+            this.seaux = Caffeine.newBuilder()
+                    .expireAfterAccess(Duration.ofMinutes(10))
+                    .maximumSize(100_000)
+                    .build();
+
+            Gauge.builder("limites.permis.utilises", limite, LimiteAdaptative::enCours)
+                    .tag("classe", classe.nom())
+                    .description("Requêtes en cours dans la cloison")
+                    .register(registry);
+            Gauge.builder("limites.permis.limite", limite, LimiteAdaptative::limite)
+                    .tag("classe", classe.nom())
+                    .description("Limite de concurrence adaptative de la cloison")
+                    .register(registry);
+            this.rejetsConcurrence = rejets(registry, classe, "concurrence");
+            this.rejetsDebit = rejets(registry, classe, "debit");
+        }
+
+        SeauJetons jetons(String client) {
+            return seaux.get(client, k -> new SeauJetons(debit, rafale));
+        }
+
+        private static Counter rejets(MeterRegistry registry, Classe classe, String raison) {
+            return Counter.builder("limites.requetes.rejetees")
+                    .tag("classe", classe.nom())
+                    .tag("raison", raison)
+                    .description("Requêtes refusées (503 si la cloison est saturée, 429 si le client dépasse son débit)")
+                    .register(registry);
+        }
+    }
+
+    // Seau à jetons d'un client : rempli au débit, plafonné à la rafale
+    private static final class SeauJetons {
+        private final double jetonsParNano;
+        private final int rafale;
+        private double jetons;
+        private long maj = System.nanoTime();
+
+        SeauJetons(double debit, int rafale) {
+            this.jetonsParNano = debit / TimeUnit.SECONDS.toNanos(1);
+            this.rafale = rafale;
+            this.jetons = rafale;
+        }
+
+        // 0 si un jeton a été pris, sinon l'attente avant le prochain (en ns)
+        synchronized long prendre() {
+            long maintenant = System.nanoTime();
+            jetons = Math.min(rafale, jetons + (maintenant - maj) * jetonsParNano);
+            maj = maintenant;
+            if (jetons >= 1) {
+                jetons -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - jetons) / jetonsParNano);
+        }
+    }
+
+    private record Liberation(LimiteAdaptative limite, long debut) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            limite.liberer(System.nanoTime() - debut, response.getStatus() >= 500);
+        }
+
+        // onComplete suit toujours une erreur ou un dépassement de délai
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
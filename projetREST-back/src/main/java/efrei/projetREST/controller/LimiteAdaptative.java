@@ -0,0 +1,68 @@
+package efrei.projetREST.controller;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite de concurrence AIMD d'une classe d'endpoints : une requête plus lente que la latence cible
+ * (ou en erreur 5xx) réduit la limite de 10 %, au plus une fois par latence cible ; une requête rapide
+ * alors que la moitié des permis au moins sont pris l'augmente de 1/limite (environ +1 par « fenêtre » de requêtes).
+ * Au-delà de la limite, la requête est refusée tout de suite, sans attente.
+ */
+class LimiteAdaptative {
+
+    private static final double RECUL = 0.9;
+
+    private final int minimum;
+    private final int maximum;
+    private final long latenceCible;
+
+    private final AtomicInteger enCours = new AtomicInteger();
+    private volatile double limite;
+    private long dernierRecul;
+
+    LimiteAdaptative(int initiale, int minimum, int maximum, Duration latenceCible) {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.latenceCible = latenceCible.toNanos();
+        this.limite = Math.max(minimum, Math.min(maximum, initiale));
+        // la première requête lente compte, même juste après le démarrage
+        this.dernierRecul = System.nanoTime() - this.latenceCible;
+    }
+
+    boolean acquerir() {
+        while (true) {
+            int n = enCours.get();
+            if (n >= (int) limite) {
+                return false;
+            }
+            if (enCours.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void liberer(long dureeNanos, boolean echec) {
+        int avant = enCours.getAndDecrement();
+        synchronized (this) {
+            if (echec || dureeNanos > latenceCible) {
+                long maintenant = System.nanoTime();
+                // les requêtes lancées avant le recul finissent lentes elles aussi : on ne les compte qu'une fois
+                if (maintenant - dernierRecul >= latenceCible) {
+                    limite = Math.max(minimum, limite * RECUL);
+                    dernierRecul = maintenant;
+                }
+            } else if (avant * 2 >= limite) {
+                limite = Math.min(maximum, limite + 1 / limite);
+            }
+        }
+    }
+
+    int enCours() {
+        return enCours.get();
+    }
+
+    int limite() {
+        return (int) limite;
+    }
+}
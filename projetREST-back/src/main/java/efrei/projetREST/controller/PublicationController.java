@@ -1,13 +1,15 @@
 package efrei.projetREST.controller;
 
 import efrei.projetREST.entities.Programmation;
+import efrei.projetREST.service.PublicationBulkService;
 import efrei.projetREST.service.PublicationService;
-import efrei.projetREST.service.PublicationService.CreneauInput;
 import efrei.projetREST.service.PublicationService.FilmCreateRequest;
+import efrei.projetREST.service.PublicationService.ProgrammationCreateRequest;
+import efrei.projetREST.service.TokenService;
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
 import java.util.List;
 
 @CrossOrigin(origins = "*")
@@ -16,26 +18,31 @@ import java.util.List;
 public class PublicationController {
 
     private final PublicationService publicationService;
+    private final PublicationBulkService publicationBulkService;
 
-    public PublicationController(PublicationService publicationService) {
+    public PublicationController(PublicationService publicationService, PublicationBulkService publicationBulkService) {
         this.publicationService = publicationService;
+        this.publicationBulkService = publicationBulkService;
     }
 
-    //Publier un film
+    //Publier un film (le propriétaire est l'utilisateur du jeton, voir AuthTokenFilter)
     @PostMapping("/films")
     public ResponseEntity<Long> publierFilm(
             @RequestBody FilmCreateRequest request,
-            @RequestParam Long proprietaireId
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
     ) {
-        var film = publicationService.publierFilm(request, proprietaireId);
+        utilisateur.exigerRole(TokenService.PROPRIO_FILM);
+        var film = publicationService.publierFilm(request, utilisateur.userId());
         return ResponseEntity.ok(film.getId());
     }
 
     //Publier une programmation
     @PostMapping("/programmations")
     public ResponseEntity<Long> publierProgrammation(
-            @RequestBody ProgrammationCreateRequest request
+            @RequestBody ProgrammationCreateRequest request,
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
     ) {
+        utilisateur.exigerRole(TokenService.PROPRIO_CINEMA);
         Programmation prog = publicationService.publierProgrammation(
                 request.filmId(),
                 request.cinemaId(),
@@ -51,18 +58,39 @@ public class PublicationController {
     @PostMapping("/cinemas")
     public ResponseEntity<Long> creerCinema(
             @RequestBody PublicationService.CinemaCreateRequest request,
-            @RequestParam Long proprietaireId
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
     ) {
-        var cinema = publicationService.creerCinema(request, proprietaireId);
+        utilisateur.exigerRole(TokenService.PROPRIO_CINEMA);
+        var cinema = publicationService.creerCinema(request, utilisateur.userId());
         return ResponseEntity.ok(cinema.getId());
     }
 
 
-    public record ProgrammationCreateRequest(
-            Long filmId,
-            Long cinemaId,
-            LocalDate dateDeb,
-            LocalDate dateFin,
-            List<CreneauInput> creneaux
-    ) {}
+    //Publication en masse : renvoie les ids créés, dans l'ordre de la requête
+    @PostMapping("/bulk/films")
+    public ResponseEntity<List<Long>> publierFilms(
+            @RequestBody List<FilmCreateRequest> request,
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
+    ) {
+        utilisateur.exigerRole(TokenService.PROPRIO_FILM);
+        return ResponseEntity.ok(publicationBulkService.publierFilms(request, utilisateur.userId()));
+    }
+
+    @PostMapping("/bulk/cinemas")
+    public ResponseEntity<List<Long>> creerCinemas(
+            @RequestBody List<PublicationService.CinemaCreateRequest> request,
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
+    ) {
+        utilisateur.exigerRole(TokenService.PROPRIO_CINEMA);
+        return ResponseEntity.ok(publicationBulkService.creerCinemas(request, utilisateur.userId()));
+    }
+
+    @PostMapping("/bulk/programmations")
+    public ResponseEntity<List<Long>> publierProgrammations(
+            @RequestBody List<ProgrammationCreateRequest> request,
+            @RequestAttribute(AuthTokenFilter.UTILISATEUR) SessionUtilisateur utilisateur
+    ) {
+        utilisateur.exigerRole(TokenService.PROPRIO_CINEMA);
+        return ResponseEntity.ok(publicationBulkService.publierProgrammations(request));
+    }
 }
@@ -0,0 +1,64 @@
+package efrei.projetREST.controller;
+
+import efrei.projetREST.config.HibernateCompteurs;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+
+/**
+ * Nombre de requêtes SQL et d'entités chargées par appel, par endpoint (même tag uri que http.server.requests).
+ * Une hausse du nombre de requêtes SQL sur un endpoint signale un N+1.
+ * Les compteurs sont ceux du thread de la requête : les réponses asynchrones (export, flux SSE), produites sur
+ * d'autres threads, ne sont pas mesurées.
+ */
+@Component
+public class RequeteMetriquesInterceptor implements HandlerInterceptor {
+
+    private static final Set<Class<?>> CONTROLEURS = Set.of(
+            CatalogueController.class, PublicationController.class, AuthController.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public RequeteMetriquesInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        HibernateCompteurs.reinitialiser();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // fin d'une réponse asynchrone : son travail s'est fait ailleurs, les compteurs de ce thread diraient 0
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                || !(handler instanceof HandlerMethod method) || !CONTROLEURS.contains(method.getBeanType())) {
+            return;
+        }
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String[] tags = {
+                "uri", uri == null ? "UNKNOWN" : uri.toString(),
+                "method", request.getMethod(),
+                "status", Integer.toString(response.getStatus())
+        };
+        resume("http.server.requests.sql", "requêtes SQL exécutées par appel", tags).record(HibernateCompteurs.sql());
+        resume("http.server.requests.entites", "entités chargées par Hibernate par appel", tags).record(HibernateCompteurs.entites());
+    }
+
+    private DistributionSummary resume(String nom, String description, String[] tags) {
+        return DistributionSummary.builder(nom)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -1,9 +1,13 @@
 package efrei.projetREST.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="acteur")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "acteur")
 public class Acteur {
 
     @Id
@@ -1,13 +1,18 @@
 package efrei.projetREST.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name="cinema")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cinema")
 public class Cinema {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cinema_seq")
+    @SequenceGenerator(name = "cinema_seq", sequenceName = "cinema_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -23,6 +28,10 @@ public class Cinema {
     @JoinColumn(name = "id_utilisateur", nullable = false)
     private Utilisateur proprietaire;
 
+    // Programmations publiées dans ce cinéma, incrémenté sous le verrou de publication (voir CreneauIndex)
+    @Column(name = "version_programmations", nullable = false)
+    private long versionProgrammations;
+
     public Cinema() {
     }
 
@@ -72,4 +81,12 @@ public class Cinema {
     public void setProprietaire(Utilisateur proprietaire) {
         this.proprietaire = proprietaire;
     }
+
+    public long getVersionProgrammations() {
+        return versionProgrammations;
+    }
+
+    public void setVersionProgrammations(long versionProgrammations) {
+        this.versionProgrammations = versionProgrammations;
+    }
 }
@@ -10,7 +10,8 @@ import java.time.LocalTime;
 public class CreneauHebdo {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "creneau_hebdo_seq")
+    @SequenceGenerator(name = "creneau_hebdo_seq", sequenceName = "creneau_hebdo_id_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
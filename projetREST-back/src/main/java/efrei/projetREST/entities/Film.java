@@ -1,16 +1,23 @@
 package efrei.projetREST.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name="film")
+// Cache de second niveau (hibernate-cache.conf) : lu par chaque page détail, presque jamais modifié
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "film")
 public class Film {
 
+    // Séquence en allocation groupée (pooled) plutôt qu'IDENTITY, pour que Hibernate puisse grouper les insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "film_seq")
+    @SequenceGenerator(name = "film_seq", sequenceName = "film_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -37,6 +44,7 @@ public class Film {
 
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "film-acteurs")
     @JoinTable(
             name = "joue",
             joinColumns = @JoinColumn(name = "id_film"),
@@ -10,7 +10,8 @@ import java.time.LocalDate;
 public class Programmation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "programmation_seq")
+    @SequenceGenerator(name = "programmation_seq", sequenceName = "programmation_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -2,9 +2,13 @@ package efrei.projetREST.entities;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name ="utilisateur")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "utilisateur")
 public class Utilisateur {
 
     @Id
@@ -1,9 +1,48 @@
 package efrei.projetREST.repository;
 
 import efrei.projetREST.entities.Cinema;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface CinemaRepository extends JpaRepository<Cinema,Long> {
+public interface CinemaRepository extends JpaRepository<Cinema,Long>, CinemaRepositoryColonnes {
+
+    @Query("select c.id as id, c.nom as nom, c.ville as ville from Cinema c")
+    List<IdNomVille> findAllNomsVilles();
+
+    @Query("select c.id as id, c.versionProgrammations as version from Cinema c")
+    List<IdVersion> findAllVersionsProgrammations();
+
+    // Verrou de publication (select ... for update) : les programmations d'un cinéma sont vérifiées puis écrites
+    // par une transaction à la fois, tous nœuds confondus. Dans l'ordre des ids : deux publications en masse
+    // qui touchent les mêmes cinémas les verrouillent dans le même ordre, sans interblocage
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Cinema c where c.id in :ids order by c.id")
+    List<Cinema> verrouiller(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select c from Cinema c order by c.id")
+    Stream<Cinema> streamAllOrderById();
+
+    interface IdNomVille {
+        Long getId();
+        String getNom();
+        String getVille();
+    }
+
+    interface IdVersion {
+        Long getId();
+        Long getVersion();
+    }
 }
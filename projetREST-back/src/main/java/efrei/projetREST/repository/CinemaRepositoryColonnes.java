@@ -0,0 +1,39 @@
+package efrei.projetREST.repository;
+
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Set;
+
+public interface CinemaRepositoryColonnes {
+
+    enum ColonneCinema implements Colonne {
+        ID(Colonne.ID, "id"),
+        NOM("nom", "nom"),
+        ADRESSE("adresse", "adresse"),
+        VILLE("ville", "ville"),
+        // clé étrangère : lue dans la table cinema, sans jointure sur utilisateur
+        ID_PROPRIETAIRE("idProprietaire", "proprietaire.id");
+
+        private final String champ;
+        private final String attribut;
+
+        ColonneCinema(String champ, String attribut) {
+            this.champ = champ;
+            this.attribut = attribut;
+        }
+
+        @Override
+        public String champ() {
+            return champ;
+        }
+
+        @Override
+        public String attribut() {
+            return attribut;
+        }
+    }
+
+    // Cinémas d'id > apres, triés par id, en Tuple limité aux colonnes demandées
+    List<Tuple> findColonnesApres(Set<ColonneCinema> colonnes, long apres, int limite);
+}
@@ -0,0 +1,25 @@
+package efrei.projetREST.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Set;
+
+public class CinemaRepositoryColonnesImpl implements CinemaRepositoryColonnes {
+
+    private final EntityManager entityManager;
+
+    public CinemaRepositoryColonnesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Tuple> findColonnesApres(Set<ColonneCinema> colonnes, long apres, int limite) {
+        return entityManager.createQuery(Colonne.select("c", colonnes)
+                        + " from Cinema c where c.id > :apres order by c.id", Tuple.class)
+                .setParameter("apres", apres)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
@@ -0,0 +1,24 @@
+package efrei.projetREST.repository;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Colonne lisible seule par une requête de projection : nom du champ dans la réponse (alias du Tuple)
+ * et chemin de l'attribut JPA. Les valeurs possibles sont des enums : rien du client n'entre dans le JPQL.
+ */
+public interface Colonne {
+
+    // Toujours lue : c'est la clé de pagination
+    String ID = "id";
+
+    String champ();
+
+    String attribut();
+
+    static String select(String alias, Set<? extends Colonne> colonnes) {
+        return colonnes.stream()
+                .map(c -> alias + "." + c.attribut() + " as " + c.champ())
+                .collect(Collectors.joining(", ", "select ", ""));
+    }
+}
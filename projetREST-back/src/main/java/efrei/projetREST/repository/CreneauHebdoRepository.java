@@ -2,12 +2,19 @@ package efrei.projetREST.repository;
 
 import efrei.projetREST.entities.CreneauHebdo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CreneauHebdoRepository extends JpaRepository<CreneauHebdo,Long> {
 
     List<CreneauHebdo> findByProgrammation_Id(Long programmationId);
+
+    // Tous les créneaux d'un lot de programmations en une seule requête (regroupés ensuite en mémoire)
+    @Query("select ch from CreneauHebdo ch where ch.programmation.id in :programmationIds order by ch.id")
+    List<CreneauHebdo> findByProgrammationIds(@Param("programmationIds") Collection<Long> programmationIds);
 }
@@ -2,17 +2,35 @@ package efrei.projetREST.repository;
 
 
 import efrei.projetREST.entities.Film;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface FilmRepository extends JpaRepository<Film,Long> {
+public interface FilmRepository extends JpaRepository<Film,Long>, FilmRepositoryColonnes {
 
 
 
     List<Film> findByTitreContainingIgnoreCase(String titre);
+
+    // Seulement id + titre (+ durée), pour construire les index en mémoire au démarrage
+    @Query("select f.id as id, f.titre as titre, f.duree as duree from Film f")
+    List<IdTitre> findAllTitres();
+
+    // Export : curseur côté serveur lu par blocs, le Stream doit être consommé puis fermé dans une transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select f from Film f order by f.id")
+    Stream<Film> streamAllOrderById();
+
+    interface IdTitre {
+        Long getId();
+        String getTitre();
+        Integer getDuree();
+    }
 }
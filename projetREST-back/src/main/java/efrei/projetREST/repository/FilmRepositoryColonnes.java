@@ -0,0 +1,42 @@
+package efrei.projetREST.repository;
+
+import jakarta.persistence.Tuple;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface FilmRepositoryColonnes {
+
+    enum ColonneFilm implements Colonne {
+        ID(Colonne.ID, "id"),
+        TITRE("titre", "titre"),
+        DUREE("duree", "duree"),
+        LANGUE("langue", "langue"),
+        REALISATEUR("realisateur", "realisateur"),
+        AGE_MIN("ageMin", "age_min"),
+        SOUS_TITRE("sousTitre", "sous_titre");
+
+        private final String champ;
+        private final String attribut;
+
+        ColonneFilm(String champ, String attribut) {
+            this.champ = champ;
+            this.attribut = attribut;
+        }
+
+        @Override
+        public String champ() {
+            return champ;
+        }
+
+        @Override
+        public String attribut() {
+            return attribut;
+        }
+    }
+
+    // Films d'id > apres, triés par id ; filtrés sur le titre (ilike) et/ou sur une liste d'ids quand ils sont non nuls.
+    // Seules les colonnes demandées sont lues, en Tuple : aucune entité, rien dans le contexte de persistance
+    List<Tuple> findColonnesApres(Set<ColonneFilm> colonnes, long apres, String titre, Collection<Long> ids, int limite);
+}
@@ -0,0 +1,49 @@
+package efrei.projetREST.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public class FilmRepositoryColonnesImpl implements FilmRepositoryColonnes {
+
+    private final EntityManager entityManager;
+
+    public FilmRepositoryColonnesImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Tuple> findColonnesApres(Set<ColonneFilm> colonnes, long apres, String titre, Collection<Long> ids,
+                                         int limite) {
+        StringBuilder jpql = new StringBuilder(Colonne.select("f", colonnes))
+                .append(" from Film f where f.id > :apres");
+        if (titre != null) {
+            // ilike (et non upper(titre) like upper(?)) : c'est ce que sert l'index trigrammes film_titre_trgm_idx ;
+            // % et _ saisis par le client sont des caractères du titre, pas des jokers
+            jpql.append(" and f.titre ilike concat('%', :titre, '%') escape '\\'");
+        }
+        if (ids != null) {
+            jpql.append(" and f.id in :ids");
+        }
+        jpql.append(" order by f.id");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("apres", apres)
+                .setMaxResults(limite);
+        if (titre != null) {
+            query.setParameter("titre", echapper(titre));
+        }
+        if (ids != null) {
+            query.setParameter("ids", ids);
+        }
+        return query.getResultList();
+    }
+
+    private static String echapper(String motif) {
+        return motif.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,18 +1,29 @@
 package efrei.projetREST.repository;
 
 import efrei.projetREST.entities.Film;
+import efrei.projetREST.entities.JourSemaine;
 import efrei.projetREST.entities.Programmation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProgrammationRepository extends JpaRepository<Programmation,Long> {
 
+    // Région du cache de requêtes (hibernate-cache.conf)
+    String REGION_CACHE = "programmations";
+
     @Query("""
     select distinct p.film
     from Programmation p
@@ -22,9 +33,104 @@ public interface ProgrammationRepository extends JpaRepository<Programmation,Lon
     List<Film> findFilmsByVilleAndTitreLike(@Param("ville") String ville, @Param("query") String query);
 
 
+    // Résultats en cache (région programmations), invalidés par Hibernate à chaque écriture sur programmation
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_CACHE)})
     List<Programmation> findByFilm_Id(Long filmId);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_CACHE)})
     List<Programmation> findByCinema_Id(Long cinemaId);
 
+    // Variantes pour les pages détail : le cinéma (resp. le film) est chargé dans la même requête
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_CACHE)})
+    @Query("select p from Programmation p join fetch p.cinema where p.film.id = :filmId order by p.id")
+    List<Programmation> findWithCinemaByFilmId(@Param("filmId") Long filmId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_CACHE)})
+    @Query("select p from Programmation p join fetch p.film where p.cinema.id = :cinemaId order by p.id")
+    List<Programmation> findWithFilmByCinemaId(@Param("cinemaId") Long cinemaId);
+
+    // Projections plates pour construire les index en mémoire au démarrage (aucune entité chargée)
+    @Query("""
+    select p.id as id, p.date_deb as dateDeb, p.date_fin as dateFin,
+           p.film.id as filmId, p.cinema.id as cinemaId
+    from Programmation p
+    where p.date_fin >= :depuis
+""")
+    List<ProgrammationPlate> findPlatesDepuis(@Param("depuis") LocalDate depuis);
+
+    @Query("""
+    select ch.programmation.id as programmationId, ch.jourSemaine as jour, ch.heureDebut as heureDebut
+    from CreneauHebdo ch
+    where ch.programmation.date_fin >= :depuis
+""")
+    List<CreneauPlat> findCreneauxPlatsDepuis(@Param("depuis") LocalDate depuis);
+
+    // Occupation d'un cinéma relue sous son verrou de publication (CreneauIndex) : une ligne par créneau
+    @Query("""
+    select p.id as programmationId, p.date_deb as dateDeb, p.date_fin as dateFin, f.duree as duree,
+           ch.jourSemaine as jour, ch.heureDebut as heureDebut
+    from CreneauHebdo ch join ch.programmation p join p.film f
+    where p.cinema.id = :cinemaId and p.date_fin >= :depuis
+""")
+    List<CreneauOccupe> findCreneauxOccupesDepuis(@Param("cinemaId") Long cinemaId, @Param("depuis") LocalDate depuis);
+
+    // Couples film/cinéma programmés, pour construire l'index des villes
+    @Query("select distinct p.film.id as filmId, p.cinema.id as cinemaId from Programmation p")
+    List<FilmCinema> findFilmCinemaIds();
+
+    // Export : une ligne par créneau (ou une seule, sans créneau), triées pour regrouper par programmation
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+    select p.id as id, p.film.id as filmId, p.cinema.id as cinemaId,
+           p.date_deb as dateDeb, p.date_fin as dateFin,
+           ch.jourSemaine as jour, ch.heureDebut as heureDebut
+    from Programmation p
+    left join CreneauHebdo ch on ch.programmation = p
+    order by p.id, ch.id
+""")
+    Stream<ProgrammationCreneauPlat> streamAvecCreneaux();
+
+    interface ProgrammationPlate {
+        Long getId();
+        LocalDate getDateDeb();
+        LocalDate getDateFin();
+        Long getFilmId();
+        Long getCinemaId();
+    }
+
+    interface FilmCinema {
+        Long getFilmId();
+        Long getCinemaId();
+    }
+
+    interface ProgrammationCreneauPlat {
+        Long getId();
+        Long getFilmId();
+        Long getCinemaId();
+        LocalDate getDateDeb();
+        LocalDate getDateFin();
+        JourSemaine getJour();
+        LocalTime getHeureDebut();
+    }
+
+    interface CreneauPlat {
+        Long getProgrammationId();
+        JourSemaine getJour();
+        LocalTime getHeureDebut();
+    }
+
+    interface CreneauOccupe extends CreneauPlat {
+        LocalDate getDateDeb();
+        LocalDate getDateFin();
+        Integer getDuree();
+    }
 
 }
@@ -2,20 +2,24 @@ package efrei.projetREST.service;
 
 import efrei.projetREST.entities.Utilisateur;
 import efrei.projetREST.repository.UtilisateurRepository;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 @Transactional
 @Service
 public class AuthService {
 
     private final UtilisateurRepository utilisateurRepository;
+    private final TokenService tokenService;
 
-    public AuthService(UtilisateurRepository utilisateurRepository) {
+    public AuthService(UtilisateurRepository utilisateurRepository, TokenService tokenService) {
         this.utilisateurRepository = utilisateurRepository;
+        this.tokenService = tokenService;
     }
 
-    @Transactional(readOnly = true)
+    // Pas en lecture seule : lu sur le primaire, un compte créé sur un autre nœud peut ne pas être encore sur le replica
     public LoginResponse login(LoginRequest req) {
         Utilisateur u = utilisateurRepository.findByEmail(req.email())
                 .orElseThrow(() -> new RuntimeException("Email ou mot de passe invalide"));
@@ -24,7 +28,7 @@ public class AuthService {
             throw new RuntimeException("Email ou mot de passe invalide");
         }
 
-        return new LoginResponse(u.getId(), u.getRole(), u.getEmail());
+        return new LoginResponse(u.getId(), u.getRole(), u.getEmail(), tokenService.emettre(u.getId(), u.getRole()));
     }
 
 
@@ -36,6 +40,11 @@ public class AuthService {
             throw new RuntimeException("Champs manquants");
         }
 
+        // le rôle donne le droit de publier : pas de valeur libre choisie par le client
+        if (!TokenService.ROLES.contains(req.role())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rôle inconnu : " + req.role());
+        }
+
         if (utilisateurRepository.existsByEmail(req.email())) {
             throw new RuntimeException("Email déjà utilisé");
         }
@@ -43,12 +52,12 @@ public class AuthService {
         Utilisateur u = new Utilisateur(req.email(), req.mdp(), req.role());
         u = utilisateurRepository.save(u);
 
-        return new RegisterResponse(u.getId(), u.getEmail(), u.getRole());
+        return new RegisterResponse(u.getId(), u.getEmail(), u.getRole(), tokenService.emettre(u.getId(), u.getRole()));
     }
 
     public record LoginRequest(String email, String mdp) {}
-    public record LoginResponse(Long userId, String role, String email) {}
+    public record LoginResponse(Long userId, String role, String email, String token) {}
 
     public record RegisterRequest(String email, String mdp, String role) {}
-    public record RegisterResponse(Long userId, String email, String role) {}
+    public record RegisterResponse(Long userId, String email, String role, String token) {}
 }
@@ -0,0 +1,187 @@
+package efrei.projetREST.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import efrei.projetREST.repository.CinemaRepositoryColonnes.ColonneCinema;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.CatalogueService.CinemaDetailsResponse;
+import efrei.projetREST.service.CatalogueService.CinemaLightResponse;
+import efrei.projetREST.service.CatalogueService.CursorPage;
+import efrei.projetREST.service.CatalogueService.FilmDetailsResponse;
+import efrei.projetREST.service.CatalogueService.FilmLightResponse;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.EvenementCatalogue;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Cache de lecture devant CatalogueService, invalidé de façon ciblée par les événements de l'Outbox,
+ * peu après le commit de chaque écriture de PublicationService.
+ * Les lectures passent ici hors transaction : un hit ne prend aucune connexion.
+ * Les mêmes événements vident la région de requêtes "programmations" du cache de second niveau Hibernate,
+ * local au nœud : sans eux, elle ne verrait les programmations écrites par un autre nœud qu'à expiration.
+ */
+@Component
+public class CatalogueCache {
+
+    // Clé de filmsParVille des listes sans filtre de ville
+    private static final String SANS_VILLE = "";
+
+    private final CatalogueService catalogueService;
+    private final org.hibernate.Cache cacheHibernate;
+
+    private final Cache<FilmsKey, CursorPage<FilmLightResponse>> films;
+    private final Cache<Long, FilmDetailsResponse> filmDetails;
+    private final Cache<Long, CinemaDetailsResponse> cinemaDetails;
+    private final Cache<PageKey, CursorPage<CinemaLightResponse>> cinemas;
+
+    // Clés de films en cache par ville repliée : un événement n'invalide que les listes de sa ville, sans parcourir
+    // tout le cache (une publication en masse envoie un événement par ligne). Une clé y est ajoutée après sa valeur,
+    // et retirée quand Caffeine l'évince (taille, TTL) ou quand on l'invalide
+    private final Map<String, Set<FilmsKey>> filmsParVille = new ConcurrentHashMap<>();
+
+    // Incrémentée à chaque invalidation : une valeur chargée avant ne doit pas rester en cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogueCache(CatalogueService catalogueService,
+                          EntityManagerFactory entityManagerFactory,
+                          MeterRegistry meterRegistry,
+                          @Value("${catalogue.cache.taille-max:10000}") long tailleMax,
+                          @Value("${catalogue.cache.ttl:10m}") Duration ttl) {
+        this.catalogueService = catalogueService;
+        this.cacheHibernate = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.films = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .<FilmsKey, CursorPage<FilmLightResponse>>evictionListener((k, v, cause) -> retirerCle(k))
+                .recordStats()
+                .build(), "catalogue.films");
+        this.filmDetails = creer(meterRegistry, "catalogue.filmDetails", tailleMax, ttl);
+        this.cinemaDetails = creer(meterRegistry, "catalogue.cinemaDetails", tailleMax, ttl);
+        this.cinemas = creer(meterRegistry, "catalogue.cinemas", tailleMax, ttl);
+    }
+
+    private static <K, V> Cache<K, V> creer(MeterRegistry registry, String nom, long tailleMax, Duration ttl) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, nom);
+    }
+
+    public CursorPage<FilmLightResponse> getFilms(String ville, String query, String after, Integer limit, String fields) {
+        Set<ColonneFilm> colonnes = CatalogueService.colonnes(fields, ColonneFilm.class);
+        FilmsKey key = new FilmsKey(normaliser(ville), normaliser(query), after, limit, colonnes);
+        return lire(films, key, () -> catalogueService.getFilms(ville, query, after, limit, colonnes), this::indexerCle);
+    }
+
+    public FilmDetailsResponse getFilmDetails(Long filmId) {
+        return lire(filmDetails, filmId, () -> catalogueService.getFilmDetails(filmId), k -> {});
+    }
+
+    public CinemaDetailsResponse getCinemaDetails(Long cinemaId) {
+        return lire(cinemaDetails, cinemaId, () -> catalogueService.getCinemaDetails(cinemaId), k -> {});
+    }
+
+    public CursorPage<CinemaLightResponse> getAllCinemas(String after, Integer limit, String fields) {
+        Set<ColonneCinema> colonnes = CatalogueService.colonnes(fields, ColonneCinema.class);
+        return lire(cinemas, new PageKey(after, limit, colonnes),
+                () -> catalogueService.getAllCinemas(after, limit, colonnes), k -> {});
+    }
+
+    private <K, V> V lire(Cache<K, V> cache, K key, Supplier<V> chargeur, Consumer<K> indexer) {
+        V valeur = cache.getIfPresent(key);
+        if (valeur != null) {
+            return valeur;
+        }
+
+        long avant = generation.get();
+        valeur = chargeur.get();
+        cache.put(key, valeur);
+        indexer.accept(key);
+        // une invalidation a eu lieu pendant le chargement : la valeur lue peut être antérieure au commit
+        if (generation.get() != avant) {
+            cache.invalidate(key);
+            if (key instanceof FilmsKey k) {
+                retirerCle(k);
+            }
+        }
+        return valeur;
+    }
+
+    // Événements distribués par l'Outbox après commit, écritures des autres nœuds comprises
+    @EventListener
+    public void onEvenement(EvenementCatalogue event) {
+        invalider(event);
+    }
+
+    private void invalider(EvenementCatalogue event) {
+        generation.incrementAndGet();
+        if (event instanceof FilmPublie e) {
+            // un nouveau film n'a pas encore de programmation : seules les listes sans ville changent
+            invaliderVille(SANS_VILLE);
+            filmDetails.invalidate(e.filmId());
+        } else if (event instanceof CinemaCree e) {
+            cinemas.invalidateAll();
+            cinemaDetails.invalidate(e.cinemaId());
+        } else if (event instanceof ProgrammationPubliee e) {
+            // avant nos entrées : un rechargement ne doit pas relire les anciens résultats dans la région Hibernate
+            cacheHibernate.evictQueryRegion(ProgrammationRepository.REGION_CACHE);
+            invaliderVille(Normalisation.plier(e.ville()));
+            filmDetails.invalidate(e.filmId());
+            cinemaDetails.invalidate(e.cinemaId());
+        }
+    }
+
+    // Les clés déjà retirées par l'événement précédent du même lot ne coûtent plus rien
+    private void invaliderVille(String ville) {
+        Set<FilmsKey> cles = filmsParVille.remove(ville);
+        if (cles != null) {
+            films.invalidateAll(cles);
+        }
+    }
+
+    // Ajout dans compute : jamais dans un ensemble qu'invaliderVille vient de retirer
+    private void indexerCle(FilmsKey key) {
+        filmsParVille.compute(ville(key), (v, cles) -> {
+            Set<FilmsKey> ensemble = cles != null ? cles : ConcurrentHashMap.newKeySet();
+            ensemble.add(key);
+            return ensemble;
+        });
+    }
+
+    private void retirerCle(FilmsKey key) {
+        filmsParVille.computeIfPresent(ville(key), (v, cles) -> cles.remove(key) && cles.isEmpty() ? null : cles);
+    }
+
+    private static String ville(FilmsKey key) {
+        return key.ville() == null ? SANS_VILLE : Normalisation.plier(key.ville());
+    }
+
+    private static String normaliser(String valeur) {
+        return valeur == null || valeur.isBlank() ? null : valeur.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // colonnes : EnumSet, égal quel que soit l'ordre des champs dans fields
+    private record FilmsKey(String ville, String query, String after, Integer limit, Set<ColonneFilm> colonnes) {}
+
+    private record PageKey(String after, Integer limit, Set<ColonneCinema> colonnes) {}
+}
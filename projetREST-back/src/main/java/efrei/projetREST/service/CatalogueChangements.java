@@ -0,0 +1,341 @@
+package efrei.projetREST.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import efrei.projetREST.service.Outbox.EvenementDistribue;
+import efrei.projetREST.service.Outbox.Position;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.EvenementCatalogue;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flux SSE /Catalogue/changes : un événement par film, cinéma ou programmation créé, d'id sa position dans l'outbox.
+ * Historique et abonnés ne sont modifiés que sur le thread de diffusion : une reprise (Last-Event-ID) reçoit
+ * l'historique puis la suite, sans trou ni doublon, ou "reset" s'il en manque.
+ * Les écrivains vident la file de chaque abonné (file-max) ; un abonné dont l'écriture dure plus que ecriture-max
+ * est déconnecté et son écrivain remplacé le temps qu'elle finisse : les clients bloqués ne retiennent pas les autres.
+ */
+@Service
+public class CatalogueChangements {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueChangements.class);
+
+    private static final Set<DataWithMediaType> BATTEMENT = SseEmitter.event().comment("").build();
+
+    private final Outbox outbox;
+    private final int historiqueMax;
+    private final int abonnesMax;
+    private final int fileMax;
+    private final long timeoutMillis;
+    private final long ecritureMaxNanos;
+    private final Counter coupes;
+
+    // Modifiés uniquement sur le thread de diffusion
+    private final Deque<Envoi> historique = new ArrayDeque<>();
+    private final Set<Abonne> abonnes = new LinkedHashSet<>();
+    // Plus récente position sortie de l'historique : une reprise antérieure a perdu des événements.
+    // null tant que rien n'en est sorti : c'est alors le départ de l'outbox, connu au démarrage de l'application
+    private Position perdueJusqua;
+
+    private final AtomicInteger nbAbonnes = new AtomicInteger();
+    private final ExecutorService diffusion = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("catalogue-changes").daemon().factory());
+    // Threads de plateforme : SseEmitter.send est synchronized, un thread virtuel bloqué dans l'écriture resterait épinglé.
+    // Un écrivain de plus par écriture bloquée (jusqu'à ce qu'elle se termine, au plus le délai d'écriture de Tomcat)
+    private final ThreadPoolExecutor ecrivains;
+
+    public CatalogueChangements(Outbox outbox,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalogue.changes.historique:1000}") int historiqueMax,
+                                @Value("${catalogue.changes.abonnes-max:10000}") int abonnesMax,
+                                @Value("${catalogue.changes.file-max:256}") int fileMax,
+                                @Value("${catalogue.changes.ecrivains:4}") int ecrivains,
+                                @Value("${catalogue.changes.timeout:30m}") Duration timeout,
+                                @Value("${catalogue.changes.ecriture-max:5s}") Duration ecritureMax) {
+        this.outbox = outbox;
+        this.historiqueMax = historiqueMax;
+        this.abonnesMax = abonnesMax;
+        this.fileMax = fileMax;
+        this.timeoutMillis = timeout.toMillis();
+        this.ecritureMaxNanos = ecritureMax.toNanos();
+        this.ecrivains = new ThreadPoolExecutor(ecrivains, ecrivains, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("catalogue-changes-envoi-", 0).daemon().factory());
+        Gauge.builder("catalogue.changes.abonnes", nbAbonnes, AtomicInteger::get)
+                .description("Connexions ouvertes sur /Catalogue/changes")
+                .register(meterRegistry);
+        this.coupes = Counter.builder("catalogue.changes.abonnes.coupes")
+                .description("Abonnés déconnectés parce que leur file d'envoi était pleine ou leur écriture bloquée")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ouvre un flux. Avec dernierId (Last-Event-ID), les événements suivants encore dans l'historique
+     * sont renvoyés d'abord ; s'il en manque (historique dépassé, nœud redémarré, id illisible),
+     * un événement "reset" demande au client de recharger ses listes.
+     */
+    public SseEmitter abonner(String dernierId) {
+        if (nbAbonnes.incrementAndGet() > abonnesMax) {
+            nbAbonnes.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Trop d'abonnés au flux des changements");
+        }
+        Abonne abonne = new Abonne(new SseEmitter(timeoutMillis));
+        Runnable retirer = () -> diffusion.execute(() -> retirer(abonne));
+        abonne.emitter.onCompletion(retirer);
+        abonne.emitter.onTimeout(retirer);
+        abonne.emitter.onError(e -> retirer.run());
+
+        diffusion.execute(() -> {
+            abonnes.add(abonne);
+            if (dernierId != null && !dernierId.isBlank()) {
+                reprendre(abonne, dernierId);
+            }
+        });
+        return abonne.emitter;
+    }
+
+    private void reprendre(Abonne abonne, String dernierId) {
+        Position derniere;
+        try {
+            derniere = Position.lire(dernierId);
+        } catch (IllegalArgumentException e) {
+            derniere = null;
+        }
+        Position perdue = perdueJusqua();
+        Position depuis = derniere;
+        // plus d'événements manqués que la file n'en tient : recharger coûte moins que les rejouer
+        if (derniere == null || perdue == null || derniere.compareTo(perdue) < 0
+                || historique.stream().filter(e -> e.position().compareTo(depuis) > 0).count() > fileMax) {
+            SseEmitter.SseEventBuilder reset = SseEmitter.event().name("reset").data("{}");
+            Position position = dernierPosition();
+            abonne.poster((position == null ? reset : reset.id(position.toString())).build(), false);
+            return;
+        }
+        for (Envoi envoi : historique) {
+            if (envoi.position().compareTo(derniere) > 0) {
+                abonne.poster(envoi.evenement(), false);
+            }
+        }
+    }
+
+    @EventListener
+    public void onEvenementDistribue(EvenementDistribue distribue) {
+        Changement changement = changement(distribue.evenement());
+        // construit une fois pour tous les abonnés (build() n'est pas rejouable sur le même builder)
+        Set<DataWithMediaType> evenement = SseEmitter.event()
+                .id(distribue.position().toString())
+                .name(changement.type())
+                .data(changement, MediaType.APPLICATION_JSON)
+                .build();
+        diffusion.execute(() -> {
+            historique.addLast(new Envoi(distribue.position(), evenement));
+            while (historique.size() > historiqueMax) {
+                perdueJusqua = historique.removeFirst().position();
+            }
+            diffuser(evenement);
+        });
+    }
+
+    // Commentaire SSE : garde la connexion ouverte derrière les proxys et détecte les clients partis
+    @Scheduled(fixedDelayString = "${catalogue.changes.battement:PT20S}")
+    public void battement() {
+        diffusion.execute(() -> diffuser(BATTEMENT));
+    }
+
+    // Écritures bloquées au-delà de ecriture-max : abonné déconnecté, un écrivain de plus pour les autres
+    @Scheduled(fixedDelayString = "PT1S")
+    public void surveiller() {
+        diffusion.execute(() -> {
+            List<Abonne> bloques = abonnes.stream().filter(Abonne::liberer).toList();
+            bloques.forEach(this::retirer);
+        });
+    }
+
+    private void diffuser(Set<DataWithMediaType> evenement) {
+        List<Abonne> lents = new ArrayList<>();
+        for (Abonne abonne : abonnes) {
+            if (!abonne.poster(evenement, true)) {
+                lents.add(abonne);
+            }
+        }
+        lents.forEach(this::retirer);
+    }
+
+    private void retirer(Abonne abonne) {
+        if (abonnes.remove(abonne)) {
+            nbAbonnes.decrementAndGet();
+        }
+    }
+
+    // ce qui précède le démarrage du nœud n'est pas dans son historique
+    private Position perdueJusqua() {
+        return perdueJusqua != null ? perdueJusqua : outbox.depart();
+    }
+
+    private Position dernierPosition() {
+        return historique.isEmpty() ? perdueJusqua() : historique.getLast().position();
+    }
+
+    static Changement changement(EvenementCatalogue evenement) {
+        if (evenement instanceof FilmPublie e) {
+            return new Changement("film", e.filmId(), null, null, null);
+        }
+        if (evenement instanceof CinemaCree e) {
+            return new Changement("cinema", e.cinemaId(), null, null, e.ville());
+        }
+        ProgrammationPubliee e = (ProgrammationPubliee) evenement;
+        return new Changement("programmation", e.programmationId(), e.filmId(), e.cinemaId(), e.ville());
+    }
+
+    private synchronized void redimensionner(int delta) {
+        int taille = ecrivains.getCorePoolSize() + delta;
+        if (delta > 0) {
+            ecrivains.setMaximumPoolSize(taille);
+            ecrivains.setCorePoolSize(taille);
+        } else {
+            ecrivains.setCorePoolSize(taille);
+            ecrivains.setMaximumPoolSize(taille);
+        }
+    }
+
+    @PreDestroy
+    public void fermer() {
+        diffusion.shutdownNow();
+        ecrivains.shutdownNow();
+    }
+
+    // type : film, cinema ou programmation (aussi nom de l'événement SSE) ; id de l'objet créé
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Changement(String type, Long id, Long filmId, Long cinemaId, String ville) {}
+
+    private record Envoi(Position position, Set<DataWithMediaType> evenement) {}
+
+    // Connexion d'un abonné et sa file d'envoi, vidée par un écrivain à la fois ; accès sous le verrou de l'abonné
+    private final class Abonne {
+
+        private final SseEmitter emitter;
+        private final Deque<Set<DataWithMediaType>> file = new ArrayDeque<>();
+        private boolean enCours;
+        private boolean ferme;
+        // Début de l'écriture en cours (System.nanoTime), 0 sans écriture ; bloque : son écrivain a été remplacé
+        private long ecritureDepuis;
+        private boolean bloque;
+
+        Abonne(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // false : abonné fermé (client parti, ou file pleine avec borne), à retirer
+        synchronized boolean poster(Set<DataWithMediaType> evenement, boolean borne) {
+            if (ferme) {
+                return false;
+            }
+            if (borne && file.size() >= fileMax) {
+                couper(fileMax + " événements en attente");
+                // complete() attend la fin de l'écriture en cours : faite par l'écrivain qui la termine, sinon par un autre
+                if (!enCours) {
+                    ecrivains.execute(emitter::complete);
+                }
+                return false;
+            }
+            file.addLast(evenement);
+            if (!enCours) {
+                enCours = true;
+                ecrivains.execute(this::vider);
+            }
+            return true;
+        }
+
+        // true : écriture bloquée depuis plus de ecriture-max, abonné coupé et son écrivain remplacé
+        synchronized boolean liberer() {
+            if (ferme || ecritureDepuis == 0 || System.nanoTime() - ecritureDepuis < ecritureMaxNanos) {
+                return false;
+            }
+            couper("écriture bloquée depuis plus de " + TimeUnit.NANOSECONDS.toMillis(ecritureMaxNanos) + " ms");
+            bloque = true;
+            redimensionner(1);
+            return true;
+        }
+
+        private void couper(String raison) {
+            ferme = true;
+            file.clear();
+            coupes.increment();
+            log.info("Abonné à /Catalogue/changes trop lent ({}), déconnecté", raison);
+        }
+
+        private void vider() {
+            while (true) {
+                Set<DataWithMediaType> evenement;
+                synchronized (this) {
+                    evenement = ferme ? null : file.pollFirst();
+                    if (evenement == null) {
+                        enCours = false;
+                        if (!ferme) {
+                            return;
+                        }
+                    } else {
+                        ecritureDepuis = System.nanoTime();
+                    }
+                }
+                if (evenement == null) {
+                    // coupé pendant l'écriture qui vient de finir
+                    emitter.complete();
+                    return;
+                }
+                try {
+                    emitter.send(evenement);
+                } catch (IOException | IllegalStateException e) {
+                    // client parti ou flux déjà terminé
+                    synchronized (this) {
+                        ferme = true;
+                        file.clear();
+                        enCours = false;
+                    }
+                    emitter.completeWithError(e);
+                    diffusion.execute(() -> retirer(this));
+                    return;
+                } finally {
+                    boolean remplace;
+                    synchronized (this) {
+                        ecritureDepuis = 0;
+                        remplace = bloque;
+                        bloque = false;
+                    }
+                    if (remplace) {
+                        redimensionner(-1);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package efrei.projetREST.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import efrei.projetREST.entities.Cinema;
+import efrei.projetREST.entities.Film;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.repository.ProgrammationRepository.ProgrammationCreneauPlat;
+import efrei.projetREST.service.CatalogueService.CinemaLightResponse;
+import efrei.projetREST.service.CatalogueService.CreneauDto;
+import efrei.projetREST.service.CatalogueService.FilmLightResponse;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Export complet du catalogue en NDJSON (une ligne {"type": ..., "data": ...} par film, cinéma, programmation).
+ * Chaque table est lue par un curseur base de données et chaque ligne est écrite dès qu'elle est lue :
+ * la mémoire utilisée ne dépend pas de la taille du catalogue.
+ * Les trois lectures se font dans une transaction REPEATABLE READ : un même instantané pour toute la réponse,
+ * pas de programmation dont le film ou le cinéma serait absent de l'export.
+ * La transaction garde une connexion du pool tant que le client lit : au-delà de catalogue.export.duree-max
+ * l'export est interrompu et la connexion rendue (un client qui ne lit plus est coupé par
+ * spring.mvc.async.request-timeout). Un long instantané retient aussi le nettoyage (vacuum) de PostgreSQL.
+ */
+@Service
+public class CatalogueExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueExportService.class);
+
+    // Envoi sur le réseau à chaque bloc lu en base (même valeur que le fetch size des requêtes d'export)
+    private static final int LIGNES_PAR_ENVOI = 500;
+
+    private final FilmRepository filmRepository;
+    private final CinemaRepository cinemaRepository;
+    private final ProgrammationRepository programmationRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final long dureeMaxNanos;
+
+    public CatalogueExportService(FilmRepository filmRepository,
+                                  CinemaRepository cinemaRepository,
+                                  ProgrammationRepository programmationRepository,
+                                  EntityManager entityManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${catalogue.export.duree-max:10m}") Duration dureeMax) {
+        this.filmRepository = filmRepository;
+        this.cinemaRepository = cinemaRepository;
+        this.programmationRepository = programmationRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.dureeMaxNanos = dureeMax.toNanos();
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exporter(OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        Sortie sortie = new Sortie(json, System.nanoTime() + dureeMaxNanos);
+
+        try (Stream<Film> films = filmRepository.streamAllOrderById()) {
+            for (Iterator<Film> it = films.iterator(); it.hasNext(); ) {
+                Film f = it.next();
+                ecrire(sortie, "film", new FilmLightResponse(f.getId(), f.getTitre(), f.getDuree(), f.getLangue(),
+                        f.getRealisateur(), f.getAge_min(), f.getSous_titre()));
+                entityManager.detach(f);
+            }
+        }
+
+        try (Stream<Cinema> cinemas = cinemaRepository.streamAllOrderById()) {
+            for (Iterator<Cinema> it = cinemas.iterator(); it.hasNext(); ) {
+                Cinema c = it.next();
+                ecrire(sortie, "cinema", new CinemaLightResponse(c.getId(), c.getNom(), c.getAdresse(), c.getVille(),
+                        c.getProprietaire().getId()));
+                entityManager.detach(c);
+            }
+        }
+
+        // les lignes arrivent triées par programmation : on regroupe ses créneaux au fil de l'eau
+        try (Stream<ProgrammationCreneauPlat> lignes = programmationRepository.streamAvecCreneaux()) {
+            ProgrammationExport courante = null;
+            for (Iterator<ProgrammationCreneauPlat> it = lignes.iterator(); it.hasNext(); ) {
+                ProgrammationCreneauPlat l = it.next();
+                if (courante == null || !courante.id().equals(l.getId())) {
+                    if (courante != null) {
+                        ecrire(sortie, "programmation", courante);
+                    }
+                    courante = new ProgrammationExport(l.getId(), l.getFilmId(), l.getCinemaId(),
+                            l.getDateDeb(), l.getDateFin(), new ArrayList<>(3));
+                }
+                if (l.getJour() != null) {
+                    courante.creneaux().add(new CreneauDto(l.getJour(), l.getHeureDebut()));
+                }
+            }
+            if (courante != null) {
+                ecrire(sortie, "programmation", courante);
+            }
+        }
+
+        json.flush();
+    }
+
+    private void ecrire(Sortie sortie, String type, Object data) throws IOException {
+        writer.writeValue(sortie.json, new Ligne(type, data));
+        sortie.json.writeRaw('\n');
+        if (++sortie.lignes % LIGNES_PAR_ENVOI == 0) {
+            sortie.json.flush();
+            // la réponse est commencée : plus de statut d'erreur possible, on coupe le flux
+            if (System.nanoTime() - sortie.echeance > 0) {
+                log.warn("Export interrompu après {} lignes : durée maximale dépassée", sortie.lignes);
+                throw new IOException("Export interrompu : durée maximale dépassée");
+            }
+        }
+    }
+
+    public record ProgrammationExport(
+            Long id,
+            Long filmId,
+            Long cinemaId,
+            LocalDate dateDeb,
+            LocalDate dateFin,
+            List<CreneauDto> creneaux
+    ) {}
+
+    private record Ligne(String type, Object data) {}
+
+    private static final class Sortie {
+        final JsonGenerator json;
+        final long echeance;
+        long lignes;
+
+        Sortie(JsonGenerator json, long echeance) {
+            this.json = json;
+            this.echeance = echeance;
+        }
+    }
+}
@@ -1,67 +1,96 @@
 package efrei.projetREST.service;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import efrei.projetREST.entities.Cinema;
 import efrei.projetREST.entities.CreneauHebdo;
 import efrei.projetREST.entities.Film;
 import efrei.projetREST.entities.Programmation;
 import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CinemaRepositoryColonnes.ColonneCinema;
+import efrei.projetREST.repository.Colonne;
 import efrei.projetREST.repository.CreneauHebdoRepository;
 import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
 import efrei.projetREST.repository.ProgrammationRepository;
+import jakarta.persistence.Tuple;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @Transactional(readOnly = true)
 public class CatalogueService {
 
+    public static final int LIMITE_DEFAUT = 50;
+    public static final int LIMITE_MAX = 200;
+    // Filtre Jackson des listes : par défaut tous les champs (WebConfig), les champs de fields= sinon
+    public static final String FILTRE_CHAMPS = "champs";
+
+    // Avec un filtre sur le titre, les ids de la ville sont essayés par lots de cette taille
+    private static final int LOT_VILLE = 500;
+
     private final ProgrammationRepository programmationRepository;
     private final FilmRepository filmRepository;
     private final CreneauHebdoRepository creneauHebdoRepository;
     private final CinemaRepository cinemaRepository;
+    private final VilleIndex villeIndex;
 
     public CatalogueService(ProgrammationRepository programmationRepository,
                             FilmRepository filmRepository,
-                            CreneauHebdoRepository creneauHebdoRepository,CinemaRepository cinemaRepository ) {
+                            CreneauHebdoRepository creneauHebdoRepository,CinemaRepository cinemaRepository,
+                            VilleIndex villeIndex) {
         this.programmationRepository = programmationRepository;
         this.filmRepository = filmRepository;
         this.creneauHebdoRepository = creneauHebdoRepository;
         this.cinemaRepository = cinemaRepository;
+        this.villeIndex = villeIndex;
     }
 
-    public List<FilmLightResponse> getFilms(String ville, String query) {
+    public CursorPage<FilmLightResponse> getFilms(String ville, String query, String after, Integer limit,
+                                                  Set<ColonneFilm> colonnes) {
 
-        List<Film> films;
+        List<Tuple> films;
 
         boolean hasVille = ville != null && !ville.isBlank();
         boolean hasQuery = query != null && !query.isBlank();
 
+        long apres = decoderCurseur(after);
+        int taille = limiter(limit);
+
+        // une ligne de plus que demandé pour savoir s'il existe une page suivante
         if (hasVille) {
-            films = programmationRepository.findFilmsByVilleAndTitreLike(
-                    ville.trim(),
-                    hasQuery ? query.trim() : ""
-            );
-        } else if (hasQuery) {
-            films = filmRepository.findByTitreContainingIgnoreCase(query.trim());
+            films = filmsDeLaVille(ville, hasQuery ? query.trim() : null, apres, taille + 1, colonnes);
         } else {
-            films = filmRepository.findAll();
+            films = filmRepository.findColonnesApres(colonnes, apres, hasQuery ? query.trim() : null, null, taille + 1);
         }
 
-        return films.stream()
+        List<FilmLightResponse> items = films.stream()
+                .limit(taille)
                 .map(f -> new FilmLightResponse(
-                        f.getId(),
-                        f.getTitre(),
-                        f.getDuree(),
-                        f.getLangue(),
-                        f.getRealisateur(),
-                        f.getAge_min(),
-                        f.getSous_titre()
+                        f.get(Colonne.ID, Long.class),
+                        valeur(f, colonnes, ColonneFilm.TITRE, String.class),
+                        valeur(f, colonnes, ColonneFilm.DUREE, Integer.class),
+                        valeur(f, colonnes, ColonneFilm.LANGUE, String.class),
+                        valeur(f, colonnes, ColonneFilm.REALISATEUR, String.class),
+                        valeur(f, colonnes, ColonneFilm.AGE_MIN, Integer.class),
+                        valeur(f, colonnes, ColonneFilm.SOUS_TITRE, String.class)
                 ))
                 .toList();
+
+        return new CursorPage<>(items, curseurSuivant(films.size() > taille, items, FilmLightResponse::id));
     }
 
 
@@ -70,25 +99,18 @@ public class CatalogueService {
         Film film = filmRepository.findById(filmId)
                 .orElseThrow(() -> new RuntimeException("Film introuvable"));
 
-        List<Programmation> progs = programmationRepository.findByFilm_Id(filmId);
-
-        List<ProgrammationDetails> progDtos = progs.stream().map(p -> {
-            List<CreneauHebdo> creneaux = creneauHebdoRepository.findByProgrammation_Id(p.getId());
+        List<Programmation> progs = programmationRepository.findWithCinemaByFilmId(filmId);
+        Map<Long, List<CreneauDto>> creneauxParProg = creneauxParProgrammation(progs);
 
-            List<CreneauDto> creneauDtos = creneaux.stream()
-                    .map(ch -> new CreneauDto(ch.getJourSemaine(), ch.getHeureDebut()))
-                    .toList();
-
-            return new ProgrammationDetails(
-                    p.getId(),
-                    p.getCinema().getNom(),
-                    p.getCinema().getAdresse(),
-                    p.getCinema().getVille(),
-                    p.getDate_deb(),
-                    p.getDate_fin(),
-                    creneauDtos
-            );
-        }).toList();
+        List<ProgrammationDetails> progDtos = progs.stream().map(p -> new ProgrammationDetails(
+                p.getId(),
+                p.getCinema().getNom(),
+                p.getCinema().getAdresse(),
+                p.getCinema().getVille(),
+                p.getDate_deb(),
+                p.getDate_fin(),
+                creneauxParProg.getOrDefault(p.getId(), List.of())
+        )).toList();
 
         return new FilmDetailsResponse(
                 film.getId(),
@@ -102,30 +124,93 @@ public class CatalogueService {
         );
     }
 
-    public List<FilmLightResponse> getAllFilms() {
-        return filmRepository.findAll().stream()
-                .map(f -> new FilmLightResponse(
-                        f.getId(),
-                        f.getTitre(),
-                        f.getDuree(),
-                        f.getLangue(),
-                        f.getRealisateur(),
-                        f.getAge_min(),
-                        f.getSous_titre()
-                ))
-                .toList();
-    }
+    public CursorPage<CinemaLightResponse> getAllCinemas(String after, Integer limit, Set<ColonneCinema> colonnes) {
+        int taille = limiter(limit);
+
+        List<Tuple> cinemas = cinemaRepository.findColonnesApres(colonnes, decoderCurseur(after), taille + 1);
 
-    public List<CinemaLightResponse> getAllCinemas() {
-        return cinemaRepository.findAll().stream()
+        List<CinemaLightResponse> items = cinemas.stream()
+                .limit(taille)
                 .map(c -> new CinemaLightResponse(
-                        c.getId(),
-                        c.getNom(),
-                        c.getAdresse(),
-                        c.getVille(),
-                        c.getProprietaire().getId()
+                        c.get(Colonne.ID, Long.class),
+                        valeur(c, colonnes, ColonneCinema.NOM, String.class),
+                        valeur(c, colonnes, ColonneCinema.ADRESSE, String.class),
+                        valeur(c, colonnes, ColonneCinema.VILLE, String.class),
+                        valeur(c, colonnes, ColonneCinema.ID_PROPRIETAIRE, Long.class)
                 ))
                 .toList();
+
+        return new CursorPage<>(items, curseurSuivant(cinemas.size() > taille, items, CinemaLightResponse::id));
+    }
+
+    // Ids triés de la ville lus dans VilleIndex, films lus par id (plus de jointure programmation/cinéma)
+    private List<Tuple> filmsDeLaVille(String ville, String query, long apres, int n, Set<ColonneFilm> colonnes) {
+        List<Tuple> films = new ArrayList<>(n);
+        long curseur = apres;
+        while (films.size() < n) {
+            List<Long> ids = villeIndex.filmsApres(ville, curseur, query == null ? n - films.size() : LOT_VILLE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            films.addAll(filmRepository.findColonnesApres(colonnes, curseur, query, ids, ids.size()));
+            curseur = ids.get(ids.size() - 1);
+        }
+        return films.size() > n ? films.subList(0, n) : films;
+    }
+
+    // fields=titre,duree : champs renvoyés par les listes, l'id en plus (curseur) ; tous les champs sans fields
+    public static <C extends Enum<C> & Colonne> Set<C> colonnes(String fields, Class<C> type) {
+        EnumSet<C> toutes = EnumSet.allOf(type);
+        if (fields == null || fields.isBlank()) {
+            return toutes;
+        }
+        Map<String, C> parChamp = new HashMap<>();
+        toutes.forEach(c -> parChamp.put(c.champ(), c));
+
+        EnumSet<C> colonnes = EnumSet.of(parChamp.get(Colonne.ID));
+        for (String champ : fields.split(",")) {
+            C colonne = parChamp.get(champ.trim());
+            if (colonne == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Champ inconnu dans fields : " + champ.trim() + " (possibles : " + parChamp.keySet() + ")");
+            }
+            colonnes.add(colonne);
+        }
+        return colonnes;
+    }
+
+    private static <T> T valeur(Tuple ligne, Set<? extends Colonne> colonnes, Colonne colonne, Class<T> type) {
+        return colonnes.contains(colonne) ? ligne.get(colonne.champ(), type) : null;
+    }
+
+    private static int limiter(Integer limit) {
+        if (limit == null) {
+            return LIMITE_DEFAUT;
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit doit être >= 1");
+        }
+        return Math.min(limit, LIMITE_MAX);
+    }
+
+    // Le curseur est opaque pour le client : c'est l'id du dernier élément renvoyé, encodé en base64url
+    private static long decoderCurseur(String after) {
+        if (after == null || after.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(after), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Curseur invalide");
+        }
+    }
+
+    private static <T> String curseurSuivant(boolean pageSuivante, List<T> items, Function<T, Long> id) {
+        if (!pageSuivante || items.isEmpty()) {
+            return null;
+        }
+        String dernierId = String.valueOf(id.apply(items.get(items.size() - 1)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(dernierId.getBytes(StandardCharsets.US_ASCII));
     }
 
     public record FilmDetailsResponse(
@@ -144,16 +229,11 @@ public class CatalogueService {
         Cinema cinema = cinemaRepository.findById(cinemaId)
                 .orElseThrow(() -> new RuntimeException("Cinéma introuvable"));
 
-        List<Programmation> progs = programmationRepository.findByCinema_Id(cinemaId);
+        List<Programmation> progs = programmationRepository.findWithFilmByCinemaId(cinemaId);
+        Map<Long, List<CreneauDto>> creneauxParProg = creneauxParProgrammation(progs);
 
         List<ProgrammationCinemaDetails> progDtos = progs.stream().map(p -> {
 
-            List<CreneauHebdo> creneaux = creneauHebdoRepository.findByProgrammation_Id(p.getId());
-
-            List<CreneauDto> creneauDtos = creneaux.stream()
-                    .map(ch -> new CreneauDto(ch.getJourSemaine(), ch.getHeureDebut()))
-                    .toList();
-
             Film film = p.getFilm();
 
             return new ProgrammationCinemaDetails(
@@ -167,7 +247,7 @@ public class CatalogueService {
                     film.getSous_titre(),
                     p.getDate_deb(),
                     p.getDate_fin(),
-                    creneauDtos
+                    creneauxParProg.getOrDefault(p.getId(), List.of())
             );
         }).toList();
 
@@ -181,7 +261,21 @@ public class CatalogueService {
         );
     }
 
+    // Charge les créneaux de toutes les programmations en une requête, puis les regroupe par programmation
+    private Map<Long, List<CreneauDto>> creneauxParProgrammation(List<Programmation> progs) {
+        if (progs.isEmpty()) {
+            return Map.of();
+        }
 
+        List<Long> ids = progs.stream().map(Programmation::getId).toList();
+
+        Map<Long, List<CreneauDto>> parProg = new HashMap<>();
+        for (CreneauHebdo ch : creneauHebdoRepository.findByProgrammationIds(ids)) {
+            parProg.computeIfAbsent(ch.getProgrammation().getId(), k -> new ArrayList<>())
+                    .add(new CreneauDto(ch.getJourSemaine(), ch.getHeureDebut()));
+        }
+        return parProg;
+    }
 
 
     public record ProgrammationDetails(
@@ -199,6 +293,14 @@ public class CatalogueService {
             LocalTime heureDebut
     ) {}
 
+    public record CursorPage<T>(
+            List<T> items,
+            String nextCursor
+    ) {}
+
+    // Champs non demandés (fields=) absents du JSON : filtre FILTRE_CHAMPS posé par CatalogueController,
+    // qui écrit tous les champs (null compris) quand fields est absent
+    @JsonFilter(FILTRE_CHAMPS)
     public record FilmLightResponse(
             Long id,
             String titre,
@@ -209,6 +311,7 @@ public class CatalogueService {
             String sousTitre
     ) {}
 
+    @JsonFilter(FILTRE_CHAMPS)
     public record CinemaLightResponse(
             Long id,
             String nom,
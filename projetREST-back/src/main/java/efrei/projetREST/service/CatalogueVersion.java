@@ -0,0 +1,56 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.service.Outbox.EvenementDistribue;
+import efrei.projetREST.service.Outbox.Repere;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version du catalogue, ETag des GET : position de la dernière ligne de l'outbox distribuée, la même sur tous
+ * les nœuds. Suffixe local ".n" tant que des écritures de ce nœud, appliquées au commit, ne sont pas distribuées.
+ */
+@Component
+public class CatalogueVersion {
+
+    private final Outbox outbox;
+
+    // Dernière ligne distribuée ; null jusqu'à la première, le repère est alors celui du démarrage de l'outbox
+    private volatile Repere distribue;
+    private final AtomicLong enAvance = new AtomicLong();
+
+    public CatalogueVersion(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    // Tous les événements, appliqués au commit ou distribués : EvenementDistribue suit aussitôt les seconds
+    @EventListener
+    public void onEvenement(PublicationService.EvenementCatalogue event) {
+        enAvance.incrementAndGet();
+    }
+
+    @EventListener
+    public synchronized void onEvenementDistribue(EvenementDistribue distribue) {
+        Repere repere = repere();
+        if (repere == null || distribue.position().compareTo(repere.position()) > 0) {
+            this.distribue = new Repere(distribue.position(), distribue.creeLe());
+        }
+        enAvance.set(0);
+    }
+
+    /** Version courante, null avant le démarrage de l'application (pas encore de repère dans l'outbox). */
+    public String version() {
+        Repere repere = repere();
+        if (repere == null) {
+            return null;
+        }
+        long n = enAvance.get();
+        return n == 0 ? repere.position().toString() : repere.position() + "." + n;
+    }
+
+    private Repere repere() {
+        Repere repere = distribue;
+        return repere != null ? repere : outbox.initial();
+    }
+}
@@ -0,0 +1,476 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Occupation hebdomadaire de chaque cinéma (une salle par cinéma) : chaque créneau occupe
+ * [heure de début, + durée du film[ le même jour de chaque semaine entre date_deb et date_fin.
+ * Sert à refuser une programmation qui chevauche une séance existante et à lister les plages libres.
+ * Les plages sont rangées par minute de début dans la semaine, comme les séances de SeanceIndex :
+ * un chevauchement se cherche entre (début - durée max) et la fin, sans parcourir tout le cinéma.
+ * Chaque nœud a son index, chargé au démarrage puis tenu à jour par les ProgrammationPubliee de l'outbox.
+ * La publication verrouille le cinéma en base et passe sa version (cinema.version_programmations) à synchroniser :
+ * l'index ne relit le cinéma que s'il n'a pas reçu toutes les programmations publiées par les autres nœuds.
+ */
+@Component
+public class CreneauIndex {
+
+    static final int JOUR = 24 * 60;
+    static final int SEMAINE = 7 * JOUR;
+    private static final long INCONNUE = -1;
+
+    private final ProgrammationRepository programmationRepository;
+    private final FilmRepository filmRepository;
+    private final CinemaRepository cinemaRepository;
+    private final ZoneId fuseau;
+    private final int ouverture;
+    private final int fermeture;
+
+    private final Map<Long, Planning> plannings = new ConcurrentHashMap<>();
+    // Durée de chaque film, pour les programmations publiées par les autres nœuds
+    private final Map<Long, Integer> durees = new ConcurrentHashMap<>();
+
+    public CreneauIndex(ProgrammationRepository programmationRepository,
+                        FilmRepository filmRepository,
+                        CinemaRepository cinemaRepository,
+                        @Value("${catalogue.seances.fuseau:Europe/Paris}") ZoneId fuseau,
+                        @Value("${catalogue.creneaux.ouverture:10:00}") LocalTime ouverture,
+                        @Value("${catalogue.creneaux.fermeture:00:00}") LocalTime fermeture) {
+        this.programmationRepository = programmationRepository;
+        this.filmRepository = filmRepository;
+        this.cinemaRepository = cinemaRepository;
+        this.fuseau = fuseau;
+        this.ouverture = minutes(ouverture);
+        // une fermeture avant l'ouverture est le lendemain (00:00, 01:30...)
+        this.fermeture = minutes(fermeture) + (fermeture.isAfter(ouverture) ? 0 : JOUR);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construire() {
+        // versions lues avant les programmations : une programmation commitée entre les deux fait relire le cinéma
+        cinemaRepository.findAllVersionsProgrammations().forEach(c -> {
+            Planning planning = planning(c.getId());
+            synchronized (planning) {
+                planning.version = c.getVersion();
+            }
+        });
+
+        filmRepository.findAllTitres().forEach(f -> durees.put(f.getId(), f.getDuree() == null ? 0 : f.getDuree()));
+
+        LocalDate aujourdhui = LocalDate.now(fuseau);
+        Map<Long, List<CreneauInput>> creneaux = new HashMap<>();
+        programmationRepository.findCreneauxPlatsDepuis(aujourdhui).forEach(ch -> creneaux
+                .computeIfAbsent(ch.getProgrammationId(), k -> new ArrayList<>(3))
+                .add(new CreneauInput(ch.getJour(), ch.getHeureDebut())));
+
+        programmationRepository.findPlatesDepuis(aujourdhui).forEach(p -> planning(p.getCinemaId()).ajouter(
+                new Reservation(p.getId(), p.getCinemaId(), p.getDateDeb(), p.getDateFin(),
+                        durees.getOrDefault(p.getFilmId(), 0), creneaux.getOrDefault(p.getId(), List.of()))));
+    }
+
+    @EventListener
+    public void onCinemaCree(CinemaCree event) {
+        planning(event.cinemaId());
+    }
+
+    @EventListener
+    public void onFilmPublie(FilmPublie event) {
+        durees.put(event.filmId(), event.duree() == null ? 0 : event.duree());
+    }
+
+    // Idempotent : une programmation déjà réservée (publiée ici, ou déjà reçue) n'est pas ajoutée deux fois.
+    // La version n'avance que d'une unité : après un trou, le cinéma sera relu à la prochaine publication
+    @EventListener
+    public void onProgrammationPubliee(ProgrammationPubliee event) {
+        Planning planning = planning(event.cinemaId());
+        synchronized (planning) {
+            if (!event.dateFin().isBefore(LocalDate.now(fuseau)) && !planning.contient(event.programmationId())) {
+                planning.ajouter(new Reservation(event.programmationId(), event.cinemaId(), event.dateDeb(),
+                        event.dateFin(), duree(event.filmId()), event.creneaux()));
+            }
+            if (event.versionCinema() != null && event.versionCinema() == planning.version + 1) {
+                planning.version = event.versionCinema();
+            }
+        }
+    }
+
+    /**
+     * À appeler sous le verrou de publication du cinéma, avant reserver, avec la version lue dans sa ligne :
+     * si l'index n'en est pas là (programmations d'autres nœuds pas encore reçues), l'occupation est relue en base.
+     */
+    public void synchroniser(Long cinemaId, long version) {
+        Planning planning = planning(cinemaId);
+        synchronized (planning) {
+            if (planning.version == version) {
+                return;
+            }
+        }
+        recharger(cinemaId, version);
+    }
+
+    private void recharger(Long cinemaId, long version) {
+        Map<Long, List<CreneauInput>> creneaux = new HashMap<>();
+        Map<Long, Reservation> reservations = new HashMap<>();
+        List<ProgrammationRepository.CreneauOccupe> lignes =
+                programmationRepository.findCreneauxOccupesDepuis(cinemaId, LocalDate.now(fuseau));
+        lignes.forEach(l -> creneaux.computeIfAbsent(l.getProgrammationId(), k -> new ArrayList<>(3))
+                .add(new CreneauInput(l.getJour(), l.getHeureDebut())));
+        lignes.forEach(l -> reservations.computeIfAbsent(l.getProgrammationId(), id -> new Reservation(id, cinemaId,
+                l.getDateDeb(), l.getDateFin(), l.getDuree() == null ? 0 : l.getDuree(), creneaux.get(id))));
+
+        Planning planning = planning(cinemaId);
+        synchronized (planning) {
+            planning.vider();
+            reservations.values().forEach(planning::ajouter);
+            planning.version = version;
+        }
+    }
+
+    /**
+     * Réserve les créneaux d'une programmation, ou lève un 409 si l'un d'eux chevauche une séance du cinéma.
+     * Vérification et ajout sont atomiques par cinéma. Dans une transaction, la réservation est retirée
+     * si elle est annulée ; hors transaction c'est à l'appelant d'appeler liberer.
+     */
+    public Reservation reserver(Long programmationId, Long cinemaId, LocalDate dateDeb, LocalDate dateFin,
+                                int duree, List<CreneauInput> creneaux) {
+        Reservation reservation = new Reservation(programmationId, cinemaId, dateDeb, dateFin, duree, creneaux);
+        Planning planning = planning(cinemaId);
+        synchronized (planning) {
+            // les créneaux d'une même programmation peuvent aussi se chevaucher (film qui finit après minuit)
+            Plage interne = conflitInterne(reservation.plages());
+            if (interne != null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Deux créneaux de la programmation se chevauchent le " + jour(interne));
+            }
+            Plage conflit = planning.premierConflit(reservation.plages());
+            if (conflit != null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Créneau du " + jour(conflit)
+                        + " déjà occupé par " + (conflit.reservation().programmationId() == null
+                        ? "une programmation en cours de publication"
+                        : "la programmation " + conflit.reservation().programmationId()));
+            }
+            planning.ajouter(reservation);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        liberer(reservation);
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    /** Donne son id à une réservation faite avant l'insert (publication en masse). */
+    public void lier(Reservation reservation, Long programmationId) {
+        Planning planning = planning(reservation.cinemaId());
+        synchronized (planning) {
+            reservation.programmationId = programmationId;
+            planning.indexer(reservation);
+        }
+    }
+
+    public void liberer(Reservation reservation) {
+        Planning planning = plannings.get(reservation.cinemaId());
+        if (planning != null) {
+            planning.retirer(reservation);
+        }
+    }
+
+    /**
+     * Plages de la semaine, entre ouverture et fermeture, où une programmation du..au ne chevaucherait
+     * aucune séance du cinéma ; seules celles d'au moins dureeMin minutes sont renvoyées.
+     */
+    public List<CreneauLibre> creneauxLibres(Long cinemaId, LocalDate du, LocalDate au, int dureeMin) {
+        Planning planning = plannings.get(cinemaId);
+        if (planning == null) {
+            // cinéma créé sur un autre nœud, dont l'événement n'est pas encore arrivé
+            if (!cinemaRepository.existsById(cinemaId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cinéma introuvable");
+            }
+            // relu sans verrou : version inconnue, la prochaine publication relira encore
+            recharger(cinemaId, INCONNUE);
+            planning = planning(cinemaId);
+        }
+        if (du == null || au == null || au.isBefore(du)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "du et au sont obligatoires, au >= du");
+        }
+
+        List<CreneauLibre> libres = new ArrayList<>();
+        for (JourSemaine jour : JourSemaine.values()) {
+            int ouvre = jour.ordinal() * JOUR + ouverture;
+            int ferme = jour.ordinal() * JOUR + fermeture;
+            // la fenêtre d'ouverture découpée comme une séance : mêmes morceaux, mêmes jours
+            List<Plage> fenetre = plages(null, ouvre, ferme, du, au);
+            if (!fenetre.get(0).tombe()) {
+                continue;
+            }
+
+            // plages occupées ramenées dans le repère de la fenêtre (minutes depuis l'ouverture)
+            List<int[]> occupees = new ArrayList<>();
+            synchronized (planning) {
+                int decalage = 0;
+                for (Plage morceau : fenetre) {
+                    for (Plage p : planning.chevauchant(morceau)) {
+                        occupees.add(new int[]{
+                                Math.max(p.debut(), morceau.debut()) - morceau.debut() + decalage,
+                                Math.min(p.fin(), morceau.fin()) - morceau.debut() + decalage});
+                    }
+                    decalage += morceau.fin() - morceau.debut();
+                }
+            }
+            occupees.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+            int curseur = 0;
+            int longueur = fermeture - ouverture;
+            for (int[] occupee : occupees) {
+                ajouterLibre(libres, jour, curseur, occupee[0], dureeMin);
+                curseur = Math.max(curseur, occupee[1]);
+            }
+            ajouterLibre(libres, jour, curseur, longueur, dureeMin);
+        }
+        return libres;
+    }
+
+    // Les programmations terminées ne peuvent plus entrer en conflit
+    @Scheduled(cron = "0 1 0 * * *", zone = "${catalogue.seances.fuseau:Europe/Paris}")
+    public void purger() {
+        LocalDate aujourdhui = LocalDate.now(fuseau);
+        plannings.values().forEach(planning -> planning.purger(aujourdhui));
+    }
+
+    private void ajouterLibre(List<CreneauLibre> libres, JourSemaine jour, int debut, int fin, int dureeMin) {
+        if (fin > debut && fin - debut >= dureeMin) {
+            libres.add(new CreneauLibre(jour, heure(ouverture + debut), heure(ouverture + fin), fin - debut));
+        }
+    }
+
+    private int duree(Long filmId) {
+        Integer duree = durees.get(filmId);
+        if (duree == null) {
+            duree = filmRepository.findById(filmId).map(f -> f.getDuree() == null ? 0 : f.getDuree()).orElse(0);
+            durees.put(filmId, duree);
+        }
+        return duree;
+    }
+
+    private Planning planning(Long cinemaId) {
+        return plannings.computeIfAbsent(cinemaId, k -> new Planning());
+    }
+
+    private static Plage conflitInterne(List<Plage> plages) {
+        for (int i = 0; i < plages.size(); i++) {
+            for (int j = i + 1; j < plages.size(); j++) {
+                if (plages.get(i).chevauche(plages.get(j))) {
+                    return plages.get(j);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Morceaux d'une occupation hebdomadaire [debut, fin[ (minutes depuis lundi 00:00) coupés à minuit :
+     * chaque morceau tient dans une journée, ses dates sont décalées d'autant de jours que le morceau
+     * est après le début (une séance du dimanche 23:00 occupe le lundi suivant).
+     */
+    private static List<Plage> plages(Reservation reservation, int debut, int fin, LocalDate du, LocalDate au) {
+        List<Plage> plages = new ArrayList<>(2);
+        for (int d = debut; d < fin; d = (d / JOUR + 1) * JOUR) {
+            int decalage = d / JOUR - debut / JOUR;
+            plages.add(new Plage(reservation, d % SEMAINE, Math.min(fin, (d / JOUR + 1) * JOUR) - d + d % SEMAINE,
+                    du.plusDays(decalage), au.plusDays(decalage)));
+        }
+        return plages;
+    }
+
+    private static String jour(Plage plage) {
+        return JourSemaine.values()[plage.debut() / JOUR] + " " + heure(plage.debut());
+    }
+
+    private static int minutes(LocalTime heure) {
+        return heure.getHour() * 60 + heure.getMinute();
+    }
+
+    private static LocalTime heure(int minutes) {
+        return LocalTime.of(minutes % JOUR / 60, minutes % 60);
+    }
+
+    // Plages d'un cinéma rangées par minute de début dans la semaine ; accès sous le verrou du planning
+    private static final class Planning {
+
+        private final TreeMap<Integer, List<Plage>> parDebut = new TreeMap<>();
+        private final Map<Long, Reservation> parProgrammation = new HashMap<>();
+        private int dureeMax;
+        // version du cinéma dont l'index a toutes les programmations, INCONNUE s'il faut le relire
+        private long version = INCONNUE;
+
+        synchronized boolean contient(Long programmationId) {
+            return parProgrammation.containsKey(programmationId);
+        }
+
+        synchronized void indexer(Reservation reservation) {
+            if (reservation.programmationId() != null) {
+                parProgrammation.put(reservation.programmationId(), reservation);
+            }
+        }
+
+        synchronized Plage premierConflit(List<Plage> plages) {
+            for (Plage plage : plages) {
+                List<Plage> chevauchant = chevauchant(plage);
+                if (!chevauchant.isEmpty()) {
+                    return chevauchant.get(0);
+                }
+            }
+            return null;
+        }
+
+        // Plages qui chevauchent celle-ci : début dans [début - durée max, fin[, puis vérification exacte
+        synchronized List<Plage> chevauchant(Plage plage) {
+            List<Plage> chevauchant = new ArrayList<>();
+            parDebut.subMap(plage.debut() - dureeMax, true, plage.fin(), false).values()
+                    .forEach(liste -> liste.stream().filter(plage::chevauche).forEach(chevauchant::add));
+            return chevauchant;
+        }
+
+        synchronized void ajouter(Reservation reservation) {
+            for (Plage plage : reservation.plages()) {
+                parDebut.computeIfAbsent(plage.debut(), k -> new ArrayList<>(1)).add(plage);
+                dureeMax = Math.max(dureeMax, plage.fin() - plage.debut());
+            }
+            indexer(reservation);
+        }
+
+        synchronized void vider() {
+            parDebut.clear();
+            parProgrammation.clear();
+            dureeMax = 0;
+        }
+
+        synchronized void retirer(Reservation reservation) {
+            for (Plage plage : reservation.plages()) {
+                List<Plage> liste = parDebut.get(plage.debut());
+                if (liste != null) {
+                    liste.removeIf(p -> p.reservation() == reservation);
+                    if (liste.isEmpty()) {
+                        parDebut.remove(plage.debut());
+                    }
+                }
+            }
+            if (reservation.programmationId() != null) {
+                parProgrammation.remove(reservation.programmationId(), reservation);
+            }
+        }
+
+        synchronized void purger(LocalDate aujourdhui) {
+            parDebut.values().forEach(liste -> liste.removeIf(p -> p.au().isBefore(aujourdhui)));
+            parDebut.values().removeIf(List::isEmpty);
+            parProgrammation.values().removeIf(r -> r.plages().stream().allMatch(p -> p.au().isBefore(aujourdhui)));
+        }
+    }
+
+    /**
+     * Programmation réservée dans l'index ; programmationId est null pour une publication en masse
+     * pas encore insérée, puis donné par lier.
+     */
+    public static final class Reservation {
+
+        // modifié sous le verrou du planning
+        private volatile Long programmationId;
+        private final Long cinemaId;
+        private final List<Plage> plages;
+
+        Reservation(Long programmationId, Long cinemaId, LocalDate dateDeb, LocalDate dateFin,
+                    int duree, List<CreneauInput> creneaux) {
+            this.programmationId = programmationId;
+            this.cinemaId = cinemaId;
+            List<Plage> plages = new ArrayList<>(creneaux.size() * 2);
+            for (CreneauInput c : creneaux) {
+                int debut = c.jour().ordinal() * JOUR + minutes(c.heureDebut());
+                // un jour de la semaine qui ne tombe jamais dans la période n'occupe rien
+                CreneauIndex.plages(this, debut, debut + Math.max(duree, 1), dateDeb, dateFin).stream()
+                        .filter(Plage::tombe)
+                        .forEach(plages::add);
+            }
+            this.plages = List.copyOf(plages);
+        }
+
+        public Long programmationId() {
+            return programmationId;
+        }
+
+        public Long cinemaId() {
+            return cinemaId;
+        }
+
+        List<Plage> plages() {
+            return plages;
+        }
+    }
+
+    // Morceau d'occupation dans une seule journée : [debut, fin[ en minutes depuis lundi 00:00, les jours du..au
+    record Plage(Reservation reservation, int debut, int fin, LocalDate du, LocalDate au) {
+
+        // le jour de la semaine de ce morceau tombe-t-il au moins une fois entre du et au ?
+        boolean tombe() {
+            return tombeEntre(du, au);
+        }
+
+        // mêmes minutes le même jour, et ce jour de la semaine tombe dans les deux périodes à la fois
+        boolean chevauche(Plage autre) {
+            if (autre.debut >= fin || debut >= autre.fin) {
+                return false;
+            }
+            LocalDate premier = du.isAfter(autre.du) ? du : autre.du;
+            LocalDate dernier = au.isBefore(autre.au) ? au : autre.au;
+            return tombeEntre(premier, dernier);
+        }
+
+        private boolean tombeEntre(LocalDate premier, LocalDate dernier) {
+            if (dernier.isBefore(premier)) {
+                return false;
+            }
+            if (ChronoUnit.DAYS.between(premier, dernier) >= 6) {
+                return true;
+            }
+            LocalDate jour = premier.with(TemporalAdjusters.nextOrSame(SeanceIndex.jourSemaine(
+                    JourSemaine.values()[debut / JOUR])));
+            return !jour.isAfter(dernier);
+        }
+    }
+
+    // Plage libre : début le jour indiqué, fin éventuellement le lendemain (fermeture après minuit)
+    public record CreneauLibre(JourSemaine jour, LocalTime debut, LocalTime fin, int duree) {}
+}
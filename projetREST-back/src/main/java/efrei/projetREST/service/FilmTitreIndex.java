@@ -0,0 +1,233 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie en mémoire des titres de films pour l'autocomplétion.
+ * Chaque titre est replié (casse, accents) puis indexé à partir de chacun de ses mots,
+ * pour que "knight" propose aussi "The Dark Knight".
+ * Les suggestions sont classées par nombre de villes où le film est programmé (VilleIndex), puis du titre le plus
+ * court au plus long : chaque nœud connaît le plus grand poids de son sous-arbre, le parcours va au meilleur d'abord.
+ */
+@Component
+public class FilmTitreIndex {
+
+    // au-delà, un préfixe n'a plus besoin d'être distingué pour suggérer
+    private static final int LONGUEUR_MAX_INDEXEE = 40;
+
+    // Poids décroissant, puis ordre d'entrée dans la file : à poids égal, les nœuds les moins profonds d'abord
+    private static final Comparator<Candidat> MEILLEUR_D_ABORD = Comparator.comparingInt(Candidat::poids).reversed()
+            .thenComparingLong(Candidat::ordre);
+
+    private final FilmRepository filmRepository;
+    private final VilleIndex villeIndex;
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final Noeud racine = new Noeud();
+    private final Map<Long, Titre> titres = new ConcurrentHashMap<>();
+
+    public FilmTitreIndex(FilmRepository filmRepository, VilleIndex villeIndex) {
+        this.filmRepository = filmRepository;
+        this.villeIndex = villeIndex;
+    }
+
+    // Après VilleIndex, qui donne les poids
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void construire() {
+        filmRepository.findAllTitres().forEach(f -> ajouter(f.getId(), f.getTitre()));
+    }
+
+    @EventListener
+    public void onFilmPublie(PublicationService.FilmPublie event) {
+        ajouter(event.filmId(), event.titre());
+    }
+
+    // Après VilleIndex : le film vient peut-être d'arriver dans une ville de plus. Les poids ne font que monter
+    @EventListener
+    @Order(1)
+    public void onProgrammationPubliee(ProgrammationPubliee event) {
+        Titre titre = titres.get(event.filmId());
+        int poids = villeIndex.nbVilles(event.filmId());
+        if (titre == null || poids <= titre.poids) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            titre.poids = poids;
+            parcourirMots(titre.plie, (debut, fin) -> racine.relever(titre.plie, debut, fin, poids));
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public void ajouter(Long filmId, String titre) {
+        Titre nouveau = new Titre(titre, Normalisation.plier(titre));
+        if (titres.putIfAbsent(filmId, nouveau) != null) {
+            return;
+        }
+
+        verrou.writeLock().lock();
+        try {
+            nouveau.poids = villeIndex.nbVilles(filmId);
+            parcourirMots(nouveau.plie, (debut, fin) -> racine.inserer(nouveau.plie, debut, fin, filmId, nouveau.poids));
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Chaque mot du titre replié, jusqu'à LONGUEUR_MAX_INDEXEE caractères
+    private static void parcourirMots(String plie, Mot action) {
+        for (int debut = 0; debut < plie.length(); debut++) {
+            if (debut == 0 || plie.charAt(debut - 1) == ' ') {
+                action.accepter(debut, Math.min(plie.length(), debut + LONGUEUR_MAX_INDEXEE));
+            }
+        }
+    }
+
+    public List<FilmSuggestion> suggerer(String prefixe, int limite) {
+        String plie = Normalisation.plier(prefixe);
+        if (plie.isEmpty() || limite < 1) {
+            return List.of();
+        }
+        plie = plie.substring(0, Math.min(plie.length(), LONGUEUR_MAX_INDEXEE));
+
+        Set<Long> ids = new LinkedHashSet<>();
+        verrou.readLock().lock();
+        try {
+            Noeud noeud = racine.chercher(plie);
+            if (noeud != null) {
+                collecter(noeud, ids, limite);
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+
+        List<FilmSuggestion> suggestions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            suggestions.add(new FilmSuggestion(id, titres.get(id).titre));
+        }
+        return suggestions;
+    }
+
+    // Meilleur d'abord : un nœud sort de la file avant tout ce qui pèse moins que son sous-arbre
+    private void collecter(Noeud depart, Set<Long> ids, int limite) {
+        PriorityQueue<Candidat> file = new PriorityQueue<>(MEILLEUR_D_ABORD);
+        long ordre = 0;
+        file.add(new Candidat(depart.poidsMax, ordre++, depart, 0));
+        while (!file.isEmpty() && ids.size() < limite) {
+            Candidat candidat = file.poll();
+            if (candidat.noeud() == null) {
+                ids.add(candidat.film());
+                continue;
+            }
+            for (long film : candidat.noeud().films) {
+                file.add(new Candidat(titres.get(film).poids, ordre++, null, film));
+            }
+            for (Noeud enfant : candidat.noeud().enfants) {
+                file.add(new Candidat(enfant.poidsMax, ordre++, enfant, 0));
+            }
+        }
+    }
+
+    public record FilmSuggestion(Long id, String titre) {}
+
+    // Sous-arbre (noeud) ou film à suggérer
+    private record Candidat(int poids, long ordre, Noeud noeud, long film) {}
+
+    @FunctionalInterface
+    private interface Mot {
+        void accepter(int debut, int fin);
+    }
+
+    // poids modifié sous le verrou d'écriture
+    private static final class Titre {
+        final String titre;
+        final String plie;
+        int poids;
+
+        Titre(String titre, String plie) {
+            this.titre = titre;
+            this.plie = plie;
+        }
+    }
+
+    // Enfants triés dans des tableaux parallèles, peu d'objets par nœud ; poidsMax : plus grand poids du sous-arbre
+    private static final class Noeud {
+
+        private static final char[] AUCUNE_CLE = new char[0];
+        private static final Noeud[] AUCUN_ENFANT = new Noeud[0];
+        private static final long[] AUCUN_FILM = new long[0];
+
+        private char[] cles = AUCUNE_CLE;
+        private Noeud[] enfants = AUCUN_ENFANT;
+        private long[] films = AUCUN_FILM;
+        private int poidsMax;
+
+        void inserer(String texte, int debut, int fin, long filmId, int poids) {
+            Noeud noeud = relever(texte, debut, fin, poids);
+            noeud.films = Arrays.copyOf(noeud.films, noeud.films.length + 1);
+            noeud.films[noeud.films.length - 1] = filmId;
+        }
+
+        // Porte poids sur le chemin du texte (créé au besoin) et rend son dernier nœud
+        Noeud relever(String texte, int debut, int fin, int poids) {
+            Noeud noeud = this;
+            noeud.poidsMax = Math.max(noeud.poidsMax, poids);
+            for (int i = debut; i < fin; i++) {
+                noeud = noeud.enfant(texte.charAt(i));
+                noeud.poidsMax = Math.max(noeud.poidsMax, poids);
+            }
+            return noeud;
+        }
+
+        Noeud chercher(String prefixe) {
+            Noeud noeud = this;
+            for (int i = 0; i < prefixe.length() && noeud != null; i++) {
+                int pos = Arrays.binarySearch(noeud.cles, prefixe.charAt(i));
+                noeud = pos >= 0 ? noeud.enfants[pos] : null;
+            }
+            return noeud;
+        }
+
+        private Noeud enfant(char c) {
+            int pos = Arrays.binarySearch(cles, c);
+            if (pos >= 0) {
+                return enfants[pos];
+            }
+            int insertion = -pos - 1;
+            Noeud nouveau = new Noeud();
+
+            char[] nouvellesCles = new char[cles.length + 1];
+            System.arraycopy(cles, 0, nouvellesCles, 0, insertion);
+            nouvellesCles[insertion] = c;
+            System.arraycopy(cles, insertion, nouvellesCles, insertion + 1, cles.length - insertion);
+
+            Noeud[] nouveauxEnfants = new Noeud[enfants.length + 1];
+            System.arraycopy(enfants, 0, nouveauxEnfants, 0, insertion);
+            nouveauxEnfants[insertion] = nouveau;
+            System.arraycopy(enfants, insertion, nouveauxEnfants, insertion + 1, enfants.length - insertion);
+
+            cles = nouvellesCles;
+            enfants = nouveauxEnfants;
+            return nouveau;
+        }
+    }
+}
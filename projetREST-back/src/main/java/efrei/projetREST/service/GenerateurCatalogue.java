@@ -0,0 +1,404 @@
+package efrei.projetREST.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Jeu de données synthétique à grande échelle (profil "generation"), chargé par COPY dans une seule transaction,
+ * puis l'application s'arrête. Même graine et même base de départ : mêmes lignes.
+ * Répartition de Zipf (generation.asymetrie) sur les villes, films, acteurs et propriétaires. Les programmations
+ * d'un cinéma ne se chevauchent pas : au plus 8 par période de 4 semaines, sur generation.historique-semaines.
+ * Sans l'outbox : redémarrer les nœuds ensuite (voir le README).
+ *
+ *   java -jar projetREST.jar --spring.profiles.active=generation --generation.films=1000000 \
+ *       --generation.cinemas=20000 --generation.programmations=5000000
+ */
+@Component
+public class GenerateurCatalogue implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerateurCatalogue.class);
+
+    private static final String[] VILLES = {"Paris", "Marseille", "Lyon", "Toulouse", "Nice", "Nantes", "Montpellier",
+            "Strasbourg", "Bordeaux", "Lille", "Rennes", "Reims", "Toulon", "Grenoble", "Dijon", "Angers", "Nîmes",
+            "Clermont-Ferrand", "Le Havre", "Aix-en-Provence", "Brest", "Tours", "Amiens", "Limoges", "Annecy"};
+    private static final String[] ENSEIGNES = {"Pathé", "UGC", "CGR", "Mégarama", "Cinéma", "Le Régent", "Kinepolis",
+            "Studio", "Utopia", "Le Palace"};
+    private static final String[] RUES = {"rue de la République", "boulevard Victor Hugo", "avenue Jean Jaurès",
+            "place de la Gare", "rue du Port", "cours Gambetta", "rue Nationale", "quai des Arts"};
+    private static final String[] SUJETS = {"La Nuit", "Le Voyage", "Le Secret", "L'Ombre", "La Mémoire", "Le Retour",
+            "La Dernière Heure", "Le Silence", "La Promesse", "Le Mystère", "L'Héritage", "La Frontière", "Le Jardin",
+            "La Chute", "Le Rivage", "L'Étranger"};
+    private static final String[] COMPLEMENTS = {"du Loup", "des Étoiles", "d'Amélie", "de Minuit", "sous la Pluie",
+            "du Nord", "perdu", "des Ombres", "d'Hiver", "sans Fin", "de la Mer", "du Dragon", "interdit", "de Paris",
+            "en Orient", "des Sables"};
+    private static final String[] PRENOMS = {"Jean", "Marie", "Pierre", "Sophie", "Luc", "Claire", "Thomas", "Camille",
+            "Nicolas", "Julie", "Antoine", "Léa", "Hugo", "Emma", "Louis", "Chloé", "Paul", "Inès", "Gabriel", "Manon"};
+    private static final String[] NOMS = {"Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit",
+            "Durand", "Leroy", "Moreau", "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David", "Bertrand",
+            "Roux", "Vincent", "Fournier", "Morel", "Girard", "André", "Mercier", "Dupont", "Lambert", "Bonnet",
+            "François", "Martinez", "Legrand"};
+    // Pondérés par répétition
+    private static final String[] LANGUES = {"Français", "Français", "Français", "Français", "Anglais", "Anglais",
+            "Anglais", "Espagnol", "Japonais", "Italien", "Coréen", "Allemand"};
+    private static final String[] SOUS_TITRES = {"Aucun", "Aucun", "Français", "Français", "Anglais"};
+    private static final int[] AGES = {0, 0, 0, 10, 10, 12, 12, 16, 18};
+    private static final String[] HEURES = {"10:00:00", "13:30:00", "17:00:00", "20:30:00"};
+    private static final String[][] JOURS = {{"LUN", "MER", "VEN"}, {"MAR", "JEU", "SAM"}};
+    private static final int PLACES_PAR_PERIODE = HEURES.length * JOURS.length;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationContext context;
+    private final Environment environment;
+
+    private final long graine;
+    private final int nbUtilisateurs;
+    private final int nbVilles;
+    private final int nbCinemas;
+    private final int nbFilms;
+    private final int nbActeurs;
+    private final int acteursParFilm;
+    private final int nbProgrammations;
+    private final double asymetrie;
+    private final LocalDate debut;
+    private final int periodes;
+
+    public GenerateurCatalogue(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationContext context,
+                               Environment environment,
+                               @Value("${generation.graine:42}") long graine,
+                               @Value("${generation.utilisateurs:1000}") int nbUtilisateurs,
+                               @Value("${generation.villes:200}") int nbVilles,
+                               @Value("${generation.cinemas:2000}") int nbCinemas,
+                               @Value("${generation.films:100000}") int nbFilms,
+                               @Value("${generation.acteurs:50000}") int nbActeurs,
+                               @Value("${generation.acteurs-par-film:6}") int acteursParFilm,
+                               @Value("${generation.programmations:500000}") int nbProgrammations,
+                               @Value("${generation.asymetrie:1.0}") double asymetrie,
+                               @Value("${generation.debut:}") String debut,
+                               @Value("${generation.historique-semaines:156}") int historiqueSemaines) {
+        if (nbUtilisateurs < 2 || nbVilles < 1 || nbCinemas < 1 || nbFilms < 1 || nbActeurs < acteursParFilm * 2) {
+            throw new IllegalArgumentException("generation : au moins 2 utilisateurs, 1 ville, 1 cinéma, 1 film "
+                    + "et deux fois plus d'acteurs que generation.acteurs-par-film");
+        }
+        this.periodes = Math.max(1, (historiqueSemaines + 3) / 4);
+        if (nbProgrammations > (long) nbCinemas * periodes * PLACES_PAR_PERIODE) {
+            throw new IllegalArgumentException("generation : au plus " + periodes * PLACES_PAR_PERIODE
+                    + " programmations par cinéma sur " + historiqueSemaines + " semaines, augmenter generation.cinemas "
+                    + "ou generation.historique-semaines");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.context = context;
+        this.environment = environment;
+        this.graine = graine;
+        this.nbUtilisateurs = nbUtilisateurs;
+        this.nbVilles = nbVilles;
+        this.nbCinemas = nbCinemas;
+        this.nbFilms = nbFilms;
+        this.nbActeurs = nbActeurs;
+        this.acteursParFilm = acteursParFilm;
+        this.nbProgrammations = nbProgrammations;
+        this.asymetrie = asymetrie;
+        this.debut = debut.isBlank() ? LocalDate.now() : LocalDate.parse(debut);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Profil lu à l'exécution et non par @Profile : le traitement AOT (profil Maven "demarrage") fige
+        // à la construction les beans de chaque profil, ce bean n'existerait jamais dans le jar AOT
+        if (!environment.acceptsProfiles(Profiles.of("generation"))) {
+            return;
+        }
+        long t0 = System.nanoTime();
+        Map<String, Long> lignes = transactionTemplate.execute(statut -> jdbcTemplate.execute(
+                (ConnectionCallback<Map<String, Long>>) c -> generer(c.unwrap(PGConnection.class).getCopyAPI())));
+        long total = lignes.values().stream().mapToLong(Long::longValue).sum();
+        double secondes = (System.nanoTime() - t0) / 1e9;
+        log.info("Génération terminée (graine {}) : {} lignes en {} s, {} lignes/min {}", graine, total,
+                String.format("%.1f", secondes), Math.round(total / secondes * 60), lignes);
+
+        // statistiques à jour pour les plans des requêtes du catalogue
+        jdbcTemplate.execute("analyze utilisateur, cinema, film, acteur, joue, programmation, creneau_hebdo");
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private Map<String, Long> generer(CopyManager copie) throws SQLException {
+        // personne n'écrit pendant la génération : les ids sont posés ici, à la suite des existants.
+        // SHARE ROW EXCLUSIVE jusqu'au commit : écritures des nœuds en attente, lectures libres
+        jdbcTemplate.execute("lock table utilisateur, cinema, film, acteur, joue, programmation, creneau_hebdo "
+                + "in share row exclusive mode");
+        long u0 = prochainId("utilisateur");
+        long c0 = prochainId("cinema");
+        long f0 = prochainId("film");
+        long a0 = prochainId("acteur");
+        long p0 = prochainId("programmation");
+        long h0 = prochainId("creneau_hebdo");
+
+        SplittableRandom random = new SplittableRandom(graine);
+        Map<String, Long> lignes = new LinkedHashMap<>();
+
+        // Rôles en alternance : utilisateurs pairs propriétaires de films, impairs de cinémas
+        try (Copie t = new Copie(copie, "utilisateur (id, email, mdp, role)")) {
+            for (int i = 0; i < nbUtilisateurs; i++) {
+                t.champ(u0 + i).champ("u" + (u0 + i) + "@generation.cinema.fr").champ("generation")
+                        .champ(i % 2 == 0 ? "proprio_film" : "proprio_cinema").fin();
+            }
+            lignes.put("utilisateur", t.fermer());
+        }
+        Zipf proprietaires = new Zipf(nbUtilisateurs / 2, asymetrie, random.split());
+
+        SplittableRandom r = random.split();
+        Zipf villes = new Zipf(nbVilles, asymetrie, null);
+        try (Copie t = new Copie(copie, "cinema (id, nom, adresse, ville, id_utilisateur)")) {
+            for (int i = 0; i < nbCinemas; i++) {
+                String ville = ville(villes.tirer(r));
+                t.champ(c0 + i).champ(ENSEIGNES[r.nextInt(ENSEIGNES.length)] + " " + ville + " " + (i + 1))
+                        .champ((1 + r.nextInt(200)) + " " + RUES[r.nextInt(RUES.length)] + ", " + ville)
+                        .champ(ville)
+                        .champ(u0 + 2L * proprietaires.tirer(r) + 1).fin();
+            }
+            lignes.put("cinema", t.fermer());
+        }
+
+        r = random.split();
+        int titres = SUJETS.length * COMPLEMENTS.length;
+        Zipf realisateurs = new Zipf(Math.max(1, nbFilms / 10), asymetrie, random.split());
+        try (Copie t = new Copie(copie, "film (id, titre, duree, langue, realisateur, age_min, sous_titre, id_utilisateur)")) {
+            for (int i = 0; i < nbFilms; i++) {
+                // au-delà des combinaisons, des suites : "La Nuit du Loup 2"
+                int n = r.nextInt(titres);
+                int suite = i / titres;
+                t.champ(f0 + i)
+                        .champ(SUJETS[n / COMPLEMENTS.length] + " " + COMPLEMENTS[n % COMPLEMENTS.length]
+                                + (suite > 0 ? " " + (suite + 1) : ""))
+                        // jusqu'à 180 min : les horaires de programmation sont espacés de 3 h 30
+                        .champ(75 + r.nextInt(106))
+                        .champ(LANGUES[r.nextInt(LANGUES.length)])
+                        .champ(personne(realisateurs.tirer(r)))
+                        .champ(AGES[r.nextInt(AGES.length)])
+                        .champ(SOUS_TITRES[r.nextInt(SOUS_TITRES.length)])
+                        .champ(u0 + 2L * proprietaires.tirer(r)).fin();
+            }
+            lignes.put("film", t.fermer());
+        }
+
+        try (Copie t = new Copie(copie, "acteur (id, prenom, nom)")) {
+            for (int i = 0; i < nbActeurs; i++) {
+                String[] personne = personne(i).split(" ", 2);
+                t.champ(a0 + i).champ(personne[0]).champ(personne[1]).fin();
+            }
+            lignes.put("acteur", t.fermer());
+        }
+
+        // Distribution de 1 à 2 × acteurs-par-film - 1 acteurs, sans doublon dans un film
+        r = random.split();
+        Zipf vedettes = new Zipf(nbActeurs, asymetrie, random.split());
+        long[] distribution = new long[2 * acteursParFilm];
+        try (Copie t = new Copie(copie, "joue (id_acteur, id_film)")) {
+            for (int i = 0; i < nbFilms; i++) {
+                int nb = 1 + r.nextInt(2 * acteursParFilm - 1);
+                for (int k = 0; k < nb; k++) {
+                    long acteur;
+                    do {
+                        acteur = a0 + vedettes.tirer(r);
+                    } while (contient(distribution, k, acteur));
+                    distribution[k] = acteur;
+                    t.champ(acteur).champ(f0 + i).fin();
+                }
+            }
+            lignes.put("joue", t.fermer());
+        }
+
+        // Les films à succès sont programmés partout, les grands cinémas programment plus
+        r = random.split();
+        Zipf films = new Zipf(nbFilms, asymetrie, random.split());
+        Zipf cinemas = new Zipf(nbCinemas, asymetrie / 2, random.split());
+        int[] rang = new int[nbCinemas];
+        try (Copie prog = new Copie(copie, "programmation (id, date_deb, date_fin, id_film, id_cinema)");
+             Copie creneaux = new Copie(copie, "creneau_hebdo (id, jour_semaine, heure_debut, id_programmation)")) {
+            // COPY ne prend qu'une table à la fois : programmations d'abord, créneaux ensuite, même tirage
+            long tirage = r.nextLong();
+            ecrireProgrammations(prog, null, new SplittableRandom(tirage), films, cinemas, rang, p0, c0, f0, h0);
+            lignes.put("programmation", prog.fermer());
+            Arrays.fill(rang, 0);
+            ecrireProgrammations(null, creneaux, new SplittableRandom(tirage), films, cinemas, rang, p0, c0, f0, h0);
+            lignes.put("creneau_hebdo", creneaux.fermer());
+        }
+
+        // Séquences après les ids posés (en INCREMENT BY 50 pour certaines : Hibernate prend le bloc suivant)
+        for (String table : lignes.keySet()) {
+            if (!table.equals("joue")) {
+                jdbcTemplate.queryForObject("select setval(pg_get_serial_sequence(?, 'id'), max(id)) from " + table,
+                        Long.class, table);
+            }
+        }
+        return lignes;
+    }
+
+    private void ecrireProgrammations(Copie prog, Copie creneaux, SplittableRandom r, Zipf films, Zipf cinemas,
+                                      int[] rang, long p0, long c0, long f0, long h0) throws SQLException {
+        int capacite = periodes * PLACES_PAR_PERIODE;
+        for (int i = 0; i < nbProgrammations; i++) {
+            int cinema = cinemas.tirer(r);
+            // cinéma plein sur la fenêtre : le suivant (le constructeur garantit qu'il en reste un)
+            while (rang[cinema] >= capacite) {
+                cinema = (cinema + 1) % rang.length;
+            }
+            long film = f0 + films.tirer(r);
+            int k = rang[cinema]++;
+            int place = k / periodes;
+            long id = p0 + i;
+            if (prog != null) {
+                LocalDate deb = debut.minusWeeks(4L * (k % periodes));
+                prog.champ(id).champ(deb).champ(deb.plusWeeks(4).minusDays(1)).champ(film).champ(c0 + cinema).fin();
+            } else {
+                String[] jours = JOURS[place / HEURES.length];
+                for (int j = 0; j < jours.length; j++) {
+                    creneaux.champ(h0 + 3L * i + j).champ(jours[j]).champ(HEURES[place % HEURES.length]).champ(id).fin();
+                }
+            }
+        }
+    }
+
+    private long prochainId(String table) {
+        return jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from " + table, Long.class);
+    }
+
+    private static String ville(int i) {
+        return i < VILLES.length ? VILLES[i] : "Ville " + (i - VILLES.length + 1);
+    }
+
+    private static String personne(int i) {
+        String nom = PRENOMS[i % PRENOMS.length] + " " + NOMS[i / PRENOMS.length % NOMS.length];
+        int homonyme = i / (PRENOMS.length * NOMS.length);
+        return homonyme > 0 ? nom + "-" + (homonyme + 1) : nom;
+    }
+
+    private static boolean contient(long[] valeurs, int n, long valeur) {
+        for (int i = 0; i < n; i++) {
+            if (valeurs[i] == valeur) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tirage de rangs 0..n-1 selon une loi de Zipf : le rang k sort avec une probabilité proportionnelle à 1/(k+1)^s.
+     * Avec un mélange (graine), les rangs sont permutés : les plus tirés ne sont pas les premiers ids.
+     */
+    private static final class Zipf {
+        private final double[] cumul;
+        private final int[] permutation;
+
+        Zipf(int n, double s, SplittableRandom melange) {
+            cumul = new double[n];
+            double somme = 0;
+            for (int k = 0; k < n; k++) {
+                somme += 1 / Math.pow(k + 1, s);
+                cumul[k] = somme;
+            }
+            if (melange == null) {
+                permutation = null;
+                return;
+            }
+            permutation = new int[n];
+            for (int i = 0; i < n; i++) {
+                int j = melange.nextInt(i + 1);
+                permutation[i] = permutation[j];
+                permutation[j] = i;
+            }
+        }
+
+        int tirer(SplittableRandom r) {
+            int k = Arrays.binarySearch(cumul, r.nextDouble() * cumul[cumul.length - 1]);
+            k = Math.min(cumul.length - 1, k < 0 ? -k - 1 : k);
+            return permutation == null ? k : permutation[k];
+        }
+    }
+
+    /**
+     * Un COPY ... FROM STDIN au format texte, envoyé par blocs. Les valeurs générées ne contiennent
+     * ni tabulation, ni saut de ligne, ni barre oblique inverse : rien à échapper.
+     */
+    private static final class Copie implements AutoCloseable {
+        private static final int BLOC = 1 << 18;
+
+        private final CopyManager copie;
+        private final String table;
+        private final StringBuilder tampon = new StringBuilder(BLOC + 1024);
+        private CopyIn encours;
+        private boolean debutLigne = true;
+
+        Copie(CopyManager copie, String table) {
+            this.copie = copie;
+            this.table = table;
+        }
+
+        Copie champ(Object valeur) {
+            if (!debutLigne) {
+                tampon.append('\t');
+            }
+            tampon.append(valeur);
+            debutLigne = false;
+            return this;
+        }
+
+        void fin() throws SQLException {
+            tampon.append('\n');
+            debutLigne = true;
+            if (tampon.length() >= BLOC) {
+                envoyer();
+            }
+        }
+
+        private void envoyer() throws SQLException {
+            // ouvert au premier bloc : un seul COPY en cours à la fois sur la connexion
+            if (encours == null) {
+                encours = copie.copyIn("copy " + table + " from stdin");
+            }
+            byte[] octets = tampon.toString().getBytes(StandardCharsets.UTF_8);
+            encours.writeToCopy(octets, 0, octets.length);
+            tampon.setLength(0);
+        }
+
+        long fermer() throws SQLException {
+            envoyer();
+            long lignes = encours.endCopy();
+            encours = null;
+            return lignes;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (encours != null && encours.isActive()) {
+                encours.cancelCopy();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package efrei.projetREST.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Repli des chaînes utilisé par les index en mémoire : sans accents, en minuscules,
+ * espaces multiples réduits à un seul.
+ */
+public final class Normalisation {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+    private Normalisation() {
+    }
+
+    public static String plier(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String sansAccents = DIACRITIQUES.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACES.matcher(sansAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
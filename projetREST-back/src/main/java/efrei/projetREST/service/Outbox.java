@@ -0,0 +1,376 @@
+package efrei.projetREST.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.EvenementCatalogue;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Événements de PublicationService, écrits dans la table outbox par la transaction qui crée les lignes, puis livrés
+ * aux écouteurs de chaque nœud dans l'ordre (transaction, id), au moins une fois, seulement une fois la transaction
+ * terminée (xact < xmin). Fonctionnement et limite connue (longue transaction) : voir le README.
+ * Sans outbox (catalogue.outbox.actif=false), livrés directement après le commit, sur le thread de la requête.
+ */
+@Component
+public class Outbox {
+
+    private static final Logger log = LoggerFactory.getLogger(Outbox.class);
+
+    private static final String INSERT_SQL =
+            "insert into outbox (type, agregat, agregat_id, charge) values (?, ?, ?, ?::jsonb)";
+
+    // Position de départ : les transactions terminées avant le démarrage sont déjà dans les index construits au démarrage
+    private static final String XMIN_SQL = "select pg_snapshot_xmin(pg_current_snapshot())::text";
+
+    // Dernière ligne déjà commitée au démarrage : version initiale du catalogue, la même sur tous les nœuds
+    private static final String DERNIERE_SQL = """
+            select id, xact::text as xact, cree_le from outbox
+            where xact < ?::text::xid8
+            order by xact desc, id desc
+            limit 1""";
+
+    private static final String LOT_SQL = """
+            select id, xact::text as xact, type, charge::text as charge, cree_le from outbox
+            where xact < pg_snapshot_xmin(pg_current_snapshot()) and (xact, id) > (?::text::xid8, ?)
+            order by xact, id
+            limit ?""";
+
+    private static final Map<String, Class<? extends EvenementCatalogue>> TYPES =
+            Arrays.stream(EvenementCatalogue.class.getPermittedSubclasses())
+                    .collect(Collectors.toMap(Class::getSimpleName, c -> c.asSubclass(EvenementCatalogue.class)));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskScheduler taskScheduler;
+    private final boolean actif;
+    private final int tailleLot;
+    private final Duration retention;
+    private final int essaisMax;
+    private final Counter distribues;
+    private final Counter echecs;
+    private final Counter abandonnes;
+
+    // Réveil après un commit local : au plus une distribution en attente à la fois
+    private final AtomicBoolean reveilDemande = new AtomicBoolean();
+
+    // Position de départ de ce nœud (lue au démarrage de l'application), puis dernière ligne distribuée
+    // (modifiée sous le verrou de distribuer()) ; échecs de suite sur la ligne suivante
+    private volatile Position depart;
+    private volatile Repere initial;
+    private Position position;
+    private int essais;
+    // Sans outbox : positions locales (heure de démarrage, compteur)
+    private final AtomicLong compteurLocal = new AtomicLong();
+
+    public Outbox(JdbcTemplate jdbcTemplate,
+                  ObjectMapper objectMapper,
+                  ApplicationEventPublisher eventPublisher,
+                  TaskScheduler taskScheduler,
+                  MeterRegistry meterRegistry,
+                  @Value("${catalogue.outbox.actif:true}") boolean actif,
+                  @Value("${catalogue.outbox.taille-lot:500}") int tailleLot,
+                  @Value("${catalogue.outbox.retention:1d}") Duration retention,
+                  @Value("${catalogue.outbox.essais-max:5}") int essaisMax) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.taskScheduler = taskScheduler;
+        this.actif = actif;
+        this.tailleLot = tailleLot;
+        this.retention = retention;
+        this.essaisMax = essaisMax;
+        this.distribues = Counter.builder("catalogue.outbox.evenements")
+                .tag("resultat", "distribue")
+                .description("Événements de l'outbox distribués aux écouteurs de ce nœud")
+                .register(meterRegistry);
+        this.echecs = Counter.builder("catalogue.outbox.evenements")
+                .tag("resultat", "echec")
+                .description("Événements de l'outbox dont un écouteur a échoué (redistribués au tour suivant)")
+                .register(meterRegistry);
+        this.abandonnes = Counter.builder("catalogue.outbox.evenements")
+                .tag("resultat", "abandonne")
+                .description("Événements de l'outbox abandonnés après essais-max échecs de suite")
+                .register(meterRegistry);
+        if (!actif) {
+            this.depart = new Position(System.currentTimeMillis(), 0);
+            this.position = depart;
+            this.initial = new Repere(depart, Instant.now());
+        }
+    }
+
+    // Avant les écouteurs qui construisent les index : ils chargent ce qui précède, l'outbox donne la suite.
+    // Pas de requête dans le constructeur : le contexte se crée sans base (entraînement CDS, AOT)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void demarrer() {
+        if (actif && depart == null) {
+            Position xmin = new Position(jdbcTemplate.queryForObject(XMIN_SQL, Long.class), -1);
+            // outbox vide ou purgée : pas de repère commun, celui-ci ne vaut que pour ce nœud
+            initial = jdbcTemplate.query(DERNIERE_SQL, (rs, i) -> new Repere(
+                            new Position(rs.getLong("xact"), rs.getLong("id")), rs.getTimestamp("cree_le").toInstant()),
+                    xmin.xact()).stream().findFirst().orElse(new Repere(xmin, Instant.now()));
+            depart = xmin;
+            position = depart;
+        }
+    }
+
+    /** Enregistre l'événement dans la transaction en cours (inséré avec les autres juste avant le commit). */
+    public void publier(EvenementCatalogue evenement) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (actif) {
+                inserer(List.of(evenement));
+                appliquerLocalement(evenement);
+                reveiller();
+            } else {
+                distribuerDirectement(evenement);
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<EvenementCatalogue> enAttente = (List<EvenementCatalogue>) TransactionSynchronizationManager.getResource(this);
+        if (enAttente == null) {
+            List<EvenementCatalogue> liste = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, liste);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (actif) {
+                        inserer(liste);
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    if (actif) {
+                        liste.forEach(Outbox.this::appliquerLocalement);
+                        reveiller();
+                    } else {
+                        liste.forEach(Outbox.this::distribuerDirectement);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(Outbox.this);
+                }
+            });
+            enAttente = liste;
+        }
+        enAttente.add(evenement);
+    }
+
+    private void inserer(List<EvenementCatalogue> evenements) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, evenements, evenements.size(), (ps, e) -> {
+            ps.setString(1, e.getClass().getSimpleName());
+            ps.setString(2, agregat(e));
+            ps.setLong(3, agregatId(e));
+            ps.setString(4, json(e));
+        });
+    }
+
+    private void reveiller() {
+        if (reveilDemande.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                reveilDemande.set(false);
+                distribuer();
+            }, Instant.now());
+        }
+    }
+
+    // Lecture de ses propres écritures avant la réponse ; la distribution redonne l'événement avec sa position
+    private void appliquerLocalement(EvenementCatalogue evenement) {
+        try {
+            eventPublisher.publishEvent(evenement);
+        } catch (RuntimeException e) {
+            log.warn("Application locale de {} après commit échouée, laissée à la distribution : {}",
+                    evenement.getClass().getSimpleName(), e.toString());
+        }
+    }
+
+    // Écritures des autres nœuds (et filet de sécurité si un réveil a échoué)
+    @Scheduled(fixedDelayString = "${catalogue.outbox.intervalle:PT1S}")
+    public void scruter() {
+        if (actif) {
+            distribuer();
+        }
+    }
+
+    /** Distribue les lignes terminées depuis la dernière position ; elle n'avance qu'une fois la ligne livrée ou abandonnée. */
+    public synchronized void distribuer() {
+        if (depart == null) {
+            return;
+        }
+        try {
+            List<Ligne> lot;
+            do {
+                lot = jdbcTemplate.query(LOT_SQL, (rs, i) -> new Ligne(new Position(rs.getLong("xact"), rs.getLong("id")),
+                        rs.getString("type"), rs.getString("charge"), rs.getTimestamp("cree_le").toInstant()),
+                        position.xact(), position.id(), tailleLot);
+                for (Ligne ligne : lot) {
+                    if (!livrerOuAbandonner(ligne)) {
+                        return;
+                    }
+                    position = ligne.position();
+                }
+            } while (lot.size() == tailleLot);
+        } catch (RuntimeException e) {
+            // lecture de l'outbox impossible (base indisponible) : ne compte pas comme un échec de l'événement
+            log.warn("Lecture de l'outbox interrompue après {}, reprise au prochain tour : {}", position, e.toString());
+        }
+    }
+
+    // false : échec, la ligne sera redistribuée au prochain tour ; true : livrée, ou abandonnée
+    private boolean livrerOuAbandonner(Ligne ligne) {
+        try {
+            livrer(ligne.position(), lire(ligne), ligne.creeLe());
+            essais = 0;
+            return true;
+        } catch (RuntimeException e) {
+            if (++essais < essaisMax) {
+                echecs.increment();
+                log.warn("Événement {} de l'outbox non distribué (essai {}/{}), reprise au prochain tour : {}",
+                        ligne.position(), essais, essaisMax, e.toString());
+                return false;
+            }
+            essais = 0;
+            abandonnes.increment();
+            log.error("Événement {} de l'outbox abandonné après {} échecs : {} {}",
+                    ligne.position(), essaisMax, ligne.type(), ligne.charge(), e);
+            return true;
+        }
+    }
+
+    private void distribuerDirectement(EvenementCatalogue evenement) {
+        livrer(new Position(depart.xact(), compteurLocal.incrementAndGet()), evenement, Instant.now());
+    }
+
+    // D'abord les écouteurs de l'événement (cache, index) : quand EvenementDistribue part, les lectures sont à jour
+    private void livrer(Position position, EvenementCatalogue evenement, Instant creeLe) {
+        eventPublisher.publishEvent(evenement);
+        eventPublisher.publishEvent(new EvenementDistribue(position, evenement, creeLe));
+        distribues.increment();
+    }
+
+    /** Position avant le premier événement distribué par ce nœud, null avant le démarrage de l'application. */
+    public Position depart() {
+        return depart;
+    }
+
+    /** Dernière ligne de l'outbox commitée avant le démarrage, null avant le démarrage de l'application. */
+    public Repere initial() {
+        return initial;
+    }
+
+    // Chaque nœud lit à sa propre position : passé la rétention, une ligne est supposée distribuée partout
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void purger() {
+        if (actif) {
+            int supprimees = jdbcTemplate.update("delete from outbox where cree_le < ?",
+                    Timestamp.from(Instant.now().minus(retention)));
+            if (supprimees > 0) {
+                log.info("{} lignes de l'outbox purgées", supprimees);
+            }
+        }
+    }
+
+    private EvenementCatalogue lire(Ligne ligne) {
+        Class<? extends EvenementCatalogue> type = TYPES.get(ligne.type());
+        if (type == null) {
+            throw new IllegalStateException("Type d'événement inconnu dans l'outbox : " + ligne.type());
+        }
+        try {
+            return objectMapper.readValue(ligne.charge(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Événement illisible dans l'outbox (" + ligne.position() + ")", e);
+        }
+    }
+
+    private String json(EvenementCatalogue evenement) {
+        try {
+            return objectMapper.writeValueAsString(evenement);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String agregat(EvenementCatalogue evenement) {
+        return evenement instanceof FilmPublie ? "film"
+                : evenement instanceof CinemaCree ? "cinema"
+                : "programmation";
+    }
+
+    static long agregatId(EvenementCatalogue evenement) {
+        return evenement instanceof FilmPublie e ? e.filmId()
+                : evenement instanceof CinemaCree e ? e.cinemaId()
+                : ((ProgrammationPubliee) evenement).programmationId();
+    }
+
+    private record Ligne(Position position, String type, String charge, Instant creeLe) {}
+
+    /** Position d'une ligne de l'outbox et heure de son écriture. */
+    public record Repere(Position position, Instant creeLe) {}
+
+    /**
+     * Place d'un événement dans l'outbox, la même sur tous les nœuds (transaction, puis id).
+     * Sans outbox : heure de démarrage du nœud, puis compteur local.
+     */
+    public record Position(long xact, long id) implements Comparable<Position> {
+
+        private static final Comparator<Position> ORDRE = Comparator.comparingLong(Position::xact)
+                .thenComparingLong(Position::id);
+
+        // Forme texte "xact-id", utilisée comme id d'événement SSE
+        public static Position lire(String texte) {
+            String[] parties = texte.trim().split("-", 2);
+            if (parties.length != 2) {
+                throw new IllegalArgumentException("Position invalide : " + texte);
+            }
+            return new Position(Long.parseLong(parties[0]), Long.parseLong(parties[1]));
+        }
+
+        @Override
+        public int compareTo(Position autre) {
+            return ORDRE.compare(this, autre);
+        }
+
+        @Override
+        public String toString() {
+            return xact + "-" + id;
+        }
+    }
+
+    /** Publié après les écouteurs de l'événement lui-même, avec sa position et l'heure de son écriture. */
+    public record EvenementDistribue(Position position, EvenementCatalogue evenement, Instant creeLe) {}
+}
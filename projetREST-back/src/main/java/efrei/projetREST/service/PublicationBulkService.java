@@ -0,0 +1,248 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.*;
+import efrei.projetREST.repository.*;
+import efrei.projetREST.service.CreneauIndex.Reservation;
+import efrei.projetREST.service.PublicationService.*;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publication en masse : toutes les lignes sont validées avant le premier insert,
+ * puis insérées par lots (insert JDBC groupés, ids pris par blocs de séquence) dans une seule transaction :
+ * tout est créé, ou rien. Le contexte de persistance est vidé après chaque lot, la mémoire ne dépend pas
+ * de la taille de la requête ; la transaction, elle, dure le temps de tous les lots.
+ */
+@Service
+public class PublicationBulkService {
+
+    private final FilmRepository filmRepository;
+    private final CinemaRepository cinemaRepository;
+    private final ProgrammationRepository programmationRepository;
+    private final CreneauHebdoRepository creneauHebdoRepository;
+    private final UtilisateurRepository utilisateurRepository;
+    private final CreneauIndex creneauIndex;
+    private final Outbox outbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int tailleLot;
+
+    public PublicationBulkService(FilmRepository filmRepository,
+                                  CinemaRepository cinemaRepository,
+                                  ProgrammationRepository programmationRepository,
+                                  CreneauHebdoRepository creneauHebdoRepository,
+                                  UtilisateurRepository utilisateurRepository,
+                                  CreneauIndex creneauIndex,
+                                  Outbox outbox,
+                                  EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${publication.bulk.taille-lot:500}") int tailleLot) {
+        this.filmRepository = filmRepository;
+        this.cinemaRepository = cinemaRepository;
+        this.programmationRepository = programmationRepository;
+        this.creneauHebdoRepository = creneauHebdoRepository;
+        this.utilisateurRepository = utilisateurRepository;
+        this.creneauIndex = creneauIndex;
+        this.outbox = outbox;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tailleLot = tailleLot;
+    }
+
+    public List<Long> publierFilms(List<FilmCreateRequest> films, Long proprietaireId) {
+        exigerNonVide(films);
+        for (int i = 0; i < films.size(); i++) {
+            FilmCreateRequest f = films.get(i);
+            String ligne = "films[" + i + "]";
+            if (f == null) {
+                throw invalide(ligne + " : film manquant");
+            }
+            exigerTexte(f.titre(), ligne, "titre");
+            exigerTexte(f.langue(), ligne, "langue");
+            exigerTexte(f.realisateur(), ligne, "realisateur");
+            exigerTexte(f.sousTitre(), ligne, "sousTitre");
+            if (f.duree() == null || f.duree() <= 0) {
+                throw invalide(ligne + " : duree doit être > 0");
+            }
+            if (f.ageMin() == null || f.ageMin() < 0) {
+                throw invalide(ligne + " : ageMin doit être >= 0");
+            }
+        }
+        Utilisateur proprietaire = proprietaire(proprietaireId);
+
+        return parLots(films, lot -> {
+            List<Film> crees = filmRepository.saveAll(lot.stream()
+                    .map(f -> new Film(f.titre(), f.duree(), f.langue(), f.realisateur(), f.ageMin(), f.sousTitre(), proprietaire))
+                    .toList());
+            crees.forEach(f -> outbox.publier(new FilmPublie(f.getId(), f.getTitre(), f.getDuree())));
+            return crees.stream().map(Film::getId).toList();
+        });
+    }
+
+    public List<Long> creerCinemas(List<CinemaCreateRequest> cinemas, Long proprietaireId) {
+        exigerNonVide(cinemas);
+        for (int i = 0; i < cinemas.size(); i++) {
+            CinemaCreateRequest c = cinemas.get(i);
+            String ligne = "cinemas[" + i + "]";
+            if (c == null) {
+                throw invalide(ligne + " : cinéma manquant");
+            }
+            exigerTexte(c.nom(), ligne, "nom");
+            exigerTexte(c.adresse(), ligne, "adresse");
+            exigerTexte(c.ville(), ligne, "ville");
+        }
+        Utilisateur proprietaire = proprietaire(proprietaireId);
+
+        return parLots(cinemas, lot -> {
+            List<Cinema> crees = cinemaRepository.saveAll(lot.stream()
+                    .map(c -> new Cinema(c.nom(), c.adresse(), c.ville(), proprietaire))
+                    .toList());
+            crees.forEach(c -> outbox.publier(new CinemaCree(c.getId(), c.getNom(), c.getVille())));
+            return crees.stream().map(Cinema::getId).toList();
+        });
+    }
+
+    public List<Long> publierProgrammations(List<ProgrammationCreateRequest> programmations) {
+        exigerNonVide(programmations);
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> cinemaIds = new HashSet<>();
+        for (int i = 0; i < programmations.size(); i++) {
+            ProgrammationCreateRequest p = programmations.get(i);
+            String ligne = "programmations[" + i + "]";
+            if (p == null || p.filmId() == null || p.cinemaId() == null) {
+                throw invalide(ligne + " : filmId et cinemaId sont obligatoires");
+            }
+            try {
+                PublicationService.validerProgrammation(p.dateDeb(), p.dateFin(), p.creneaux());
+            } catch (RuntimeException e) {
+                throw invalide(ligne + " : " + e.getMessage());
+            }
+            filmIds.add(p.filmId());
+            cinemaIds.add(p.cinemaId());
+        }
+
+        // une requête par table pour vérifier toutes les références, au lieu d'un findById par ligne
+        Map<Long, Film> films = filmRepository.findAllById(filmIds).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        for (int i = 0; i < programmations.size(); i++) {
+            ProgrammationCreateRequest p = programmations.get(i);
+            if (!films.containsKey(p.filmId())) {
+                throw invalide("programmations[" + i + "] : film " + p.filmId() + " introuvable");
+            }
+        }
+
+        // Une seule transaction : si elle échoue, aucune ligne n'est créée et toutes les réservations sont libérées
+        return transactionTemplate.execute(status -> {
+            // cinémas verrouillés jusqu'au commit, occupation relue si un autre nœud y a publié depuis
+            Map<Long, Cinema> cinemas = cinemaRepository.verrouiller(cinemaIds).stream()
+                    .collect(Collectors.toMap(Cinema::getId, Function.identity()));
+            for (int i = 0; i < programmations.size(); i++) {
+                ProgrammationCreateRequest p = programmations.get(i);
+                if (!cinemas.containsKey(p.cinemaId())) {
+                    throw invalide("programmations[" + i + "] : cinéma " + p.cinemaId() + " introuvable");
+                }
+            }
+            // versions posées avant le premier lot : les cinémas ne sont plus gérés après le clear d'un lot
+            Map<Long, Long> versions = new HashMap<>();
+            cinemas.values().forEach(c -> {
+                creneauIndex.synchroniser(c.getId(), c.getVersionProgrammations());
+                versions.put(c.getId(), c.getVersionProgrammations());
+            });
+            programmations.forEach(p -> {
+                Cinema cinema = cinemas.get(p.cinemaId());
+                cinema.setVersionProgrammations(cinema.getVersionProgrammations() + 1);
+            });
+
+            // Créneaux réservés avant le premier insert : un conflit (avec l'existant ou entre lignes) ne crée rien
+            List<Reservation> reservations = new ArrayList<>(programmations.size());
+            for (int i = 0; i < programmations.size(); i++) {
+                ProgrammationCreateRequest p = programmations.get(i);
+                try {
+                    reservations.add(creneauIndex.reserver(null, p.cinemaId(), p.dateDeb(), p.dateFin(),
+                            films.get(p.filmId()).getDuree(), p.creneaux()));
+                } catch (ResponseStatusException e) {
+                    throw new ResponseStatusException(e.getStatusCode(), "programmations[" + i + "] : " + e.getReason());
+                }
+            }
+
+            List<Long> ids = parLots(programmations, lot -> insererProgrammations(lot, films, cinemas, versions));
+            // chaque réservation porte l'id de sa ligne : l'événement redistribué par l'outbox la reconnaît
+            for (int i = 0; i < ids.size(); i++) {
+                creneauIndex.lier(reservations.get(i), ids.get(i));
+            }
+            return ids;
+        });
+    }
+
+    // versions : dernière version attribuée par cinéma, chaque programmation prend la suivante
+    private List<Long> insererProgrammations(List<ProgrammationCreateRequest> lot, Map<Long, Film> films,
+                                             Map<Long, Cinema> cinemas, Map<Long, Long> versions) {
+        List<Programmation> crees = new ArrayList<>(lot.size());
+        List<CreneauHebdo> creneaux = new ArrayList<>(lot.size() * 3);
+        for (ProgrammationCreateRequest p : lot) {
+            Programmation prog = new Programmation(p.dateDeb(), p.dateFin(), films.get(p.filmId()), cinemas.get(p.cinemaId()));
+            crees.add(prog);
+            p.creneaux().forEach(c -> creneaux.add(new CreneauHebdo(c.jour(), c.heureDebut(), prog)));
+        }
+        programmationRepository.saveAll(crees);
+        creneauHebdoRepository.saveAll(creneaux);
+
+        for (int i = 0; i < crees.size(); i++) {
+            Programmation p = crees.get(i);
+            Cinema cinema = p.getCinema();
+            outbox.publier(new ProgrammationPubliee(p.getId(), p.getFilm().getId(), cinema.getId(),
+                    cinema.getVille(), p.getDate_deb(), p.getDate_fin(), List.copyOf(lot.get(i).creneaux()),
+                    versions.merge(cinema.getId(), 1L, Long::sum)));
+        }
+        return crees.stream().map(Programmation::getId).toList();
+    }
+
+    // Tous les lots dans la même transaction (celle de l'appelant s'il y en a une) ; flush + clear après chacun
+    // pour envoyer les insert groupés et vider le contexte
+    private <T> List<Long> parLots(List<T> lignes, Function<List<T>, List<Long>> inserer) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(lignes.size());
+            for (int debut = 0; debut < lignes.size(); debut += tailleLot) {
+                ids.addAll(inserer.apply(lignes.subList(debut, Math.min(lignes.size(), debut + tailleLot))));
+                entityManager.flush();
+                entityManager.clear();
+            }
+            return ids;
+        });
+    }
+
+    // l'id vient du jeton de session : simple référence, pas de SELECT
+    private Utilisateur proprietaire(Long proprietaireId) {
+        return utilisateurRepository.getReferenceById(proprietaireId);
+    }
+
+    private static void exigerNonVide(List<?> lignes) {
+        if (lignes == null || lignes.isEmpty()) {
+            throw invalide("La liste est vide");
+        }
+    }
+
+    private static void exigerTexte(String valeur, String ligne, String champ) {
+        if (valeur == null || valeur.isBlank()) {
+            throw invalide(ligne + " : " + champ + " manquant");
+        }
+    }
+
+    private static ResponseStatusException invalide(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+}
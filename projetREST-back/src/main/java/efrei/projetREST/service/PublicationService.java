@@ -18,23 +18,29 @@ public class PublicationService {
     private final ProgrammationRepository programmationRepository;
     private final CreneauHebdoRepository creneauHebdoRepository;
     private final UtilisateurRepository utilisateurRepository;
+    private final CreneauIndex creneauIndex;
+    private final Outbox outbox;
 
     public PublicationService(FilmRepository filmRepository,
                               CinemaRepository cinemaRepository,
                               ProgrammationRepository programmationRepository,
                               CreneauHebdoRepository creneauHebdoRepository,
-                              UtilisateurRepository utilisateurRepository) {
+                              UtilisateurRepository utilisateurRepository,
+                              CreneauIndex creneauIndex,
+                              Outbox outbox) {
         this.filmRepository = filmRepository;
         this.cinemaRepository = cinemaRepository;
         this.programmationRepository = programmationRepository;
         this.creneauHebdoRepository = creneauHebdoRepository;
         this.utilisateurRepository = utilisateurRepository;
+        this.creneauIndex = creneauIndex;
+        this.outbox = outbox;
     }
 
 
+    // proprietaireId vient d'un jeton signé : une référence suffit, sans SELECT sur utilisateur
     public Film publierFilm(FilmCreateRequest req, Long proprietaireId) {
-        Utilisateur proprietaire = utilisateurRepository.findById(proprietaireId)
-                .orElseThrow(() -> new RuntimeException("Propriétaire introuvable"));
+        Utilisateur proprietaire = utilisateurRepository.getReferenceById(proprietaireId);
 
         Film film = new Film(
                 req.titre(),
@@ -46,7 +52,9 @@ public class PublicationService {
                 proprietaire
         );
 
-        return filmRepository.save(film);
+        film = filmRepository.save(film);
+        outbox.publier(new FilmPublie(film.getId(), film.getTitre(), film.getDuree()));
+        return film;
     }
 
     public Programmation publierProgrammation(Long filmId,
@@ -55,42 +63,60 @@ public class PublicationService {
                                               LocalDate dateFin,
                                               List<CreneauInput> creneaux) {
 
+        validerProgrammation(dateDeb, dateFin, creneaux);
+
+        Film film = filmRepository.findById(filmId)
+                .orElseThrow(() -> new RuntimeException("Film introuvable"));
+        // verrouillé jusqu'au commit ; occupation relue seulement si un autre nœud a publié depuis la dernière connue
+        Cinema cinema = cinemaRepository.verrouiller(List.of(cinemaId)).stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Cinéma introuvable"));
+        creneauIndex.synchroniser(cinema.getId(), cinema.getVersionProgrammations());
+        cinema.setVersionProgrammations(cinema.getVersionProgrammations() + 1);
+
+        Programmation prog = programmationRepository.save(new Programmation(dateDeb, dateFin, film, cinema));
+        // 409 si une séance du cinéma chevauche un créneau ; réservation retirée si la transaction est annulée
+        creneauIndex.reserver(prog.getId(), cinema.getId(), dateDeb, dateFin, film.getDuree(), creneaux);
+
+        creneauHebdoRepository.saveAll(creneaux.stream()
+                .map(c -> new CreneauHebdo(c.jour(), c.heureDebut(), prog))
+                .toList());
+
+        outbox.publier(new ProgrammationPubliee(
+                prog.getId(), film.getId(), cinema.getId(), cinema.getVille(), dateDeb, dateFin, List.copyOf(creneaux),
+                cinema.getVersionProgrammations()));
+        return prog;
+    }
+
+    // Tout est vérifié avant le premier insert
+    static void validerProgrammation(LocalDate dateDeb, LocalDate dateFin, List<CreneauInput> creneaux) {
+        if (dateDeb == null || dateFin == null) {
+            throw new RuntimeException("date_deb et date_fin sont obligatoires");
+        }
         if (dateFin.isBefore(dateDeb)) {
             throw new RuntimeException("date_fin doit être >= date_deb");
         }
         if (creneaux == null || creneaux.size() != 3) {
             throw new RuntimeException("Il faut exactement 3 créneaux (3 jours/semaine)");
         }
-
-        Film film = filmRepository.findById(filmId)
-                .orElseThrow(() -> new RuntimeException("Film introuvable"));
-        Cinema cinema = cinemaRepository.findById(cinemaId)
-                .orElseThrow(() -> new RuntimeException("Cinéma introuvable"));
-
-        Programmation prog = new Programmation(dateDeb, dateFin, film, cinema);
-        prog = programmationRepository.save(prog);
+        if (creneaux.stream().anyMatch(c -> c == null || c.jour() == null || c.heureDebut() == null)) {
+            throw new RuntimeException("Chaque créneau doit avoir un jour et une heure de début");
+        }
 
         long distinctDays = creneaux.stream().map(CreneauInput::jour).distinct().count();
         if (distinctDays != 3) {
             throw new RuntimeException("Les 3 créneaux doivent être sur 3 jours différents");
         }
-
-        for (CreneauInput c : creneaux) {
-            CreneauHebdo ch = new CreneauHebdo(c.jour(), c.heureDebut(), prog);
-            creneauHebdoRepository.save(ch);
-        }
-
-        return prog;
     }
 
     public Cinema creerCinema(CinemaCreateRequest req, Long proprietaireId) {
 
-        Utilisateur proprietaire = utilisateurRepository.findById(proprietaireId)
-                .orElseThrow(() -> new RuntimeException("Propriétaire introuvable"));
+        Utilisateur proprietaire = utilisateurRepository.getReferenceById(proprietaireId);
 
         Cinema cinema = new Cinema(req.nom(), req.adresse(), req.ville(), proprietaire);
 
-        return cinemaRepository.save(cinema);
+        cinema = cinemaRepository.save(cinema);
+        outbox.publier(new CinemaCree(cinema.getId(), cinema.getNom(), cinema.getVille()));
+        return cinema;
     }
 
 
@@ -110,9 +136,35 @@ public class PublicationService {
             String ville
     ) {}
 
+    public record ProgrammationCreateRequest(
+            Long filmId,
+            Long cinemaId,
+            LocalDate dateDeb,
+            LocalDate dateFin,
+            List<CreneauInput> creneaux
+    ) {}
+
 
 
 
     // DTO pour les créneaux
     public record CreneauInput(JourSemaine jour, LocalTime heureDebut) {}
+
+
+    // Événements écrits dans l'outbox par la transaction ; les écouteurs @EventListener les reçoivent après commit (voir Outbox)
+    public sealed interface EvenementCatalogue permits FilmPublie, CinemaCree, ProgrammationPubliee {}
+
+    public record FilmPublie(Long filmId, String titre, Integer duree) implements EvenementCatalogue {}
+
+    public record CinemaCree(Long cinemaId, String nom, String ville) implements EvenementCatalogue {}
+
+    public record ProgrammationPubliee(Long programmationId,
+                                       Long filmId,
+                                       Long cinemaId,
+                                       String ville,
+                                       LocalDate dateDeb,
+                                       LocalDate dateFin,
+                                       List<CreneauInput> creneaux,
+                                       // version du cinéma après cette programmation, null dans les lignes plus anciennes
+                                       Long versionCinema) implements EvenementCatalogue {}
 }
@@ -0,0 +1,252 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Séances concrètes déduites des programmations : chaque créneau hebdomadaire est déroulé
+ * entre date_deb et date_fin, la fin de séance vient de la durée du film.
+ * Les séances sont rangées par heure de début, par ville, par cinéma et par film.
+ * Seule une fenêtre glissante de quelques semaines est matérialisée, elle avance chaque nuit.
+ */
+@Component
+public class SeanceIndex {
+
+    private static final Comparator<Seance> ORDRE = Comparator.comparing(Seance::debut)
+            .thenComparingLong(Seance::programmationId);
+
+    private final ProgrammationRepository programmationRepository;
+    private final FilmRepository filmRepository;
+    private final CinemaRepository cinemaRepository;
+    private final ZoneId fuseau;
+    private final int horizonJours;
+
+    private final Map<Long, FilmInfo> films = new ConcurrentHashMap<>();
+    private final Map<Long, CinemaInfo> cinemas = new ConcurrentHashMap<>();
+    private final Map<Long, ProgrammationDef> programmations = new ConcurrentHashMap<>();
+
+    private final Map<String, NavigableSet<Seance>> parVille = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Seance>> parCinema = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Seance>> parFilm = new ConcurrentHashMap<>();
+
+    // Fenêtre matérialisée [debutFenetre, finFenetre[ ; la durée max sert à retrouver les séances déjà commencées
+    private volatile LocalDate debutFenetre;
+    private volatile LocalDate finFenetre;
+    private volatile int dureeMaxMinutes;
+
+    public SeanceIndex(ProgrammationRepository programmationRepository,
+                       FilmRepository filmRepository,
+                       CinemaRepository cinemaRepository,
+                       @Value("${catalogue.seances.fuseau:Europe/Paris}") ZoneId fuseau,
+                       @Value("${catalogue.seances.horizon-jours:60}") int horizonJours) {
+        this.programmationRepository = programmationRepository;
+        this.filmRepository = filmRepository;
+        this.cinemaRepository = cinemaRepository;
+        this.fuseau = fuseau;
+        this.horizonJours = horizonJours;
+        this.debutFenetre = LocalDate.now(fuseau);
+        this.finFenetre = debutFenetre.plusDays(horizonJours);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void construire() {
+        filmRepository.findAllTitres().forEach(f -> films.put(f.getId(), new FilmInfo(f.getTitre(), dureeOuZero(f.getDuree()))));
+        cinemaRepository.findAllNomsVilles().forEach(c -> cinemas.put(c.getId(), new CinemaInfo(c.getNom(), c.getVille())));
+
+        LocalDate aujourdhui = LocalDate.now(fuseau);
+        Map<Long, List<CreneauInput>> creneaux = new HashMap<>();
+        programmationRepository.findCreneauxPlatsDepuis(aujourdhui).forEach(ch -> creneaux
+                .computeIfAbsent(ch.getProgrammationId(), k -> new ArrayList<>(3))
+                .add(new CreneauInput(ch.getJour(), ch.getHeureDebut())));
+
+        debutFenetre = aujourdhui;
+        finFenetre = aujourdhui.plusDays(horizonJours);
+        // cinémas chargés juste avant : chaque programmation en base a le sien
+        programmationRepository.findPlatesDepuis(aujourdhui).forEach(p -> ajouter(new ProgrammationDef(
+                p.getId(), p.getFilmId(), p.getCinemaId(), villeDuCinema(p.getCinemaId()), p.getDateDeb(),
+                p.getDateFin(), creneaux.getOrDefault(p.getId(), List.of()))));
+    }
+
+    @EventListener
+    public void onFilmPublie(FilmPublie event) {
+        films.put(event.filmId(), new FilmInfo(event.titre(), dureeOuZero(event.duree())));
+    }
+
+    @EventListener
+    public void onCinemaCree(CinemaCree event) {
+        cinemas.put(event.cinemaId(), new CinemaInfo(event.nom(), event.ville()));
+    }
+
+    // La ville vient de l'événement : le cinéma peut être créé par un autre nœud dont l'événement n'est pas encore arrivé
+    @EventListener
+    public synchronized void onProgrammationPubliee(ProgrammationPubliee event) {
+        String ville = event.ville() != null ? event.ville() : villeDuCinema(event.cinemaId());
+        ajouter(new ProgrammationDef(event.programmationId(), event.filmId(), event.cinemaId(), ville,
+                event.dateDeb(), event.dateFin(), event.creneaux()));
+    }
+
+    // Chaque nuit : on oublie la veille et on déroule un jour de plus
+    @Scheduled(cron = "0 1 0 * * *", zone = "${catalogue.seances.fuseau:Europe/Paris}")
+    public void avancerFenetre() {
+        avancerFenetre(LocalDate.now(fuseau));
+    }
+
+    synchronized void avancerFenetre(LocalDate aujourdhui) {
+        LocalDate nouvelleFin = aujourdhui.plusDays(horizonJours);
+        LocalDateTime limite = aujourdhui.atStartOfDay();
+
+        programmations.values().removeIf(p -> p.dateFin().isBefore(aujourdhui));
+        for (Collection<NavigableSet<Seance>> index : List.of(parVille.values(), parCinema.values(), parFilm.values())) {
+            index.forEach(seances -> seances.headSet(new Seance(limite, limite, Long.MIN_VALUE, 0, 0, ""), false).clear());
+            index.removeIf(NavigableSet::isEmpty);
+        }
+
+        LocalDate ancienneFin = finFenetre;
+        debutFenetre = aujourdhui;
+        finFenetre = nouvelleFin;
+        if (nouvelleFin.isAfter(ancienneFin)) {
+            LocalDate depuis = ancienneFin.isBefore(aujourdhui) ? aujourdhui : ancienneFin;
+            programmations.values().forEach(p -> indexer(p, depuis, nouvelleFin));
+        }
+    }
+
+    public List<SeanceResponse> seancesParVille(String ville, LocalDateTime from, LocalDateTime to, int limite) {
+        return chevauchant(parVille.get(Normalisation.plier(ville)), from, to, limite);
+    }
+
+    public List<SeanceResponse> seancesParCinema(Long cinemaId, LocalDateTime from, LocalDateTime to, int limite) {
+        return chevauchant(parCinema.get(cinemaId), from, to, limite);
+    }
+
+    public List<SeanceResponse> prochainesSeances(Long filmId, int limite) {
+        NavigableSet<Seance> seances = parFilm.get(filmId);
+        if (seances == null) {
+            return List.of();
+        }
+        LocalDateTime maintenant = maintenant();
+        return seances.tailSet(new Seance(maintenant, maintenant, Long.MIN_VALUE, 0, 0, ""), true).stream()
+                .limit(limite)
+                .map(this::toResponse)
+                .toList();
+    }
+
+    public LocalDateTime maintenant() {
+        return LocalDateTime.now(fuseau);
+    }
+
+    // Séances qui chevauchent [from, to[ : début avant "to" et fin après "from"
+    private List<SeanceResponse> chevauchant(NavigableSet<Seance> seances, LocalDateTime from, LocalDateTime to, int limite) {
+        if (seances == null || !to.isAfter(from)) {
+            return List.of();
+        }
+        LocalDateTime debutMin = from.minusMinutes(dureeMaxMinutes);
+        return seances.subSet(new Seance(debutMin, debutMin, Long.MIN_VALUE, 0, 0, ""), true,
+                        new Seance(to, to, Long.MIN_VALUE, 0, 0, ""), false).stream()
+                .filter(s -> s.fin().isAfter(from))
+                .limit(limite)
+                .map(this::toResponse)
+                .toList();
+    }
+
+    private void ajouter(ProgrammationDef def) {
+        if (def.dateFin().isBefore(debutFenetre) || programmations.putIfAbsent(def.id(), def) != null) {
+            return;
+        }
+        indexer(def, debutFenetre, finFenetre);
+    }
+
+    private void indexer(ProgrammationDef def, LocalDate depuis, LocalDate jusquA) {
+        LocalDate premier = def.dateDeb().isAfter(depuis) ? def.dateDeb() : depuis;
+        LocalDate dernier = def.dateFin().isBefore(jusquA) ? def.dateFin() : jusquA.minusDays(1);
+        if (dernier.isBefore(premier)) {
+            return;
+        }
+
+        int duree = films.getOrDefault(def.filmId(), FilmInfo.INCONNU).duree();
+        dureeMaxMinutes = Math.max(dureeMaxMinutes, duree);
+        for (CreneauInput c : def.creneaux()) {
+            LocalDate jour = premier.with(TemporalAdjusters.nextOrSame(jourSemaine(c.jour())));
+            for (; !jour.isAfter(dernier); jour = jour.plusWeeks(1)) {
+                LocalDateTime debut = jour.atTime(c.heureDebut());
+                Seance s = new Seance(debut, debut.plusMinutes(duree), def.id(), def.filmId(), def.cinemaId(), def.ville());
+                // ville inconnue (ancienne ligne de l'outbox sans ville, cinéma pas encore reçu) : pas d'index par ville
+                if (def.ville() != null) {
+                    parVille.computeIfAbsent(Normalisation.plier(def.ville()), k -> new ConcurrentSkipListSet<>(ORDRE)).add(s);
+                }
+                parCinema.computeIfAbsent(def.cinemaId(), k -> new ConcurrentSkipListSet<>(ORDRE)).add(s);
+                parFilm.computeIfAbsent(def.filmId(), k -> new ConcurrentSkipListSet<>(ORDRE)).add(s);
+            }
+        }
+    }
+
+    private SeanceResponse toResponse(Seance s) {
+        FilmInfo film = films.getOrDefault(s.filmId(), FilmInfo.INCONNU);
+        CinemaInfo cinema = cinemas.getOrDefault(s.cinemaId(), CinemaInfo.INCONNU);
+        return new SeanceResponse(s.programmationId(), s.filmId(), film.titre(), s.cinemaId(), cinema.nom(),
+                s.ville() != null ? s.ville() : cinema.ville(), s.debut(), s.fin());
+    }
+
+    private String villeDuCinema(Long cinemaId) {
+        CinemaInfo cinema = cinemas.get(cinemaId);
+        return cinema != null ? cinema.ville() : null;
+    }
+
+    static DayOfWeek jourSemaine(JourSemaine jour) {
+        return DayOfWeek.of(jour.ordinal() + 1);
+    }
+
+    private static int dureeOuZero(Integer duree) {
+        return duree == null ? 0 : duree;
+    }
+
+    public record SeanceResponse(
+            Long programmationId,
+            Long filmId,
+            String filmTitre,
+            Long cinemaId,
+            String cinemaNom,
+            String ville,
+            LocalDateTime debut,
+            LocalDateTime fin
+    ) {}
+
+    private record Seance(LocalDateTime debut, LocalDateTime fin, long programmationId,
+                          long filmId, long cinemaId, String ville) {}
+
+    private record ProgrammationDef(Long id, Long filmId, Long cinemaId, String ville,
+                                    LocalDate dateDeb, LocalDate dateFin, List<CreneauInput> creneaux) {}
+
+    private record FilmInfo(String titre, int duree) {
+        static final FilmInfo INCONNU = new FilmInfo(null, 0);
+    }
+
+    private record CinemaInfo(String nom, String ville) {
+        static final CinemaInfo INCONNU = new CinemaInfo(null, null);
+    }
+}
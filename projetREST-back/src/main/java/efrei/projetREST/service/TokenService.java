@@ -0,0 +1,104 @@
+package efrei.projetREST.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Jetons de session signés (HMAC-SHA256, clé locale) : "base64url(userId:expiration:role).base64url(signature)".
+ * La vérification ne fait qu'un HMAC, sans accès à la base.
+ * La clé (auth.token.secret) est obligatoire : tous les nœuds doivent signer avec la même.
+ */
+@Service
+public class TokenService {
+
+    // Rôles possibles : les films sont publiés par un proprio_film, cinémas et programmations par un proprio_cinema
+    public static final String PROPRIO_FILM = "proprio_film";
+    public static final String PROPRIO_CINEMA = "proprio_cinema";
+    public static final Set<String> ROLES = Set.of(PROPRIO_FILM, PROPRIO_CINEMA);
+
+    private static final String ALGORITHME = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODE = Base64.getUrlDecoder();
+
+    // Mac n'est pas thread-safe : on clone une instance déjà initialisée (moins cher que getInstance + init)
+    private final Mac prototype;
+    private final Duration duree;
+
+    public TokenService(@Value("${auth.token.secret:}") String secret,
+                        @Value("${auth.token.ttl:12h}") Duration duree) {
+        // une clé aléatoire par nœud rendrait les jetons d'un nœud invalides sur les autres et après redémarrage
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("auth.token.secret (AUTH_TOKEN_SECRET) est obligatoire : clé HMAC en base64");
+        }
+        byte[] cle = Base64.getDecoder().decode(secret.trim());
+        try {
+            this.prototype = Mac.getInstance(ALGORITHME);
+            this.prototype.init(new SecretKeySpec(cle, ALGORITHME));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        this.duree = duree;
+    }
+
+    public String emettre(Long userId, String role) {
+        long expiration = Instant.now().plus(duree).getEpochSecond();
+        byte[] contenu = (userId + ":" + expiration + ":" + role).getBytes(StandardCharsets.UTF_8);
+        return B64.encodeToString(contenu) + "." + B64.encodeToString(signer(contenu));
+    }
+
+    // null si le jeton est mal formé, falsifié ou expiré
+    public SessionUtilisateur verifier(String jeton) {
+        if (jeton == null) {
+            return null;
+        }
+        int point = jeton.indexOf('.');
+        if (point < 0) {
+            return null;
+        }
+        try {
+            byte[] contenu = B64_DECODE.decode(jeton.substring(0, point));
+            byte[] signature = B64_DECODE.decode(jeton.substring(point + 1));
+            if (!MessageDigest.isEqual(signer(contenu), signature)) {
+                return null;
+            }
+
+            String[] champs = new String(contenu, StandardCharsets.UTF_8).split(":", 3);
+            if (champs.length != 3 || Long.parseLong(champs[1]) < Instant.now().getEpochSecond()) {
+                return null;
+            }
+            return new SessionUtilisateur(Long.parseLong(champs[0]), champs[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] signer(byte[] contenu) {
+        try {
+            return ((Mac) prototype.clone()).doFinal(contenu);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record SessionUtilisateur(Long userId, String role) {
+
+        // 403 si l'utilisateur authentifié n'a pas le rôle exigé par l'endpoint
+        public void exigerRole(String attendu) {
+            if (!attendu.equals(role)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Rôle " + attendu + " requis");
+            }
+        }
+    }
+}
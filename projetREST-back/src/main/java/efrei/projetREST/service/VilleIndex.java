@@ -0,0 +1,138 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Villes du catalogue (repliées comme les titres) avec leurs films programmés et leurs cinémas.
+ * Les ids de films sont triés : la liste des films d'une ville se pagine par clé, sans jointure SQL.
+ * Le nombre de villes où un film est programmé classe les suggestions de FilmTitreIndex, qui le lit après cet index.
+ */
+@Component
+public class VilleIndex {
+
+    private final CinemaRepository cinemaRepository;
+    private final ProgrammationRepository programmationRepository;
+
+    private final Map<String, Ville> villes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> villesParFilm = new ConcurrentHashMap<>();
+
+    public VilleIndex(CinemaRepository cinemaRepository, ProgrammationRepository programmationRepository) {
+        this.cinemaRepository = cinemaRepository;
+        this.programmationRepository = programmationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void construire() {
+        Map<Long, String> villeParCinema = new HashMap<>();
+        cinemaRepository.findAllNomsVilles().forEach(c -> {
+            villeParCinema.put(c.getId(), c.getVille());
+            ajouterCinema(c.getVille(), c.getId());
+        });
+        programmationRepository.findFilmCinemaIds().forEach(p -> {
+            String ville = villeParCinema.get(p.getCinemaId());
+            if (ville != null) {
+                ajouterFilm(ville, p.getFilmId());
+            }
+        });
+    }
+
+    @EventListener
+    public void onCinemaCree(CinemaCree event) {
+        ajouterCinema(event.ville(), event.cinemaId());
+    }
+
+    @EventListener
+    @Order(0)
+    public void onProgrammationPubliee(ProgrammationPubliee event) {
+        ajouterFilm(event.ville(), event.filmId());
+    }
+
+    public List<VilleResponse> villes() {
+        return villes.values().stream()
+                .filter(v -> v.nbCinemas.get() > 0)
+                .sorted(Comparator.comparing(v -> v.cle))
+                .map(v -> new VilleResponse(v.nom, v.nbFilms.get(), v.nbCinemas.get()))
+                .toList();
+    }
+
+    /** Nombre de villes où le film est programmé, 0 s'il ne l'est nulle part. */
+    public int nbVilles(long filmId) {
+        AtomicInteger n = villesParFilm.get(filmId);
+        return n == null ? 0 : n.get();
+    }
+
+    // Ids des films programmés dans la ville, strictement après "apres", dans l'ordre croissant
+    public List<Long> filmsApres(String ville, long apres, int limite) {
+        Ville v = villes.get(Normalisation.plier(ville));
+        if (v == null) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(Math.min(limite, 64));
+        for (Long id : v.films.tailSet(apres, false)) {
+            if (ids.size() >= limite) {
+                break;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private void ajouterCinema(String ville, Long cinemaId) {
+        Ville v = ville(ville);
+        if (v != null && v.cinemas.add(cinemaId)) {
+            v.nbCinemas.incrementAndGet();
+        }
+    }
+
+    private void ajouterFilm(String ville, Long filmId) {
+        Ville v = ville(ville);
+        if (v != null && v.films.add(filmId)) {
+            v.nbFilms.incrementAndGet();
+            villesParFilm.computeIfAbsent(filmId, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private Ville ville(String nom) {
+        if (nom == null || nom.isBlank()) {
+            return null;
+        }
+        String cle = Normalisation.plier(nom);
+        return villes.computeIfAbsent(cle, k -> new Ville(k, nom.trim()));
+    }
+
+    public record VilleResponse(String ville, int nbFilms, int nbCinemas) {}
+
+    // Les tailles sont tenues à part : size() d'un ConcurrentSkipListSet parcourt tout l'ensemble
+    private static final class Ville {
+        final String cle;
+        final String nom;
+        final NavigableSet<Long> films = new ConcurrentSkipListSet<>();
+        final Set<Long> cinemas = ConcurrentHashMap.newKeySet();
+        final AtomicInteger nbFilms = new AtomicInteger();
+        final AtomicInteger nbCinemas = new AtomicInteger();
+
+        Ville(String cle, String nom) {
+            this.cle = cle;
+            this.nom = nom;
+        }
+    }
+}
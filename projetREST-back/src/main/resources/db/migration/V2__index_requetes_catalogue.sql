@@ -0,0 +1,17 @@
+-- V2 : index des chemins de lecture du catalogue
+-- (les clés étrangères ne sont pas indexées automatiquement par PostgreSQL)
+
+-- Pages détail film / cinéma : programmations d'un film, d'un cinéma
+CREATE INDEX IF NOT EXISTS programmation_id_film_idx ON programmation (id_film);
+CREATE INDEX IF NOT EXISTS programmation_id_cinema_idx ON programmation (id_cinema);
+
+-- Créneaux d'un lot de programmations
+CREATE INDEX IF NOT EXISTS creneau_hebdo_id_programmation_idx ON creneau_hebdo (id_programmation);
+
+-- Filtre par ville, insensible à la casse : lower(ville) = lower(?)
+CREATE INDEX IF NOT EXISTS cinema_lower_ville_idx ON cinema (lower(ville));
+
+-- Recherche par sous-chaîne du titre (titre ILIKE '%q%') : index trigrammes.
+-- Un B-tree ne sert à rien pour un motif qui commence par '%'.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS film_titre_trgm_idx ON film USING gin (titre gin_trgm_ops);
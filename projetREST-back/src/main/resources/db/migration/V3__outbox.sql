@@ -0,0 +1,20 @@
+-- V3 : outbox des publications du catalogue
+-- Une ligne par événement, écrite dans la transaction de PublicationService qui crée le film, le cinéma
+-- ou la programmation ; chaque nœud la relit après commit pour mettre à jour son cache et ses index.
+
+CREATE TABLE IF NOT EXISTS outbox (
+  id BIGSERIAL PRIMARY KEY,
+  -- transaction d'écriture : on ne lit que les lignes des transactions terminées (voir Outbox)
+  xact XID8 NOT NULL DEFAULT pg_current_xact_id(),
+  type VARCHAR(64) NOT NULL,
+  agregat VARCHAR(32) NOT NULL,
+  agregat_id BIGINT NOT NULL,
+  charge JSONB NOT NULL,
+  cree_le TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Lecture dans l'ordre (xact, id) à partir de la dernière position distribuée
+CREATE INDEX IF NOT EXISTS outbox_xact_id_idx ON outbox (xact, id);
+
+-- Purge des lignes anciennes
+CREATE INDEX IF NOT EXISTS outbox_cree_le_idx ON outbox (cree_le);
@@ -0,0 +1,8 @@
+-- V4 : séquences en INCREMENT BY 50 (ids réservés par blocs par Hibernate, insert groupés)
+-- Déjà fait par V1 sur une base créée par Flyway, mais pas sur une base créée par init-db et prise comme
+-- version 1 (baseline) : V1 n'y est pas joué. Sans cela Hibernate retomberait sur des ids un par un.
+
+ALTER SEQUENCE film_id_seq INCREMENT BY 50;
+ALTER SEQUENCE cinema_id_seq INCREMENT BY 50;
+ALTER SEQUENCE programmation_id_seq INCREMENT BY 50;
+ALTER SEQUENCE creneau_hebdo_id_seq INCREMENT BY 50;
@@ -0,0 +1,4 @@
+-- V5 : version des programmations de chaque cinéma
+-- Incrémentée par chaque programmation publiée, sous le verrou de publication du cinéma ; portée par l'événement
+-- ProgrammationPubliee. CreneauIndex ne relit l'occupation d'un cinéma que si sa version n'est pas celle de la base.
+ALTER TABLE cinema ADD COLUMN IF NOT EXISTS version_programmations BIGINT NOT NULL DEFAULT 0;
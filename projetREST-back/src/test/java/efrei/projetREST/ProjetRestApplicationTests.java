@@ -1,11 +1,51 @@
 package efrei.projetREST;
 
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
+import java.io.IOException;
+
+/**
+ * Démarrage complet sur un PostgreSQL embarqué migré par Flyway : pas de base à installer.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
 @SpringBootTest
 class ProjetRestApplicationTests {
 
+	private static EmbeddedPostgres postgres;
+
+	// avant le chargement du contexte, qui lit les propriétés ci-dessous
+	@BeforeAll
+	static void demarrer() {
+		try {
+			postgres = EmbeddedPostgres.start();
+		} catch (Exception e) {
+			Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+		}
+	}
+
+	@DynamicPropertySource
+	static void base(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url",
+				() -> postgres.getJdbcUrl("postgres", "postgres") + "&currentSchema=cinema&reWriteBatchedInserts=true");
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "");
+		registry.add("auth.token.secret", () -> "dGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtMDE=");
+	}
+
+	@AfterAll
+	static void arreter() throws IOException {
+		if (postgres != null) {
+			postgres.close();
+		}
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,124 @@
+package efrei.projetREST.config;
+
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.entities.Utilisateur;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.repository.UtilisateurRepository;
+import efrei.projetREST.service.PublicationService;
+import efrei.projetREST.service.PublicationService.CinemaCreateRequest;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmCreateRequest;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Région de requêtes "programmations" : servie par le cache à la deuxième lecture, et vidée par l'événement
+ * ProgrammationPubliee que l'outbox distribue pour une écriture d'un autre nœud (ici un insert SQL direct,
+ * qu'Hibernate ne voit pas). Outbox inactive : les événements sont distribués au commit, sans attente.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
+@SpringBootTest
+class CacheHibernateTests {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    PublicationService publicationService;
+    @Autowired
+    UtilisateurRepository utilisateurRepository;
+    @Autowired
+    ProgrammationRepository programmationRepository;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void demarrer() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+        }
+    }
+
+    @DynamicPropertySource
+    static void base(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> postgres.getJdbcUrl("postgres", "postgres") + "&currentSchema=cinema&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("auth.token.secret", () -> "dGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtMDE=");
+        registry.add("catalogue.outbox.actif", () -> "false");
+    }
+
+    @AfterAll
+    static void arreter() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void regionProgrammationsServieParLeCachePuisVideeParLEvenement() {
+        Long proprietaire = utilisateurRepository.save(new Utilisateur("cache@cinema.fr", "x", "proprio_cinema")).getId();
+        Long filmId = publicationService.publierFilm(
+                new FilmCreateRequest("Film cache", 100, "Français", "R", 0, "Aucun"), proprietaire).getId();
+        Long cinemaId = publicationService.creerCinema(
+                new CinemaCreateRequest("Cinéma cache", "1 rue du Cache", "Cacheville"), proprietaire).getId();
+        LocalDate debut = LocalDate.now();
+        publicationService.publierProgrammation(filmId, cinemaId, debut, debut.plusWeeks(2), List.of(
+                new CreneauInput(JourSemaine.LUN, LocalTime.of(14, 0)),
+                new CreneauInput(JourSemaine.MER, LocalTime.of(14, 0)),
+                new CreneauInput(JourSemaine.VEN, LocalTime.of(14, 0))));
+
+        CacheRegionStatistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getQueryRegionStatistics(ProgrammationRepository.REGION_CACHE);
+        long hits = stats.getHitCount();
+        long miss = stats.getMissCount();
+
+        assertThat(programmationRepository.findWithCinemaByFilmId(filmId)).hasSize(1);
+        assertThat(programmationRepository.findWithCinemaByFilmId(filmId)).hasSize(1);
+        assertThat(stats.getMissCount() - miss).isEqualTo(1);
+        assertThat(stats.getHitCount() - hits).isEqualTo(1);
+        assertThat(meterRegistry.get("hibernate.second.level.cache.ratio")
+                .tag("region", ProgrammationRepository.REGION_CACHE).gauge().value()).isGreaterThan(0);
+
+        // programmation écrite par un autre nœud : ni Hibernate ni le cache de ce nœud ne la voient passer
+        Long autreId = jdbcTemplate.queryForObject("""
+                insert into programmation (id, date_deb, date_fin, id_film, id_cinema)
+                values (nextval('programmation_id_seq'), ?, ?, ?, ?) returning id""",
+                Long.class, debut, debut.plusWeeks(1), filmId, cinemaId);
+        assertThat(programmationRepository.findWithCinemaByFilmId(filmId)).hasSize(1);
+
+        // son événement, distribué par l'outbox sur chaque nœud, vide la région
+        eventPublisher.publishEvent(new ProgrammationPubliee(
+                autreId, filmId, cinemaId, "Cacheville", debut, debut.plusWeeks(1), List.of(), null));
+        assertThat(programmationRepository.findWithCinemaByFilmId(filmId)).hasSize(2);
+    }
+}
@@ -0,0 +1,141 @@
+package efrei.projetREST.config;
+
+import efrei.projetREST.controller.AuthTokenFilter;
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Choix primaire / replica d'une transaction : lectures sur le replica, sauf pour le client qui vient d'écrire.
+ * Le "replica" est un PostgreSQL embarqué qui n'est pas un standby : retard nul, toujours utilisable.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
+class RoutageDataSourceTests {
+
+    private static EmbeddedPostgres postgres;
+
+    private RoutageDataSource routage;
+
+    @BeforeAll
+    static void demarrer() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+        }
+    }
+
+    @AfterAll
+    static void arreter() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void creer() {
+        DataSource base = postgres.getPostgresDatabase();
+        routage = new RoutageDataSource(base, base, Duration.ofHours(1));
+        routage.verifierRetard();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void lecturesSurLeReplicaEcrituresSurLePrimaire() {
+        assertThat(routage.replicaUtilisable()).isTrue();
+
+        requete("10.0.0.1", null);
+        assertThat(lecture()).isEqualTo("replica");
+        assertThat(ecriture(true)).isEqualTo("primaire");
+        // hors requête (outbox, export asynchrone) : pas de client, le replica
+        RequestContextHolder.resetRequestAttributes();
+        assertThat(lecture()).isEqualTo("replica");
+    }
+
+    @Test
+    void seulLeClientQuiVientDEcrireRelitSurLePrimaire() {
+        requete("10.0.0.1", null);
+        ecriture(true);
+        assertThat(lecture()).isEqualTo("primaire");
+
+        requete("10.0.0.2", null);
+        assertThat(lecture()).isEqualTo("replica");
+    }
+
+    @Test
+    void ecritureAnnuleeNeRamenePasAuPrimaire() {
+        requete("10.0.0.1", null);
+        ecriture(false);
+        assertThat(lecture()).isEqualTo("replica");
+    }
+
+    @Test
+    void utilisateurDuJetonSuiviDUneAdresseALAutre() {
+        requete("10.0.0.1", 7L);
+        ecriture(true);
+
+        requete("10.0.0.3", 7L);
+        assertThat(lecture()).isEqualTo("primaire");
+        requete("10.0.0.3", 8L);
+        assertThat(lecture()).isEqualTo("replica");
+    }
+
+    private static void requete(String adresse, Long utilisateur) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(adresse);
+        if (utilisateur != null) {
+            request.setAttribute(AuthTokenFilter.UTILISATEUR, new SessionUtilisateur(utilisateur, "proprio_film"));
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private Object lecture() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            return routage.determineCurrentLookupKey();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    // Une transaction en écriture, commitée ou annulée
+    private Object ecriture(boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        Object cle = routage.determineCurrentLookupKey();
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization s : synchronisations) {
+            if (commit) {
+                s.afterCommit();
+            }
+            s.afterCompletion(commit ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        return cle;
+    }
+}
@@ -0,0 +1,92 @@
+package efrei.projetREST.controller;
+
+import efrei.projetREST.service.PublicationBulkService;
+import efrei.projetREST.service.PublicationService;
+import efrei.projetREST.service.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Jeton exigé sur /publication/** (AuthTokenFilter), puis rôle exigé par chaque endpoint d'écriture.
+ */
+class AuthTokenFilterTests {
+
+    private static final String CLE = Base64.getEncoder()
+            .encodeToString("cle-de-test-cle-de-test-cle-de-t".getBytes(StandardCharsets.UTF_8));
+
+    private final TokenService tokenService = new TokenService(CLE, Duration.ofHours(1));
+    private final PublicationBulkService bulk = mock(PublicationBulkService.class);
+    private final MockMvc mvc = MockMvcBuilders
+            .standaloneSetup(new PublicationController(mock(PublicationService.class), bulk))
+            .addFilters(new AuthTokenFilter(tokenService))
+            .build();
+
+    @Test
+    void sansJetonRefuse() throws Exception {
+        publierFilms(null)
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string(HttpHeaders.WWW_AUTHENTICATE, "Bearer"));
+        verifyNoInteractions(bulk);
+    }
+
+    @Test
+    void jetonExpireRefuse() throws Exception {
+        String jeton = new TokenService(CLE, Duration.ofSeconds(-1)).emettre(1L, TokenService.PROPRIO_FILM);
+
+        publierFilms(jeton).andExpect(status().isUnauthorized());
+        verifyNoInteractions(bulk);
+    }
+
+    @Test
+    void signatureInvalideRefusee() throws Exception {
+        String jeton = tokenService.emettre(1L, TokenService.PROPRIO_FILM);
+        String falsifie = jeton.substring(0, jeton.indexOf('.') + 1) + "AAAA";
+
+        publierFilms(falsifie).andExpect(status().isUnauthorized());
+        verifyNoInteractions(bulk);
+    }
+
+    @Test
+    void roleDuJetonVerifie() throws Exception {
+        publierFilms(tokenService.emettre(1L, TokenService.PROPRIO_CINEMA)).andExpect(status().isForbidden());
+        verifyNoInteractions(bulk);
+
+        publierFilms(tokenService.emettre(2L, TokenService.PROPRIO_FILM)).andExpect(status().isOk());
+        verify(bulk).publierFilms(anyList(), eq(2L));
+    }
+
+    @Test
+    void programmationsReserveesAuxProprietairesDeCinema() throws Exception {
+        mvc.perform(post("/publication/bulk/programmations")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.emettre(1L, TokenService.PROPRIO_FILM))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(bulk);
+    }
+
+    private ResultActions publierFilms(String jeton) throws Exception {
+        var requete = post("/publication/bulk/films").contentType(MediaType.APPLICATION_JSON).content("[]");
+        if (jeton != null) {
+            requete.header(HttpHeaders.AUTHORIZATION, "Bearer " + jeton);
+        }
+        return mvc.perform(requete);
+    }
+}
@@ -0,0 +1,84 @@
+package efrei.projetREST.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import efrei.projetREST.service.CatalogueCache;
+import efrei.projetREST.service.CatalogueChangements;
+import efrei.projetREST.service.CatalogueExportService;
+import efrei.projetREST.service.CatalogueService;
+import efrei.projetREST.service.CatalogueService.CursorPage;
+import efrei.projetREST.service.CatalogueService.FilmLightResponse;
+import efrei.projetREST.service.CreneauIndex;
+import efrei.projetREST.service.FilmTitreIndex;
+import efrei.projetREST.service.SeanceIndex;
+import efrei.projetREST.service.VilleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Filtrage des champs de la liste des films par fields= : seuls les champs demandés et l'id sont écrits,
+ * un champ inconnu est refusé en 400 avec la liste des champs possibles. Cache simulé, même ObjectMapper que WebConfig.
+ */
+class CatalogueControllerTests {
+
+    private final CatalogueCache catalogueCache = mock(CatalogueCache.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void demarrer() {
+        CursorPage<FilmLightResponse> page = new CursorPage<>(
+                List.of(new FilmLightResponse(7L, "Dune", 155, "Anglais", "Villeneuve", 12, null)), "Nw");
+        when(catalogueCache.getFilms(any(), any(), any(), any(), any())).thenReturn(page);
+        ObjectMapper objectMapper = new ObjectMapper().setFilterProvider(new SimpleFilterProvider()
+                .addFilter(CatalogueService.FILTRE_CHAMPS, SimpleBeanPropertyFilter.serializeAll()));
+        mvc = MockMvcBuilders.standaloneSetup(new CatalogueController(catalogueCache, mock(FilmTitreIndex.class),
+                        mock(SeanceIndex.class), mock(CatalogueExportService.class), mock(VilleIndex.class),
+                        mock(CreneauIndex.class), mock(CatalogueChangements.class)))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    @Test
+    void seulsLesChampsDemandesEtLIdSontEcrits() throws Exception {
+        mvc.perform(get("/Catalogue/films").param("fields", " titre, duree "))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CatalogueController.NEXT_CURSOR_HEADER, "Nw"))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].titre").value("Dune"))
+                .andExpect(jsonPath("$[0].duree").value(155))
+                .andExpect(jsonPath("$[0].langue").doesNotExist())
+                .andExpect(jsonPath("$[0].ageMin").doesNotExist());
+    }
+
+    @Test
+    void sansFieldsTousLesChampsMemeNull() throws Exception {
+        mvc.perform(get("/Catalogue/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].realisateur").value("Villeneuve"))
+                .andExpect(jsonPath("$[0].sousTitre").hasJsonPath())
+                .andExpect(jsonPath("$[0].sousTitre").isEmpty());
+    }
+
+    @Test
+    void champInconnuRefuseEn400() throws Exception {
+        mvc.perform(get("/Catalogue/films").param("fields", "titre,affiche"))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("Champ inconnu dans fields : affiche")))
+                .andExpect(status().reason(containsString("titre")));
+    }
+}
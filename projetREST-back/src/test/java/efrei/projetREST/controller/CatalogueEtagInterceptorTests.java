@@ -0,0 +1,118 @@
+package efrei.projetREST.controller;
+
+import efrei.projetREST.service.CatalogueCache;
+import efrei.projetREST.service.CatalogueChangements;
+import efrei.projetREST.service.CatalogueExportService;
+import efrei.projetREST.service.CatalogueVersion;
+import efrei.projetREST.service.CreneauIndex;
+import efrei.projetREST.service.FilmTitreIndex;
+import efrei.projetREST.service.Outbox;
+import efrei.projetREST.service.Outbox.EvenementDistribue;
+import efrei.projetREST.service.Outbox.Position;
+import efrei.projetREST.service.Outbox.Repere;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.SeanceIndex;
+import efrei.projetREST.service.VilleIndex;
+import efrei.projetREST.service.VilleIndex.VilleResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET conditionnels du catalogue autour d'une publication : l'événement appliqué au commit puis sa distribution
+ * par l'outbox changent l'ETag, l'ancien reçoit alors 200. If-Modified-Since n'est pas honoré (voir l'intercepteur).
+ */
+class CatalogueEtagInterceptorTests {
+
+    private static final Instant DEMARRAGE = Instant.now().minus(1, ChronoUnit.HOURS);
+
+    private final Outbox outbox = mock(Outbox.class);
+    private final VilleIndex villeIndex = mock(VilleIndex.class);
+    private CatalogueVersion catalogueVersion;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void demarrer() {
+        when(outbox.initial()).thenReturn(new Repere(new Position(100, 7), DEMARRAGE));
+        when(villeIndex.villes()).thenReturn(List.of(new VilleResponse("Lyon", 3, 1)));
+        catalogueVersion = new CatalogueVersion(outbox);
+        mvc = MockMvcBuilders.standaloneSetup(new CatalogueController(mock(CatalogueCache.class),
+                        mock(FilmTitreIndex.class), mock(SeanceIndex.class), mock(CatalogueExportService.class),
+                        villeIndex, mock(CreneauIndex.class), mock(CatalogueChangements.class)))
+                .addMappedInterceptors(new String[]{"/Catalogue/**"}, new CatalogueEtagInterceptor(catalogueVersion))
+                .build();
+    }
+
+    @Test
+    void memeVersionRevalideeEn304() throws Exception {
+        String etag = etag();
+        assertThat(etag).isEqualTo("W/\"100-7\"");
+
+        mvc.perform(get("/Catalogue/villes").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void publicationAppliqueeAuCommitPuisDistribueeChangeLETag() throws Exception {
+        String avant = etag();
+
+        // commit local : appliqué avant la distribution, suffixe propre à ce nœud
+        FilmPublie film = new FilmPublie(1L, "Nouveau", 90);
+        catalogueVersion.onEvenement(film);
+        String local = mvc.perform(get("/Catalogue/villes").header(HttpHeaders.IF_NONE_MATCH, avant))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(local).isEqualTo("W/\"100-7.1\"");
+
+        // distribution par l'outbox : la position remplace le suffixe, même ETag sur tous les nœuds
+        catalogueVersion.onEvenement(film);
+        catalogueVersion.onEvenementDistribue(new EvenementDistribue(new Position(101, 8), film, Instant.now()));
+        mvc.perform(get("/Catalogue/villes").header(HttpHeaders.IF_NONE_MATCH, local))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"101-8\""));
+        mvc.perform(get("/Catalogue/villes").header(HttpHeaders.IF_NONE_MATCH, "W/\"101-8\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void ifModifiedSinceSeulRenvoieLaReponseComplete() throws Exception {
+        mvc.perform(get("/Catalogue/villes"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+
+        // même une date postérieure à toute publication : pas de 304 sans ETag
+        mvc.perform(get("/Catalogue/villes").header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void chaqueFormatASonETag() throws Exception {
+        mvc.perform(get("/Catalogue/villes").accept("application/cbor"))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"100-7-cbor\""));
+        // l'ETag JSON ne valide pas la réponse CBOR
+        mvc.perform(get("/Catalogue/villes").accept("application/cbor").header(HttpHeaders.IF_NONE_MATCH, "W/\"100-7\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"100-7-cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    private String etag() throws Exception {
+        return mvc.perform(get("/Catalogue/villes"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
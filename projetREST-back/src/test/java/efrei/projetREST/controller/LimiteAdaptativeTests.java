@@ -0,0 +1,101 @@
+package efrei.projetREST.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Limite AIMD : refus au-delà de la limite, hausse de 1/limite par requête rapide quand la cloison est
+ * au moins à moitié pleine, recul de 10 % sur une requête lente ou en erreur, au plus une fois par latence cible.
+ */
+class LimiteAdaptativeTests {
+
+    private static final long RAPIDE = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long LENTE = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void refuseAuDelaDeLaLimiteSansAttendre() {
+        LimiteAdaptative limite = new LimiteAdaptative(2, 1, 10, Duration.ofMillis(250));
+
+        assertThat(limite.acquerir()).isTrue();
+        assertThat(limite.acquerir()).isTrue();
+        assertThat(limite.acquerir()).isFalse();
+        assertThat(limite.enCours()).isEqualTo(2);
+
+        limite.liberer(RAPIDE, false);
+        assertThat(limite.acquerir()).isTrue();
+    }
+
+    @Test
+    void augmenteDUnParFenetreDeRequetesRapidesQuandLaCloisonEstChargee() {
+        LimiteAdaptative limite = new LimiteAdaptative(10, 1, 12, Duration.ofMillis(250));
+
+        // 6 permis sur 10 pris : +1/limite par requête rapide, +1 après un peu plus de 10 requêtes
+        for (int i = 0; i < 10; i++) {
+            occuper(limite, 6);
+            limite.liberer(RAPIDE, false);
+        }
+        assertThat(limite.limite()).isEqualTo(10);
+        occuper(limite, 6);
+        limite.liberer(RAPIDE, false);
+        assertThat(limite.limite()).isEqualTo(11);
+
+        // plafonnée au maximum
+        for (int i = 0; i < 100; i++) {
+            occuper(limite, 7);
+            limite.liberer(RAPIDE, false);
+        }
+        assertThat(limite.limite()).isEqualTo(12);
+    }
+
+    @Test
+    void naugmentePasQuandLaCloisonEstPeuUtilisee() {
+        LimiteAdaptative limite = new LimiteAdaptative(10, 1, 20, Duration.ofMillis(250));
+
+        for (int i = 0; i < 100; i++) {
+            limite.acquerir();
+            limite.liberer(RAPIDE, false);
+        }
+        assertThat(limite.limite()).isEqualTo(10);
+    }
+
+    @Test
+    void reculeDeDixPourCentSurUneRequeteLenteOuEnErreur() {
+        LimiteAdaptative lente = new LimiteAdaptative(20, 1, 20, Duration.ofNanos(1));
+        lente.acquerir();
+        lente.liberer(LENTE, false);
+        assertThat(lente.limite()).isEqualTo(18);
+
+        LimiteAdaptative enErreur = new LimiteAdaptative(20, 1, 20, Duration.ofNanos(1));
+        enErreur.acquerir();
+        enErreur.liberer(RAPIDE, true);
+        assertThat(enErreur.limite()).isEqualTo(18);
+    }
+
+    @Test
+    void reculeUneSeuleFoisParLatenceCibleEtPasSousLeMinimum() {
+        // latence cible d'une heure : les requêtes lentes qui suivent la première appartiennent au même épisode
+        LimiteAdaptative limite = new LimiteAdaptative(20, 1, 20, Duration.ofHours(1));
+        occuper(limite, 5);
+        for (int i = 0; i < 5; i++) {
+            limite.liberer(TimeUnit.HOURS.toNanos(2), false);
+        }
+        assertThat(limite.limite()).isEqualTo(18);
+
+        LimiteAdaptative plancher = new LimiteAdaptative(5, 4, 20, Duration.ofNanos(1));
+        for (int i = 0; i < 10; i++) {
+            plancher.acquerir();
+            plancher.liberer(LENTE, false);
+        }
+        assertThat(plancher.limite()).isEqualTo(4);
+    }
+
+    private static void occuper(LimiteAdaptative limite, int n) {
+        while (limite.enCours() < n) {
+            assertThat(limite.acquerir()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package efrei.projetREST.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Base créée par les scripts init-db d'avant les séquences par blocs (sans les ALTER SEQUENCE), puis prise
+ * comme version 1 par Flyway (baseline-on-migrate, comme application.properties) : les migrations suivantes
+ * passent les séquences en INCREMENT BY 50, sans reprendre les ids déjà utilisés.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
+class MigrationsTests {
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void demarrer() throws IOException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+        }
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        String init = Files.readAllLines(Path.of("../init-db/01_init.sql")).stream()
+                .filter(ligne -> !ligne.startsWith("ALTER SEQUENCE"))
+                .collect(Collectors.joining("\n"));
+        jdbcTemplate.execute(init);
+        jdbcTemplate.execute("insert into cinema.utilisateur (email, mdp, role) values ('a@cinema.fr', 'x', 'proprio_film')");
+        jdbcTemplate.execute("insert into cinema.film (titre, duree, langue, realisateur, age_min, sous_titre, id_utilisateur) "
+                + "values ('Avant', 90, 'Français', 'X', 0, 'Aucun', 1)");
+    }
+
+    @AfterEach
+    void arreter() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void baseInitDbPriseEnVersion1PuisSequencesParBlocs() {
+        assertThat(increment("film_id_seq")).isEqualTo(1);
+
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .schemas("cinema")
+                .defaultSchema("cinema")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from cinema.flyway_schema_history where type = 'BASELINE' and version = '1'",
+                Integer.class)).isEqualTo(1);
+        for (String sequence : new String[]{"film_id_seq", "cinema_id_seq", "programmation_id_seq", "creneau_hebdo_id_seq"}) {
+            assertThat(increment(sequence)).as(sequence).isEqualTo(50);
+        }
+        // premier bloc de Hibernate (pooled) : ]nextval - 50, nextval], après l'id 1 déjà pris
+        long suivant = jdbcTemplate.queryForObject("select nextval('cinema.film_id_seq')", Long.class);
+        assertThat(suivant - 50).isGreaterThanOrEqualTo(1);
+    }
+
+    private long increment(String sequence) {
+        return jdbcTemplate.queryForObject(
+                "select increment_by from pg_sequences where schemaname = 'cinema' and sequencename = ?",
+                Long.class, sequence);
+    }
+}
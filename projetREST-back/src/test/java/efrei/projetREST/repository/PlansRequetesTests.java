@@ -0,0 +1,266 @@
+package efrei.projetREST.repository;
+
+import efrei.projetREST.repository.FilmRepositoryColonnes.ColonneFilm;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.Tuple;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les requêtes des pages catalogue passent par les index créés par les migrations Flyway.
+ * PostgreSQL embarqué, schéma migré, quelques dizaines de milliers de lignes ; chaque méthode de repository
+ * est appelée, le SQL généré par Hibernate et ses paramètres sont capturés au niveau JDBC puis passés à EXPLAIN,
+ * avec les réglages par défaut du planificateur.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PlansRequetesTests {
+
+    private static EmbeddedPostgres postgres;
+
+    // requêtes préparées exécutées par Hibernate, avec leurs paramètres
+    private static final List<Requete> requetes = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    FilmRepository filmRepository;
+    @Autowired
+    ProgrammationRepository programmationRepository;
+    @Autowired
+    CreneauHebdoRepository creneauHebdoRepository;
+
+    // avant le chargement du contexte, qui lit les propriétés ci-dessous
+    @BeforeAll
+    static void demarrer() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+        }
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .schemas("cinema")
+                .defaultSchema("cinema")
+                .load()
+                .migrate();
+
+        try (Connection c = connexion(); Statement st = c.createStatement()) {
+            st.execute("insert into utilisateur (email, mdp, role) values ('plans@cinema.fr', 'x', 'proprio_cinema')");
+            st.execute("""
+                    insert into film (titre, duree, langue, realisateur, age_min, sous_titre, id_utilisateur)
+                    select 'Film ' || i || ' ' || md5(i::text), 90 + i % 90, 'Français', 'R', 0, 'Aucun', 1
+                    from generate_series(1, 20000) i""");
+            st.execute("""
+                    insert into film (titre, duree, langue, realisateur, age_min, sous_titre, id_utilisateur)
+                    values ('Le Fabuleux Destin d''Amélie Poulain', 122, 'Français', 'Jean-Pierre Jeunet', 0, 'Aucun', 1),
+                           ('Remise à 100%', 95, 'Français', 'R', 0, 'Aucun', 1),
+                           ('Remise à 1000', 95, 'Français', 'R', 0, 'Aucun', 1)""");
+            st.execute("""
+                    insert into cinema (nom, adresse, ville, id_utilisateur)
+                    select 'Cinéma ' || i, i || ' rue du Cinéma', 'Ville ' || (i % 100), 1
+                    from generate_series(1, 500) i""");
+            st.execute("""
+                    insert into programmation (date_deb, date_fin, id_film, id_cinema)
+                    select date '2026-01-01', date '2026-03-01', f.id, c.id
+                    from generate_series(1, 50000) i
+                    join (select id, row_number() over (order by id) - 1 as n from film) f on f.n = i % 20000
+                    join (select id, row_number() over (order by id) - 1 as n from cinema) c on c.n = i % 500""");
+            st.execute("""
+                    insert into creneau_hebdo (jour_semaine, heure_debut, id_programmation)
+                    select j, time '20:00', p.id
+                    from programmation p cross join (values ('LUN'), ('MER'), ('VEN')) jours(j)""");
+            // vacuum : vide la liste en attente de l'index GIN et met à jour ses statistiques, comme sur une base en service
+            st.execute("vacuum analyze");
+        }
+    }
+
+    @DynamicPropertySource
+    static void base(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> postgres.getJdbcUrl("postgres", "postgres") + "&currentSchema=cinema");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        // sans le cache de second niveau : chaque appel exécute sa requête
+        registry.add("spring.jpa.properties.hibernate.cache.use_second_level_cache", () -> "false");
+        registry.add("spring.jpa.properties.hibernate.cache.use_query_cache", () -> "false");
+    }
+
+    @AfterAll
+    static void arreter() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void vider() {
+        requetes.clear();
+    }
+
+    @Test
+    void detailFilmParIdFilm() throws SQLException {
+        long filmId = premierId("film");
+        String plan = plan(() -> programmationRepository.findWithCinemaByFilmId(filmId));
+        assertThat(plan).contains("programmation_id_film_idx").doesNotContain("Seq Scan on programmation");
+    }
+
+    @Test
+    void detailCinemaParIdCinema() throws SQLException {
+        long cinemaId = premierId("cinema");
+        String plan = plan(() -> programmationRepository.findWithFilmByCinemaId(cinemaId));
+        assertThat(plan).contains("programmation_id_cinema_idx").doesNotContain("Seq Scan on programmation");
+    }
+
+    @Test
+    void creneauxParProgrammations() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        long premier = premierId("programmation");
+        for (long id = premier; id < premier + 20; id++) {
+            ids.add(id);
+        }
+        String plan = plan(() -> creneauHebdoRepository.findByProgrammationIds(ids));
+        assertThat(plan).contains("creneau_hebdo_id_programmation_idx").doesNotContain("Seq Scan on creneau_hebdo");
+    }
+
+    @Test
+    void filmsDUneVilleParIds() throws SQLException {
+        // forme de CatalogueService.filmsDeLaVille : ids lus dans VilleIndex, films lus par clé primaire
+        long premier = premierId("film");
+        List<Long> ids = List.of(premier + 3, premier + 70, premier + 900, premier + 15000);
+        String plan = plan(() -> filmRepository.findColonnesApres(EnumSet.allOf(ColonneFilm.class), 0, null, ids, ids.size()));
+        assertThat(plan).contains("film_pkey").doesNotContain("Seq Scan on film");
+    }
+
+    @Test
+    void rechercheTitre() throws SQLException {
+        String plan = plan(() -> filmRepository.findColonnesApres(EnumSet.of(ColonneFilm.ID, ColonneFilm.TITRE),
+                0, "amélie", null, 21));
+        assertThat(plan).contains("film_titre_trgm_idx").doesNotContain("Seq Scan on film");
+    }
+
+    @Test
+    void rechercheTitreSansJokers() {
+        assertThat(titres(filmRepository.findColonnesApres(EnumSet.of(ColonneFilm.ID, ColonneFilm.TITRE),
+                0, "100%", null, 21))).containsExactly("Remise à 100%");
+        assertThat(titres(filmRepository.findColonnesApres(EnumSet.of(ColonneFilm.ID, ColonneFilm.TITRE),
+                0, "à 1_0", null, 21))).isEmpty();
+    }
+
+    private static List<String> titres(List<Tuple> lignes) {
+        return lignes.stream().map(t -> t.get("titre", String.class)).toList();
+    }
+
+    // Appelle le repository, puis EXPLAIN de la dernière requête qu'Hibernate a exécutée, avec les mêmes paramètres
+    private static String plan(Supplier<?> appel) throws SQLException {
+        appel.get();
+        assertThat(requetes).isNotEmpty();
+        Requete requete = requetes.get(requetes.size() - 1);
+        try (Connection c = connexion(); PreparedStatement ps = c.prepareStatement("explain " + requete.sql())) {
+            for (Map.Entry<Integer, Object> p : requete.parametres().entrySet()) {
+                ps.setObject(p.getKey(), p.getValue());
+            }
+            StringJoiner plan = new StringJoiner("\n");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static long premierId(String table) throws SQLException {
+        try (Connection c = connexion(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("select min(id) from " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Connection connexion() throws SQLException {
+        Connection c = postgres.getPostgresDatabase().getConnection();
+        try (Statement st = c.createStatement()) {
+            st.execute("set search_path to cinema");
+        }
+        return c;
+    }
+
+    private record Requete(String sql, Map<Integer, Object> parametres) {}
+
+    // Enveloppe la DataSource du contexte : chaque PreparedStatement note ses paramètres et, à l'exécution, son SQL
+    @TestConfiguration
+    static class Capture {
+
+        @Bean
+        static BeanPostProcessor captureRequetes() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? proxy(DataSource.class, ds, (m, args, r) ->
+                            r instanceof Connection c ? proxy(Connection.class, c, (m2, args2, r2) ->
+                                    r2 instanceof PreparedStatement ps && m2.getName().equals("prepareStatement")
+                                            ? preparee(ps, (String) args2[0]) : r2) : r) : bean;
+                }
+            };
+        }
+
+        private static PreparedStatement preparee(PreparedStatement ps, String sql) {
+            Map<Integer, Object> parametres = new TreeMap<>();
+            return proxy(PreparedStatement.class, ps, (m, args, r) -> {
+                if (m.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer i) {
+                    parametres.put(i, m.getName().equals("setNull") ? null : args[1]);
+                } else if (m.getName().startsWith("execute")) {
+                    requetes.add(new Requete(sql, new TreeMap<>(parametres)));
+                }
+                return r;
+            });
+        }
+
+        private interface Suite {
+            Object apres(Method methode, Object[] args, Object resultat) throws Exception;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T cible, Suite suite) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, m, args) -> {
+                try {
+                    return suite.apres(m, args, m.invoke(cible, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.service.CatalogueService.CursorPage;
+import efrei.projetREST.service.CatalogueService.FilmLightResponse;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache de lecture du catalogue, sans base : une invalidation arrivée pendant un chargement empêche la valeur
+ * chargée de rester en cache (elle a pu être lue avant le commit), et une programmation n'invalide que sa ville.
+ */
+class CatalogueCacheTests {
+
+    private final CatalogueService catalogueService = mock(CatalogueService.class);
+    private CatalogueCache cache;
+
+    @BeforeEach
+    void creer() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(mock(org.hibernate.Cache.class));
+        cache = new CatalogueCache(catalogueService, entityManagerFactory, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void valeurChargeePendantUneInvalidationPasGardee() {
+        CursorPage<FilmLightResponse> ancienne = page(1L);
+        CursorPage<FilmLightResponse> nouvelle = page(2L);
+        // l'événement est distribué pendant la lecture en base, entre le début du chargement et sa mise en cache
+        when(catalogueService.getFilms(isNull(), isNull(), isNull(), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    cache.onEvenement(new FilmPublie(2L, "Nouveau", 90));
+                    return ancienne;
+                })
+                .thenReturn(nouvelle);
+
+        assertThat(cache.getFilms(null, null, null, null, null)).isSameAs(ancienne);
+        assertThat(cache.getFilms(null, null, null, null, null)).isSameAs(nouvelle);
+        assertThat(cache.getFilms(null, null, null, null, null)).isSameAs(nouvelle);
+        verify(catalogueService, times(2)).getFilms(isNull(), isNull(), isNull(), isNull(), any());
+    }
+
+    @Test
+    void programmationNInvalideQueLesListesDeSaVille() {
+        CursorPage<FilmLightResponse> paris = page(1L);
+        CursorPage<FilmLightResponse> lyon = page(2L);
+        when(catalogueService.getFilms(eq("Paris"), isNull(), isNull(), isNull(), any())).thenReturn(paris);
+        when(catalogueService.getFilms(eq("Lyon"), isNull(), isNull(), isNull(), any())).thenReturn(lyon);
+        cache.getFilms("Paris", null, null, null, null);
+        cache.getFilms("Lyon", null, null, null, null);
+
+        cache.onEvenement(new ProgrammationPubliee(10L, 2L, 3L, "LYON", LocalDate.now(), LocalDate.now(), List.of(), 1L));
+        cache.getFilms("Paris", null, null, null, null);
+        cache.getFilms("Lyon", null, null, null, null);
+
+        verify(catalogueService, times(1)).getFilms(eq("Paris"), isNull(), isNull(), isNull(), any());
+        verify(catalogueService, times(2)).getFilms(eq("Lyon"), isNull(), isNull(), isNull(), any());
+    }
+
+    private static CursorPage<FilmLightResponse> page(Long id) {
+        return new CursorPage<>(List.of(new FilmLightResponse(id, "Film " + id, 90, null, null, null, null)), null);
+    }
+}
@@ -0,0 +1,207 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.controller.CatalogueController;
+import efrei.projetREST.service.Outbox.EvenementDistribue;
+import efrei.projetREST.service.Outbox.Position;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Flux /Catalogue/changes sur MockMvc : reprise avec Last-Event-ID dans l'historique, "reset" quand la reprise
+ * est impossible, 503 au-delà du nombre d'abonnés, clients bloqués coupés sans retenir les autres.
+ * Le nœud a démarré à la position 100-(-1).
+ */
+class CatalogueChangementsTests {
+
+    private final Outbox outbox = mock(Outbox.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Les réponses des requêtes marquées X-Bloque n'avancent plus jusqu'à ce que ce verrou s'ouvre
+    private final CountDownLatch debloquer = new CountDownLatch(1);
+    private CatalogueChangements changements;
+    private MockMvc mvc;
+
+    @AfterEach
+    void fermer() {
+        debloquer.countDown();
+        if (changements != null) {
+            changements.fermer();
+        }
+    }
+
+    @Test
+    void repriseRenvoieLesEvenementsSuivantsDeLHistorique() throws Exception {
+        demarrer(10, 5);
+        for (long id = 1; id <= 3; id++) {
+            distribuer(id);
+        }
+
+        MvcResult flux = abonner("101-1");
+        await().atMost(Duration.ofSeconds(5)).until(() -> contenu(flux).contains("id:101-3"));
+        assertThat(contenu(flux))
+                .doesNotContain("id:101-1\n")
+                .contains("id:101-2\nevent:film\ndata:{\"type\":\"film\",\"id\":2}")
+                .doesNotContain("reset");
+
+        // puis la suite, en direct
+        distribuer(4);
+        await().atMost(Duration.ofSeconds(5)).until(() -> contenu(flux).contains("id:101-4"));
+    }
+
+    @Test
+    void resetQuandLHistoriqueNeRemontePasAssezLoin() throws Exception {
+        demarrer(2, 5);
+        for (long id = 1; id <= 3; id++) {
+            distribuer(id);
+        }
+
+        // 101-1 est sorti de l'historique : la reprise en 101-0 aurait un trou
+        MvcResult flux = abonner("101-0");
+        await().atMost(Duration.ofSeconds(5)).until(() -> contenu(flux).contains("event:reset"));
+        assertThat(contenu(flux)).contains("event:reset\ndata:{}\nid:101-3").doesNotContain("event:film");
+    }
+
+    @Test
+    void resetSiLIdEstIllisibleOuAnterieurAuDemarrage() throws Exception {
+        demarrer(10, 5);
+
+        MvcResult illisible = abonner("pas-une-position");
+        MvcResult anterieur = abonner("99-7");
+        await().atMost(Duration.ofSeconds(5)).until(() -> contenu(illisible).contains("event:reset")
+                && contenu(anterieur).contains("event:reset"));
+        // rien depuis le démarrage : l'id du reset est la position de départ
+        assertThat(contenu(anterieur)).contains("event:reset\ndata:{}\nid:100--1");
+    }
+
+    @Test
+    void abonnesAuDelaDuMaximumRefuses() throws Exception {
+        demarrer(10, 2);
+
+        abonner(null);
+        abonner(null);
+        mvc.perform(get("/Catalogue/changes")).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void clientsBloquesCoupesSansRetenirLesAutres() throws Exception {
+        // plus de clients bloqués que d'écrivains (2)
+        demarrer(10, 10);
+        List<MvcResult> bloques = List.of(abonnerBloque(), abonnerBloque(), abonnerBloque());
+        MvcResult sain = abonner(null);
+
+        distribuer(1);
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            changements.surveiller();
+            return contenu(sain).contains("id:101-1");
+        });
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            changements.surveiller();
+            return meterRegistry.counter("catalogue.changes.abonnes.coupes").count() == bloques.size();
+        });
+
+        // les écrivains remplacés ne manquent pas aux suivants, bloqués toujours
+        distribuer(2);
+        await().atMost(Duration.ofSeconds(5)).until(() -> contenu(sain).contains("id:101-2"));
+        for (MvcResult bloque : bloques) {
+            assertThat(contenu(bloque)).doesNotContain("id:101-1");
+        }
+    }
+
+    private void demarrer(int historique, int abonnesMax) {
+        when(outbox.depart()).thenReturn(new Position(100, -1));
+        changements = new CatalogueChangements(outbox, meterRegistry,
+                historique, abonnesMax, 256, 2, Duration.ofMinutes(1), Duration.ofMillis(100));
+        Filter bloquer = (request, response, chain) -> chain.doFilter(request,
+                ((HttpServletRequest) request).getHeader("X-Bloque") != null
+                        ? new ReponseBloquee((HttpServletResponse) response, debloquer) : response);
+        mvc = MockMvcBuilders.standaloneSetup(new CatalogueController(mock(CatalogueCache.class),
+                        mock(FilmTitreIndex.class), mock(SeanceIndex.class), mock(CatalogueExportService.class),
+                        mock(VilleIndex.class), mock(CreneauIndex.class), changements))
+                .addFilters(bloquer)
+                .build();
+    }
+
+    private void distribuer(long filmId) {
+        changements.onEvenementDistribue(new EvenementDistribue(new Position(101, filmId),
+                new FilmPublie(filmId, "Film " + filmId, 90), Instant.now()));
+    }
+
+    private MvcResult abonner(String dernierId) throws Exception {
+        var requete = get("/Catalogue/changes");
+        if (dernierId != null) {
+            requete.header("Last-Event-ID", dernierId);
+        }
+        return mvc.perform(requete).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private MvcResult abonnerBloque() throws Exception {
+        return mvc.perform(get("/Catalogue/changes").header("X-Bloque", "1"))
+                .andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static String contenu(MvcResult flux) throws Exception {
+        return flux.getResponse().getContentAsString();
+    }
+
+    // Client qui ne lit plus : chaque écriture attend l'ouverture du verrou
+    private static final class ReponseBloquee extends HttpServletResponseWrapper {
+
+        private final ServletOutputStream sortie;
+
+        ReponseBloquee(HttpServletResponse response, CountDownLatch debloquer) {
+            super(response);
+            this.sortie = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    try {
+                        debloquer.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return false;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return sortie;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package efrei.projetREST.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import efrei.projetREST.entities.Film;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Coupure de l'export par catalogue.export.duree-max, sans base : repositories simulés qui renvoient 1200 films.
+ * La durée n'est vérifiée qu'à chaque envoi (500 lignes) : le client reçoit les lignes déjà envoyées, puis le flux
+ * s'arrête sur une IOException et le curseur de la table est fermé.
+ */
+class CatalogueExportServiceTests {
+
+    private static final int FILMS = 1200;
+
+    private final FilmRepository filmRepository = mock(FilmRepository.class);
+    private final CinemaRepository cinemaRepository = mock(CinemaRepository.class);
+    private final ProgrammationRepository programmationRepository = mock(ProgrammationRepository.class);
+    private final AtomicBoolean filmsFermes = new AtomicBoolean();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .setFilterProvider(new SimpleFilterProvider()
+                    .addFilter(CatalogueService.FILTRE_CHAMPS, SimpleBeanPropertyFilter.serializeAll()));
+
+    @Test
+    void exportCoupeAuPremierEnvoiApresLaDureeMax() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogueExportService service = service(Duration.ZERO);
+
+        assertThatThrownBy(() -> service.exporter(out))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("durée maximale");
+        assertThat(lignes(out)).hasSize(500);
+        assertThat(filmsFermes).isTrue();
+    }
+
+    @Test
+    void exportCompletAvantLaDureeMax() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(cinemaRepository.streamAllOrderById()).thenReturn(Stream.empty());
+        when(programmationRepository.streamAvecCreneaux()).thenReturn(Stream.empty());
+
+        service(Duration.ofMinutes(10)).exporter(out);
+
+        String[] lignes = lignes(out);
+        assertThat(lignes).hasSize(FILMS);
+        assertThat(lignes[FILMS - 1]).startsWith("{\"type\":\"film\"").contains("\"id\":" + FILMS);
+        assertThat(filmsFermes).isTrue();
+    }
+
+    private CatalogueExportService service(Duration dureeMax) {
+        Stream<Film> films = LongStream.rangeClosed(1, FILMS)
+                .mapToObj(id -> {
+                    Film f = new Film("Film " + id, 90, "Français", "X", 0, "Aucun", null);
+                    f.setId(id);
+                    return f;
+                })
+                .onClose(() -> filmsFermes.set(true));
+        when(filmRepository.streamAllOrderById()).thenReturn(films);
+        return new CatalogueExportService(filmRepository, cinemaRepository, programmationRepository,
+                mock(EntityManager.class), objectMapper, dureeMax);
+    }
+
+    private static String[] lignes(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.UTF_8).lines().toArray(String[]::new);
+    }
+}
@@ -0,0 +1,108 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CinemaRepositoryColonnes.ColonneCinema;
+import efrei.projetREST.repository.Colonne;
+import efrei.projetREST.repository.CreneauHebdoRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.CatalogueService.CinemaLightResponse;
+import efrei.projetREST.service.CatalogueService.CursorPage;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pagination par clé des listes du catalogue, sans base : curseur opaque (id du dernier élément en base64url),
+ * bornes de limit, 400 sur une entrée invalide. La liste des cinémas sert d'exemple, celle des films a le même curseur.
+ */
+class CatalogueServiceTests {
+
+    private static final Set<ColonneCinema> COLONNES = EnumSet.of(ColonneCinema.ID);
+
+    private final CinemaRepository cinemaRepository = mock(CinemaRepository.class);
+    private final CatalogueService service = new CatalogueService(mock(ProgrammationRepository.class),
+            mock(FilmRepository.class), mock(CreneauHebdoRepository.class), cinemaRepository, mock(VilleIndex.class));
+
+    @Test
+    void curseurSuivantEstLIdDuDernierElementEnBase64Url() {
+        // limit 2 : le repository est interrogé pour 3 lignes, la troisième signale une page suivante
+        List<Tuple> lignes = lignes(11, 12, 13);
+        when(cinemaRepository.findColonnesApres(COLONNES, 0L, 3)).thenReturn(lignes);
+
+        CursorPage<CinemaLightResponse> page = service.getAllCinemas(null, 2, COLONNES);
+
+        assertThat(page.items()).extracting(CinemaLightResponse::id).containsExactly(11L, 12L);
+        assertThat(page.nextCursor()).isEqualTo("MTI");
+        assertThat(new String(Base64.getUrlDecoder().decode(page.nextCursor()), StandardCharsets.US_ASCII)).isEqualTo("12");
+    }
+
+    @Test
+    void pageSuivanteLueApresLIdDuCurseur() {
+        List<Tuple> lignes = lignes(13);
+        when(cinemaRepository.findColonnesApres(COLONNES, 12L, 3)).thenReturn(lignes);
+
+        CursorPage<CinemaLightResponse> page = service.getAllCinemas("MTI", 2, COLONNES);
+
+        assertThat(page.items()).extracting(CinemaLightResponse::id).containsExactly(13L);
+        // dernière page : pas de curseur
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void limitParDefautEtPlafonnee() {
+        when(cinemaRepository.findColonnesApres(eq(COLONNES), anyLong(), anyInt())).thenReturn(List.of());
+
+        service.getAllCinemas(null, null, COLONNES);
+        verify(cinemaRepository).findColonnesApres(COLONNES, 0L, CatalogueService.LIMITE_DEFAUT + 1);
+        service.getAllCinemas(null, 10_000, COLONNES);
+        verify(cinemaRepository).findColonnesApres(COLONNES, 0L, CatalogueService.LIMITE_MAX + 1);
+        service.getAllCinemas(null, 1, COLONNES);
+        verify(cinemaRepository).findColonnesApres(COLONNES, 0L, 2);
+    }
+
+    @Test
+    void limitNulleOuNegativeRefusee() {
+        assertRequeteInvalide(() -> service.getAllCinemas(null, 0, COLONNES));
+        assertRequeteInvalide(() -> service.getAllCinemas(null, -5, COLONNES));
+        assertRequeteInvalide(() -> service.getFilms(null, null, null, 0, null));
+    }
+
+    @Test
+    void curseurIllisibleRefuse() {
+        // pas du base64url, puis du base64url qui n'est pas un id
+        assertRequeteInvalide(() -> service.getAllCinemas("$$$", 10, COLONNES));
+        assertRequeteInvalide(() -> service.getAllCinemas(Base64.getUrlEncoder().encodeToString("abc".getBytes()), 10, COLONNES));
+        assertRequeteInvalide(() -> service.getFilms(null, null, "$$$", 10, null));
+    }
+
+    private static void assertRequeteInvalide(Runnable appel) {
+        assertThatThrownBy(appel::run).isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static List<Tuple> lignes(long... ids) {
+        return LongStream.of(ids).mapToObj(id -> {
+            Tuple ligne = mock(Tuple.class);
+            when(ligne.get(Colonne.ID, Long.class)).thenReturn(id);
+            return ligne;
+        }).toList();
+    }
+}
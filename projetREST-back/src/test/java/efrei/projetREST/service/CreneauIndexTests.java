@@ -0,0 +1,220 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.repository.ProgrammationRepository.CreneauOccupe;
+import efrei.projetREST.service.CreneauIndex.CreneauLibre;
+import efrei.projetREST.service.CreneauIndex.Reservation;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Index des créneaux sans base : repositories simulés, l'index n'est pas construit au démarrage.
+ * Chevauchements (y compris après minuit), libération à l'annulation, purge des programmations terminées,
+ * programmations d'autres nœuds reçues par l'outbox, cinéma inconnu de ce nœud, relecture d'un cinéma seulement
+ * quand sa version en base n'est pas celle de l'index.
+ */
+class CreneauIndexTests {
+
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Paris");
+    private static final LocalDate DU = LocalDate.now(FUSEAU).plusDays(7);
+    private static final LocalDate AU = DU.plusWeeks(12);
+
+    private final ProgrammationRepository programmationRepository = mock(ProgrammationRepository.class);
+    private final CinemaRepository cinemaRepository = mock(CinemaRepository.class);
+    private final CreneauIndex index = new CreneauIndex(programmationRepository, mock(FilmRepository.class),
+            cinemaRepository, FUSEAU, LocalTime.of(10, 0), LocalTime.MIDNIGHT);
+
+    @AfterEach
+    void nettoyer() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void creneauQuiChevaucheUneSeanceDuCinemaRefuse() {
+        index.reserver(1L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+
+        assertConflit(() -> index.reserver(2L, 1L, DU, AU, 90, List.of(creneau(JourSemaine.LUN, 15, 30))));
+        assertConflit(() -> index.reserver(2L, 1L, DU, AU, 90, List.of(creneau(JourSemaine.LUN, 13, 0))));
+        // juste après, un autre jour, un autre cinéma : libres
+        index.reserver(3L, 1L, DU, AU, 90, List.of(creneau(JourSemaine.LUN, 16, 0)));
+        index.reserver(4L, 1L, DU, AU, 90, List.of(creneau(JourSemaine.MAR, 14, 0)));
+        index.reserver(5L, 2L, DU, AU, 90, List.of(creneau(JourSemaine.LUN, 14, 0)));
+        // périodes disjointes : même créneau, pas de séance commune
+        index.reserver(6L, 1L, AU.plusDays(1), AU.plusWeeks(4), 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+    }
+
+    @Test
+    void seanceQuiFinitApresMinuitOccupeLeLendemain() {
+        index.reserver(1L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.DIM, 23, 0)));
+
+        assertConflit(() -> index.reserver(2L, 1L, DU, AU, 60, List.of(creneau(JourSemaine.LUN, 0, 30))));
+        index.reserver(3L, 1L, DU, AU, 60, List.of(creneau(JourSemaine.LUN, 1, 0)));
+        // deux créneaux de la même programmation
+        assertConflit(() -> index.reserver(4L, 3L, DU, AU, 120,
+                List.of(creneau(JourSemaine.MAR, 23, 30), creneau(JourSemaine.MER, 0, 30))));
+    }
+
+    @Test
+    void reservationLibereeSiLaTransactionEstAnnulee() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.reserver(1L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+        terminer(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        index.reserver(2L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+    }
+
+    @Test
+    void reservationGardeeSiLaTransactionEstCommitee() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.reserver(1L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+        terminer(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertConflit(() -> index.reserver(2L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0))));
+    }
+
+    @Test
+    void programmationsTermineesPurgees() {
+        LocalDate aujourdhui = LocalDate.now(FUSEAU);
+        index.reserver(1L, 1L, aujourdhui.minusWeeks(4), aujourdhui.minusDays(1), 120,
+                List.of(creneau(JourSemaine.LUN, 14, 0), creneau(JourSemaine.MAR, 14, 0),
+                        creneau(JourSemaine.MER, 14, 0)));
+        index.reserver(2L, 1L, aujourdhui.minusWeeks(4), AU, 120, List.of(creneau(JourSemaine.JEU, 14, 0)));
+
+        index.purger();
+
+        index.reserver(3L, 1L, aujourdhui.minusWeeks(4), aujourdhui.minusDays(1), 120,
+                List.of(creneau(JourSemaine.LUN, 14, 0)));
+        assertConflit(() -> index.reserver(4L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.JEU, 14, 0))));
+    }
+
+    @Test
+    void programmationDUnAutreNoeudOccupeSesCreneauxUneSeuleFois() {
+        index.onFilmPublie(new FilmPublie(10L, "Film", 120));
+        ProgrammationPubliee publiee = new ProgrammationPubliee(1L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.LUN, 14, 0), creneau(JourSemaine.MER, 14, 0),
+                        creneau(JourSemaine.VEN, 14, 0)), 1L);
+        index.onProgrammationPubliee(publiee);
+        index.onProgrammationPubliee(publiee);
+
+        assertConflit(() -> index.reserver(2L, 1L, DU, AU, 60, List.of(creneau(JourSemaine.MER, 15, 0))));
+        List<CreneauLibre> lundi = index.creneauxLibres(1L, DU, AU, 0).stream()
+                .filter(c -> c.jour() == JourSemaine.LUN)
+                .toList();
+        assertThat(lundi).extracting(CreneauLibre::debut).containsExactly(LocalTime.of(10, 0), LocalTime.of(16, 0));
+    }
+
+    @Test
+    void reservationEnMasseLieeASonIdNEstPasDoubleeParSonEvenement() {
+        index.onFilmPublie(new FilmPublie(10L, "Film", 120));
+        Reservation reservation = index.reserver(null, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+        index.lier(reservation, 7L);
+        index.onProgrammationPubliee(new ProgrammationPubliee(7L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.LUN, 14, 0)), 1L));
+
+        // une seule réservation pour la programmation 7 : la libérer libère le créneau
+        index.liberer(reservation);
+        index.reserver(8L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+    }
+
+    @Test
+    void cinemaCreeSurUnAutreNoeudConnuParLaBase() {
+        when(cinemaRepository.existsById(5L)).thenReturn(true);
+
+        assertThat(index.creneauxLibres(5L, DU, AU, 60)).hasSize(7);
+        assertThatThrownBy(() -> index.creneauxLibres(6L, DU, AU, 60))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void cinemaALaVersionDeLaBaseNonRelu() {
+        index.onFilmPublie(new FilmPublie(10L, "Film", 120));
+        // version jamais vue : relu une fois, puis suivi par les événements
+        index.synchroniser(1L, 0);
+        index.reserver(1L, 1L, DU, AU, 120, List.of(creneau(JourSemaine.LUN, 14, 0)));
+        index.onProgrammationPubliee(new ProgrammationPubliee(1L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.LUN, 14, 0)), 1L));
+        index.onProgrammationPubliee(new ProgrammationPubliee(2L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.MAR, 14, 0)), 2L));
+
+        index.synchroniser(1L, 2);
+        verify(programmationRepository, times(1)).findCreneauxOccupesDepuis(eq(1L), any());
+        assertConflit(() -> index.reserver(3L, 1L, DU, AU, 60, List.of(creneau(JourSemaine.MAR, 15, 0))));
+    }
+
+    @Test
+    void programmationDUnAutreNoeudPasEncoreRecueRelitLeCinema() {
+        index.synchroniser(1L, 0);
+        // version 1 publiée par un autre nœud, son événement n'est pas arrivé ; la base l'a
+        CreneauOccupe ligne = mock(CreneauOccupe.class);
+        when(ligne.getProgrammationId()).thenReturn(5L);
+        when(ligne.getJour()).thenReturn(JourSemaine.JEU);
+        when(ligne.getHeureDebut()).thenReturn(LocalTime.of(20, 0));
+        when(ligne.getDateDeb()).thenReturn(DU);
+        when(ligne.getDateFin()).thenReturn(AU);
+        when(ligne.getDuree()).thenReturn(120);
+        when(programmationRepository.findCreneauxOccupesDepuis(eq(1L), any())).thenReturn(List.of(ligne));
+
+        index.synchroniser(1L, 1);
+        assertConflit(() -> index.reserver(6L, 1L, DU, AU, 60, List.of(creneau(JourSemaine.JEU, 21, 0))));
+        // l'événement arrive ensuite : déjà là, rien de doublé, version inchangée
+        index.onProgrammationPubliee(new ProgrammationPubliee(5L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.JEU, 20, 0)), 1L));
+        index.synchroniser(1L, 1);
+        verify(programmationRepository, times(2)).findCreneauxOccupesDepuis(eq(1L), any());
+    }
+
+    @Test
+    void evenementManqueFaitRelireALaPublicationSuivante() {
+        index.onFilmPublie(new FilmPublie(10L, "Film", 120));
+        index.synchroniser(1L, 0);
+        // la version 1 n'est jamais reçue : la 2 ne fait pas avancer l'index
+        index.onProgrammationPubliee(new ProgrammationPubliee(2L, 10L, 1L, "Paris", DU, AU,
+                List.of(creneau(JourSemaine.MAR, 14, 0)), 2L));
+
+        index.synchroniser(1L, 2);
+        verify(programmationRepository, times(2)).findCreneauxOccupesDepuis(eq(1L), any());
+    }
+
+    private static CreneauInput creneau(JourSemaine jour, int heure, int minute) {
+        return new CreneauInput(jour, LocalTime.of(heure, minute));
+    }
+
+    private static void assertConflit(Runnable reservation) {
+        assertThatThrownBy(reservation::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    private static void terminer(int statut) {
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronisations.forEach(s -> s.afterCompletion(statut));
+    }
+}
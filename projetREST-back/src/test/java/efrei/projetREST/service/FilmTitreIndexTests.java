@@ -0,0 +1,87 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.FilmTitreIndex.FilmSuggestion;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Autocomplétion sans base : titres et programmations ajoutés par leurs événements, dans l'ordre des écouteurs
+ * (VilleIndex puis FilmTitreIndex).
+ */
+class FilmTitreIndexTests {
+
+    private final VilleIndex villeIndex = new VilleIndex(mock(CinemaRepository.class), mock(ProgrammationRepository.class));
+    private final FilmTitreIndex index = new FilmTitreIndex(mock(FilmRepository.class), villeIndex);
+
+    @Test
+    void prefixeDeChaqueMotDuTitre() {
+        index.ajouter(1L, "The Dark Knight");
+        index.ajouter(2L, "Knives Out");
+        index.ajouter(3L, "Dark Water");
+
+        assertThat(ids("kni", 10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids("dark", 10)).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids("dark k", 10)).containsExactly(1L);
+        assertThat(ids("ark", 10)).isEmpty();
+        assertThat(ids("", 10)).isEmpty();
+    }
+
+    @Test
+    void accentsEtCasseRepliesDesDeuxCotes() {
+        index.ajouter(1L, "Amélie");
+        index.ajouter(2L, "ÉTÉ INDIEN");
+
+        assertThat(ids("AME", 10)).containsExactly(1L);
+        assertThat(ids("ete ind", 10)).containsExactly(2L);
+        assertThat(index.suggerer("amel", 10)).extracting(FilmSuggestion::titre).containsExactly("Amélie");
+    }
+
+    @Test
+    void auDelaDe40CaracteresLePrefixeEstCoupe() {
+        String titre = "Une tres longue histoire de quarante caracteres et plus encore";
+        index.ajouter(1L, titre);
+
+        // les 40 premiers caractères suffisent, la suite n'est pas comparée
+        assertThat(ids(titre, 10)).containsExactly(1L);
+        assertThat(ids(titre.substring(0, 40) + " tout autre chose", 10)).containsExactly(1L);
+        assertThat(ids(titre.substring(0, 39) + "x", 10)).isEmpty();
+    }
+
+    @Test
+    void lesFilmsProgrammesDansLePlusDeVillesSortentDAbord() {
+        index.ajouter(1L, "Le Bal");
+        index.ajouter(2L, "Le Ballon");
+        index.ajouter(3L, "Le Balcon");
+        programmer(3L, "Lyon");
+        programmer(3L, "Nantes");
+        programmer(2L, "Lyon");
+        // même ville deux fois : un seul point
+        programmer(2L, "Lyon");
+
+        assertThat(ids("bal", 2)).containsExactly(3L, 2L);
+        assertThat(ids("bal", 10)).containsExactly(3L, 2L, 1L);
+        // à poids égal, le titre le plus court d'abord
+        index.ajouter(4L, "Le Baladin");
+        assertThat(ids("bal", 10)).containsExactly(3L, 2L, 1L, 4L);
+    }
+
+    private void programmer(Long filmId, String ville) {
+        ProgrammationPubliee event = new ProgrammationPubliee(filmId * 100, filmId, 1L, ville,
+                LocalDate.now(), LocalDate.now().plusWeeks(1), List.of(), null);
+        villeIndex.onProgrammationPubliee(event);
+        index.onProgrammationPubliee(event);
+    }
+
+    private List<Long> ids(String prefixe, int limite) {
+        return index.suggerer(prefixe, limite).stream().map(FilmSuggestion::id).toList();
+    }
+}
@@ -0,0 +1,237 @@
+package efrei.projetREST.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import efrei.projetREST.service.Outbox.EvenementDistribue;
+import efrei.projetREST.service.PublicationService.EvenementCatalogue;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Distribution de l'outbox sur un PostgreSQL embarqué migré par Flyway, sans contexte Spring :
+ * ordre (xact, id) avec une transaction encore ouverte, reprise à la position, abandon après essais-max échecs,
+ * lecture de ses propres écritures au commit. Les réveils ne sont pas planifiés : distribuer() est appelé à la main.
+ * Ignoré si PostgreSQL ne peut pas démarrer sur la machine (par exemple lancé en root).
+ */
+class OutboxTests {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    // Événements reçus par les écouteurs ; ceux dont le film est dans echouent font échouer la publication
+    private final List<Object> recus = new CopyOnWriteArrayList<>();
+    private Set<Long> echouent = Set.of();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void demarrer() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("PostgreSQL embarqué indisponible : " + e.getMessage());
+        }
+        dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl("postgres", "postgres") + "&currentSchema=cinema", "postgres", "");
+        Flyway.configure().dataSource(dataSource).schemas("cinema").defaultSchema("cinema").load().migrate();
+    }
+
+    @AfterAll
+    static void arreter() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void vider() {
+        jdbcTemplate.update("truncate outbox");
+    }
+
+    @Test
+    void lignesLivreesDansLOrdreDesTransactionsSansSauterCelleEncoreOuverte() throws SQLException {
+        Outbox outbox = outbox(500, 5);
+        try (Connection longue = dataSource.getConnection()) {
+            longue.setAutoCommit(false);
+            ecrire(longue, new FilmPublie(1L, "Avant", 90));
+            ecrire(new FilmPublie(2L, "Après", 90));
+
+            // la transaction 2 est terminée, mais la 1 (plus ancienne) ne l'est pas : rien ne passe
+            outbox.distribuer();
+            assertThat(recus).isEmpty();
+
+            longue.commit();
+        }
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void repriseALaPositionParLotsEtNouveauNoeudApresLesLignesExistantes() {
+        Outbox outbox = outbox(2, 5);
+        for (long id = 1; id <= 5; id++) {
+            ecrire(new FilmPublie(id, "Film " + id, 90));
+        }
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L, 2L, 3L, 4L, 5L);
+
+        ecrire(new FilmPublie(6L, "Film 6", 90));
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+
+        // un nœud qui démarre a chargé ces lignes dans ses index : il ne les redistribue pas
+        recus.clear();
+        Outbox autre = outbox(2, 5);
+        autre.distribuer();
+        assertThat(recus).isEmpty();
+        assertThat(autre.depart()).isGreaterThan(outbox.depart());
+    }
+
+    @Test
+    void nouveauNoeudAuMemeRepereQueCeluiQuiADistribueLesMemesLignes() {
+        Outbox outbox = outbox(500, 5);
+        for (long id = 1; id <= 3; id++) {
+            ecrire(new FilmPublie(id, "Film " + id, 90));
+        }
+        outbox.distribuer();
+        EvenementDistribue dernier = (EvenementDistribue) recus.getLast();
+
+        // version du catalogue (ETag) identique sur les deux nœuds
+        Outbox autre = outbox(500, 5);
+        assertThat(autre.initial().position()).isEqualTo(dernier.position());
+        assertThat(autre.initial().creeLe()).isEqualTo(dernier.creeLe());
+        CatalogueVersion version = new CatalogueVersion(outbox);
+        version.onEvenementDistribue(dernier);
+        assertThat(version.version()).isEqualTo(new CatalogueVersion(autre).version());
+    }
+
+    @Test
+    void evenementEnEchecRedistribuePuisAbandonneSansBloquerLesSuivants() {
+        Outbox outbox = outbox(500, 3);
+        echouent = Set.of(2L);
+        for (long id = 1; id <= 3; id++) {
+            ecrire(new FilmPublie(id, "Film " + id, 90));
+        }
+
+        outbox.distribuer();
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L);
+
+        // troisième échec de suite : abandonné, la distribution continue
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L, 3L);
+        assertThat(compteur("echec")).isEqualTo(2);
+        assertThat(compteur("abandonne")).isEqualTo(1);
+        assertThat(compteur("distribue")).isEqualTo(2);
+
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void ecrituresDuNoeudAppliqueesAuCommitPuisRedonneesAvecLeurPosition() {
+        Outbox outbox = outbox(500, 5);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transactionTemplate.executeWithoutResult(s -> {
+            outbox.publier(new FilmPublie(1L, "Local", 90));
+            assertThat(recus).isEmpty();
+        });
+        // avant toute distribution : cache et index de ce nœud sont déjà à jour
+        assertThat(films(FilmPublie.class)).containsExactly(1L);
+        assertThat(films(EvenementDistribue.class)).isEmpty();
+
+        outbox.distribuer();
+        assertThat(films(EvenementDistribue.class)).containsExactly(1L);
+    }
+
+    @Test
+    void rienNEstEcritNiAppliqueSiLaTransactionEstAnnulee() {
+        Outbox outbox = outbox(500, 5);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transactionTemplate.executeWithoutResult(s -> {
+            outbox.publier(new FilmPublie(1L, "Annulé", 90));
+            s.setRollbackOnly();
+        });
+        outbox.distribuer();
+        assertThat(recus).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from outbox", Integer.class)).isZero();
+    }
+
+    private Outbox outbox(int tailleLot, int essaisMax) {
+        meterRegistry = new SimpleMeterRegistry();
+        Outbox outbox = new Outbox(jdbcTemplate, objectMapper, this::publier, mock(TaskScheduler.class), meterRegistry,
+                true, tailleLot, Duration.ofDays(1), essaisMax);
+        outbox.demarrer();
+        return outbox;
+    }
+
+    private void publier(Object evenement) {
+        if (evenement instanceof FilmPublie f && echouent.contains(f.filmId())) {
+            throw new IllegalStateException("écouteur en échec pour le film " + f.filmId());
+        }
+        recus.add(evenement);
+    }
+
+    // Écriture d'un autre nœud : la ligne seule, sans passer par cette Outbox
+    private void ecrire(EvenementCatalogue evenement) {
+        try (Connection connexion = dataSource.getConnection()) {
+            ecrire(connexion, evenement);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void ecrire(Connection connexion, EvenementCatalogue evenement) {
+        try (PreparedStatement ps = connexion.prepareStatement(
+                "insert into outbox (type, agregat, agregat_id, charge) values (?, ?, ?, ?::jsonb)")) {
+            ps.setString(1, evenement.getClass().getSimpleName());
+            ps.setString(2, Outbox.agregat(evenement));
+            ps.setLong(3, Outbox.agregatId(evenement));
+            ps.setString(4, objectMapper.writeValueAsString(evenement));
+            ps.executeUpdate();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Films des événements reçus d'un type, dans l'ordre de réception
+    private List<Long> films(Class<?> type) {
+        return recus.stream()
+                .filter(type::isInstance)
+                .map(e -> e instanceof EvenementDistribue d ? d.evenement() : e)
+                .map(e -> ((FilmPublie) e).filmId())
+                .toList();
+    }
+
+    private double compteur(String resultat) {
+        return meterRegistry.get("catalogue.outbox.evenements").tag("resultat", resultat).counter().count();
+    }
+}
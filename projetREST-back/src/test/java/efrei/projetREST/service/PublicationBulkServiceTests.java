@@ -0,0 +1,172 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.Cinema;
+import efrei.projetREST.entities.Film;
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.entities.Programmation;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CreneauHebdoRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.repository.UtilisateurRepository;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.ProgrammationCreateRequest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Publication en masse des programmations, sans base : repositories simulés, vrai CreneauIndex, et un gestionnaire
+ * de transactions sans ressource qui déclenche les synchronisations (afterCompletion) comme le vrai.
+ * Tout ou rien : un conflit ou un insert en échec ne crée rien et libère les créneaux réservés par les autres lignes.
+ */
+class PublicationBulkServiceTests {
+
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Paris");
+    private static final LocalDate DU = LocalDate.now(FUSEAU).plusDays(7);
+    private static final LocalDate AU = DU.plusWeeks(4);
+
+    private final FilmRepository filmRepository = mock(FilmRepository.class);
+    private final CinemaRepository cinemaRepository = mock(CinemaRepository.class);
+    private final ProgrammationRepository programmationRepository = mock(ProgrammationRepository.class);
+    private final CreneauIndex creneauIndex = new CreneauIndex(programmationRepository, filmRepository,
+            cinemaRepository, FUSEAU, LocalTime.of(10, 0), LocalTime.MIDNIGHT);
+    // un lot par ligne : la seconde ligne échoue après l'insert de la première
+    private final PublicationBulkService service = new PublicationBulkService(filmRepository, cinemaRepository,
+            programmationRepository, mock(CreneauHebdoRepository.class), mock(UtilisateurRepository.class),
+            creneauIndex, mock(Outbox.class), mock(EntityManager.class), new TransactionsSansRessource(), 1);
+
+    @BeforeEach
+    void donnees() {
+        Film film = new Film("Film", 120, "Français", "X", 0, "Aucun", null);
+        film.setId(1L);
+        Cinema cinema = new Cinema("Cinéma", "1 rue", "Paris", null);
+        cinema.setId(1L);
+        when(filmRepository.findAllById(anyCollection())).thenReturn(List.of(film));
+        when(cinemaRepository.verrouiller(anyCollection())).thenReturn(List.of(cinema));
+    }
+
+    @Test
+    void conflitEntreLignesNeCreeRienEtLibereLesReservations() {
+        List<ProgrammationCreateRequest> lignes = List.of(
+                programmation(14, JourSemaine.LUN, JourSemaine.MAR, JourSemaine.MER),
+                programmation(14, JourSemaine.JEU, JourSemaine.VEN, JourSemaine.SAM),
+                programmation(15, JourSemaine.LUN, JourSemaine.JEU, JourSemaine.DIM));
+
+        assertThatThrownBy(() -> service.publierProgrammations(lignes))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                    assertThat(e.getReason()).startsWith("programmations[2] : ");
+                });
+        verify(programmationRepository, never()).saveAll(anyList());
+        assertLibre(JourSemaine.LUN, 14);
+        assertLibre(JourSemaine.JEU, 14);
+    }
+
+    @Test
+    void insertEnEchecAnnuleToutEtLibereLesReservations() {
+        AtomicLong ids = new AtomicLong(100);
+        when(programmationRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Programmation> lot = invocation.getArgument(0);
+                    lot.forEach(p -> p.setId(ids.incrementAndGet()));
+                    return lot;
+                })
+                .thenThrow(new IllegalStateException("insert refusé"));
+
+        assertThatThrownBy(() -> service.publierProgrammations(List.of(
+                programmation(14, JourSemaine.LUN, JourSemaine.MAR, JourSemaine.MER),
+                programmation(14, JourSemaine.JEU, JourSemaine.VEN, JourSemaine.SAM))))
+                .isInstanceOf(IllegalStateException.class);
+        // créneau de la première ligne, pourtant insérée dans le premier lot
+        assertLibre(JourSemaine.LUN, 14);
+        assertLibre(JourSemaine.JEU, 14);
+    }
+
+    @Test
+    void publicationReussieGardeLesCreneaux() {
+        when(programmationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.publierProgrammations(List.of(programmation(14, JourSemaine.LUN, JourSemaine.MAR, JourSemaine.MER)));
+
+        assertThatThrownBy(() -> reserver(JourSemaine.LUN, 14))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    // hors transaction : une réservation de test n'est pas libérée, d'où une seule vérification par créneau
+    private void assertLibre(JourSemaine jour, int heure) {
+        creneauIndex.liberer(reserver(jour, heure));
+    }
+
+    private CreneauIndex.Reservation reserver(JourSemaine jour, int heure) {
+        return creneauIndex.reserver(null, 1L, DU, AU, 120, List.of(new CreneauInput(jour, LocalTime.of(heure, 0))));
+    }
+
+    // trois jours, même heure de début
+    private static ProgrammationCreateRequest programmation(int heure, JourSemaine... jours) {
+        return new ProgrammationCreateRequest(1L, 1L, DU, AU, Arrays.stream(jours)
+                .map(jour -> new CreneauInput(jour, LocalTime.of(heure, 0)))
+                .toList());
+    }
+
+    // Transaction sans ressource : REQUIRED rejoint la transaction en cours, les synchronisations sont déclenchées
+    private static final class TransactionsSansRessource extends AbstractPlatformTransactionManager {
+
+        private boolean active;
+
+        @Override
+        protected Object doGetTransaction() {
+            return active;
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return (Boolean) transaction;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            active = true;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        // l'exception remonte jusqu'à la transaction englobante, qui est annulée
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            active = false;
+        }
+    }
+}
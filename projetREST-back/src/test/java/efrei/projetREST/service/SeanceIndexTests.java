@@ -0,0 +1,88 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.entities.JourSemaine;
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.FilmRepository;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.service.PublicationService.CreneauInput;
+import efrei.projetREST.service.PublicationService.FilmPublie;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import efrei.projetREST.service.SeanceIndex.SeanceResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Séances sans base : l'index n'est pas construit au démarrage, les programmations arrivent par leurs événements.
+ * Fenêtre de 14 jours à partir d'aujourd'hui, avancée à la main comme la tâche de la nuit.
+ */
+class SeanceIndexTests {
+
+    private static final ZoneId FUSEAU = ZoneId.of("Europe/Paris");
+    private static final LocalDate AUJOURDHUI = LocalDate.now(FUSEAU);
+    private static final LocalDateTime TOUJOURS = AUJOURDHUI.minusYears(1).atStartOfDay();
+    private static final LocalDateTime JAMAIS = AUJOURDHUI.plusYears(1).atStartOfDay();
+
+    private final SeanceIndex index = new SeanceIndex(mock(ProgrammationRepository.class), mock(FilmRepository.class),
+            mock(CinemaRepository.class), FUSEAU, 14);
+
+    @Test
+    void seulesLesSeancesDeLaFenetreSontMaterialisees() {
+        index.onFilmPublie(new FilmPublie(1L, "Film", 90));
+        // tous les lundis pendant dix semaines, la fenêtre n'en contient que deux
+        index.onProgrammationPubliee(programmation(1L, 1L, "Lyon", AUJOURDHUI, AUJOURDHUI.plusWeeks(10)));
+
+        List<SeanceResponse> seances = index.seancesParCinema(1L, TOUJOURS, JAMAIS, 100);
+        assertThat(seances).extracting(SeanceResponse::debut)
+                .containsExactly(lundi(0).atTime(20, 0), lundi(1).atTime(20, 0));
+        assertThat(seances.get(0).fin()).isEqualTo(lundi(0).atTime(21, 30));
+    }
+
+    @Test
+    void laNuitLaFenetreOublieLePasseEtDerouleLaSuite() {
+        index.onProgrammationPubliee(programmation(1L, 1L, "Lyon", AUJOURDHUI, AUJOURDHUI.plusWeeks(10)));
+        // terminée avant le nouveau jour : oubliée
+        index.onProgrammationPubliee(programmation(2L, 2L, "Lyon", AUJOURDHUI, AUJOURDHUI.plusDays(6)));
+
+        // lendemain du premier lundi : fenêtre [mardi, mardi + 14[
+        index.avancerFenetre(lundi(0).plusDays(1));
+
+        assertThat(index.seancesParCinema(1L, TOUJOURS, JAMAIS, 100)).extracting(SeanceResponse::debut)
+                .containsExactly(lundi(1).atTime(20, 0), lundi(2).atTime(20, 0));
+        assertThat(index.seancesParCinema(2L, TOUJOURS, JAMAIS, 100)).isEmpty();
+        assertThat(index.seancesParVille("Lyon", TOUJOURS, JAMAIS, 100)).extracting(SeanceResponse::programmationId)
+                .containsOnly(1L);
+    }
+
+    @Test
+    void villeDeLEvenementQuandLeCinemaEstInconnu() {
+        // cinéma créé sur un autre nœud : son événement n'est pas encore arrivé ici
+        index.onProgrammationPubliee(programmation(1L, 7L, "Saint-Étienne", AUJOURDHUI, AUJOURDHUI.plusWeeks(4)));
+
+        List<SeanceResponse> seances = index.seancesParVille("saint-etienne", TOUJOURS, JAMAIS, 100);
+        assertThat(seances).isNotEmpty().allSatisfy(s -> {
+            assertThat(s.cinemaId()).isEqualTo(7L);
+            assertThat(s.ville()).isEqualTo("Saint-Étienne");
+        });
+        assertThat(index.seancesParVille("", TOUJOURS, JAMAIS, 100)).isEmpty();
+    }
+
+    // n-ième lundi à partir d'aujourd'hui (aujourd'hui compris)
+    private static LocalDate lundi(int n) {
+        return AUJOURDHUI.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)).plusWeeks(n);
+    }
+
+    private static ProgrammationPubliee programmation(Long id, Long cinemaId, String ville, LocalDate du, LocalDate au) {
+        return new ProgrammationPubliee(id, 1L, cinemaId, ville, du, au,
+                List.of(new CreneauInput(JourSemaine.LUN, LocalTime.of(20, 0))), null);
+    }
+}
@@ -0,0 +1,79 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.service.TokenService.SessionUtilisateur;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenServiceTests {
+
+    private static final String CLE = Base64.getEncoder().encodeToString("cle-de-test-cle-de-test-cle-de-t".getBytes(StandardCharsets.UTF_8));
+
+    private final TokenService tokenService = new TokenService(CLE, Duration.ofHours(1));
+
+    @Test
+    void jetonValideRendLaSession() {
+        String jeton = tokenService.emettre(42L, TokenService.PROPRIO_FILM);
+
+        assertThat(tokenService.verifier(jeton)).isEqualTo(new SessionUtilisateur(42L, TokenService.PROPRIO_FILM));
+    }
+
+    @Test
+    void jetonExpireRefuse() {
+        TokenService expire = new TokenService(CLE, Duration.ofSeconds(-1));
+
+        assertThat(expire.verifier(expire.emettre(42L, TokenService.PROPRIO_FILM))).isNull();
+    }
+
+    @Test
+    void contenuModifieRefuse() {
+        String jeton = tokenService.emettre(42L, TokenService.PROPRIO_FILM);
+        String[] parties = jeton.split("\\.");
+        String contenu = new String(Base64.getUrlDecoder().decode(parties[0]), StandardCharsets.UTF_8)
+                .replace(TokenService.PROPRIO_FILM, TokenService.PROPRIO_CINEMA);
+        String falsifie = Base64.getUrlEncoder().withoutPadding().encodeToString(contenu.getBytes(StandardCharsets.UTF_8))
+                + "." + parties[1];
+
+        assertThat(tokenService.verifier(falsifie)).isNull();
+    }
+
+    @Test
+    void signatureDUneAutreCleRefusee() {
+        String autreCle = Base64.getEncoder().encodeToString("une-autre-cle-une-autre-cle-une-".getBytes(StandardCharsets.UTF_8));
+        String jeton = new TokenService(autreCle, Duration.ofHours(1)).emettre(42L, TokenService.PROPRIO_FILM);
+
+        assertThat(tokenService.verifier(jeton)).isNull();
+    }
+
+    @Test
+    void jetonMalFormeRefuse() {
+        assertThat(tokenService.verifier(null)).isNull();
+        assertThat(tokenService.verifier("sans-point")).isNull();
+        assertThat(tokenService.verifier("!!.??")).isNull();
+    }
+
+    @Test
+    void cleAbsenteRefuseeAuDemarrage() {
+        assertThatThrownBy(() -> new TokenService("", Duration.ofHours(1)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new TokenService(null, Duration.ofHours(1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void roleExige() {
+        SessionUtilisateur session = new SessionUtilisateur(42L, TokenService.PROPRIO_CINEMA);
+
+        session.exigerRole(TokenService.PROPRIO_CINEMA);
+        assertThatThrownBy(() -> session.exigerRole(TokenService.PROPRIO_FILM))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+}
@@ -0,0 +1,95 @@
+package efrei.projetREST.service;
+
+import efrei.projetREST.repository.CinemaRepository;
+import efrei.projetREST.repository.CinemaRepository.IdNomVille;
+import efrei.projetREST.repository.ProgrammationRepository;
+import efrei.projetREST.repository.ProgrammationRepository.FilmCinema;
+import efrei.projetREST.service.PublicationService.CinemaCree;
+import efrei.projetREST.service.PublicationService.ProgrammationPubliee;
+import efrei.projetREST.service.VilleIndex.VilleResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comptes de l'index des villes, sans base : films distincts et cinémas par ville, au démarrage puis par événements.
+ * Un événement reçu deux fois (publié ici puis redistribué par l'outbox) ne compte qu'une fois.
+ */
+class VilleIndexTests {
+
+    private final CinemaRepository cinemaRepository = mock(CinemaRepository.class);
+    private final ProgrammationRepository programmationRepository = mock(ProgrammationRepository.class);
+    private final VilleIndex index = new VilleIndex(cinemaRepository, programmationRepository);
+
+    @Test
+    void demarrageCompteLesFilmsDistinctsEtLesCinemasParVille() {
+        List<IdNomVille> cinemas = List.of(cinema(1L, "Paris"), cinema(2L, "paris "), cinema(3L, "Lyon"));
+        List<FilmCinema> programmations = List.of(programme(10L, 1L), programme(10L, 2L), programme(11L, 2L),
+                programme(12L, 3L),
+                // cinéma supprimé depuis : ignoré
+                programme(13L, 99L));
+        when(cinemaRepository.findAllNomsVilles()).thenReturn(cinemas);
+        when(programmationRepository.findFilmCinemaIds()).thenReturn(programmations);
+
+        index.construire();
+
+        assertThat(index.villes()).containsExactly(
+                new VilleResponse("Lyon", 1, 1),
+                new VilleResponse("Paris", 2, 2));
+        assertThat(index.nbVilles(10L)).isEqualTo(1);
+        assertThat(index.nbVilles(13L)).isZero();
+    }
+
+    @Test
+    void evenementRecuDeuxFoisNeCompteQuUneFois() {
+        CinemaCree cinema = new CinemaCree(1L, "Le Méliès", "Saint-Étienne");
+        ProgrammationPubliee programmation = programmation(10L, 1L, "Saint-Étienne");
+        index.onCinemaCree(cinema);
+        index.onCinemaCree(cinema);
+        index.onProgrammationPubliee(programmation);
+        index.onProgrammationPubliee(programmation);
+        // même film, même ville écrite autrement
+        index.onProgrammationPubliee(programmation(10L, 1L, " saint-etienne"));
+
+        assertThat(index.villes()).containsExactly(new VilleResponse("Saint-Étienne", 1, 1));
+        assertThat(index.nbVilles(10L)).isEqualTo(1);
+    }
+
+    @Test
+    void villeSansCinemaOuVideAbsenteDeLaListe() {
+        index.onCinemaCree(new CinemaCree(1L, "Sans ville", " "));
+        index.onProgrammationPubliee(programmation(10L, 1L, null));
+        // programmation reçue avant son cinéma (autre nœud) : la ville n'apparaît qu'avec lui
+        index.onProgrammationPubliee(programmation(11L, 2L, "Nantes"));
+
+        assertThat(index.villes()).isEmpty();
+        assertThat(index.nbVilles(10L)).isZero();
+
+        index.onCinemaCree(new CinemaCree(2L, "Katorza", "Nantes"));
+        assertThat(index.villes()).containsExactly(new VilleResponse("Nantes", 1, 1));
+    }
+
+    private static IdNomVille cinema(Long id, String ville) {
+        IdNomVille c = mock(IdNomVille.class);
+        when(c.getId()).thenReturn(id);
+        when(c.getVille()).thenReturn(ville);
+        return c;
+    }
+
+    private static FilmCinema programme(Long filmId, Long cinemaId) {
+        FilmCinema p = mock(FilmCinema.class);
+        when(p.getFilmId()).thenReturn(filmId);
+        when(p.getCinemaId()).thenReturn(cinemaId);
+        return p;
+    }
+
+    private static ProgrammationPubliee programmation(Long filmId, Long cinemaId, String ville) {
+        LocalDate debut = LocalDate.now().plusDays(1);
+        return new ProgrammationPubliee(100L + filmId, filmId, cinemaId, ville, debut, debut.plusWeeks(4), List.of(), 1L);
+    }
+}
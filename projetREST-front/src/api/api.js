@@ -1,17 +1,36 @@
 const API_BASE = 'http://localhost:8080/api';
 
+// 429 (débit du client) et 503 (serveur saturé) portent Retry-After : on attend puis on réessaie, quelques fois
+const ESSAIS_MAX = 3;
+// Une page de liste par requête : la suivante n'est demandée que si l'utilisateur la réclame
+const TAILLE_PAGE = 50;
 
-async function request(path, { method = 'GET', body, headers } = {}) {
-  const res = await fetch(`${API_BASE}${path}`, {
-    method,
-    headers: {
-      ...(body ? { 'Content-Type': 'application/json' } : {}),
-      ...(headers || {}),
-    },
-    body: body ? JSON.stringify(body) : undefined,
-  });
 
-  
+async function request(path, options) {
+  const res = await send(path, options);
+  if (res.status === 204) return null;
+  return res.json();
+}
+
+async function send(path, { method = 'GET', body, headers } = {}) {
+  const token = localStorage.getItem('token');
+  let res;
+  for (let essai = 1; ; essai++) {
+    res = await fetch(`${API_BASE}${path}`, {
+      method,
+      headers: {
+        ...(body ? { 'Content-Type': 'application/json' } : {}),
+        ...(token ? { Authorization: `Bearer ${token}` } : {}),
+        ...(headers || {}),
+      },
+      body: body ? JSON.stringify(body) : undefined,
+    });
+    // refusée avant d'être traitée (LimitationFilter) : la rejouer est sans effet de bord, même pour un POST
+    const attente = Number(res.headers.get('Retry-After'));
+    if (!((res.status === 429 || res.status === 503) && attente > 0 && essai < ESSAIS_MAX)) break;
+    await new Promise((resolve) => setTimeout(resolve, attente * 1000));
+  }
+
   if (!res.ok) {
     let msg = `HTTP ${res.status}`;
     try {
@@ -21,11 +40,19 @@ async function request(path, { method = 'GET', body, headers } = {}) {
     throw new Error(msg);
   }
 
-  
-  if (res.status === 204) return null;
+  return res;
+}
 
- 
-  return res.json();
+/**
+ * Une page d'une liste paginée par curseur.
+ * returns: { items, next } ; next (en-tête X-Next-Cursor) est null sur la dernière page,
+ * sinon à repasser en `after` pour la page suivante.
+ */
+async function requestPage(path, params = new URLSearchParams(), after) {
+  if (!params.has('limit')) params.set('limit', String(TAILLE_PAGE));
+  if (after) params.set('after', after);
+  const res = await send(`${path}?${params.toString()}`);
+  return { items: await res.json(), next: res.headers.get('X-Next-Cursor') };
 }
 
 // --------- AUTH ---------
@@ -33,7 +60,7 @@ async function request(path, { method = 'GET', body, headers } = {}) {
 /**
  * POST /api/auth/login
  * body: { email, mdp }
- * returns: { userId, role, email }
+ * returns: { userId, role, email, token }
  */
 export function login(email, mdp) {
   return request('/auth/login', {
@@ -45,7 +72,7 @@ export function login(email, mdp) {
 /**
  * POST /api/auth/register
  * body: { email, mdp, role }
- * returns: { userId, email, role }
+ * returns: { userId, email, role, token }
  */
 export function register(email, mdp, role) {
   return request('/auth/register', {
@@ -61,17 +88,16 @@ export function register(email, mdp, role) {
  * Paramètres optionnels:
  * - ville: filtre par ville
  * - query: recherche par titre (contient)
+ * - after: curseur de la page précédente (next)
+ * returns: { items, next }
  */
-export function getFilms({ ville, query } = {}) {
+export function getFilms({ ville, query, after } = {}) {
   const params = new URLSearchParams();
 
   if (ville && ville.trim()) params.set('ville', ville.trim());
   if (query && query.trim()) params.set('query', query.trim());
 
-  const qs = params.toString();
-  const path = qs ? `/Catalogue/films?${qs}` : `/Catalogue/films`;
-
-  return request(path);
+  return requestPage('/Catalogue/films', params, after);
 }
 
 
@@ -85,10 +111,11 @@ export function getFilmDetails(filmId) {
 
 /**
  * GET /api/Catalogue/cinemas
- * returns: liste de cinémas (DTO light)
+ * - after: curseur de la page précédente (next)
+ * returns: { items, next } (cinémas en DTO light)
  */
-export function getCinemas() {
-  return request('/Catalogue/cinemas');
+export function getCinemas({ after } = {}) {
+  return requestPage('/Catalogue/cinemas', new URLSearchParams(), after);
 }
 
 /**
@@ -100,28 +127,27 @@ export function getCinemaDetails(cinemaId) {
 }
 
 // --------- publication ---------
+// Authentifiées par le jeton de session (en-tête Authorization) : le propriétaire est l'utilisateur connecté.
 
 /**
- * POST /api/publication/cinemas?proprietaireId=1
+ * POST /api/publication/cinemas
  * body: { nom, adresse, ville }
  * returns: cinemaId (number)
  */
-export function createCinema(proprietaireId, { nom, adresse, ville }) {
-  const q = `?proprietaireId=${encodeURIComponent(proprietaireId)}`;
-  return request(`/publication/cinemas${q}`, {
+export function createCinema({ nom, adresse, ville }) {
+  return request('/publication/cinemas', {
     method: 'POST',
     body: { nom, adresse, ville },
   });
 }
 
 /**
- * POST /api/publication/films?proprietaireId=1
+ * POST /api/publication/films
  * body: { titre, duree, langue, realisateur, ageMin, sousTitre }
  * returns: filmId (number)
  */
-export function createFilm(proprietaireId, { titre, duree, langue, realisateur, ageMin, sousTitre }) {
-  const q = `?proprietaireId=${encodeURIComponent(proprietaireId)}`;
-  return request(`/publication/films${q}`, {
+export function createFilm({ titre, duree, langue, realisateur, ageMin, sousTitre }) {
+  return request('/publication/films', {
     method: 'POST',
     body: { titre, duree, langue, realisateur, ageMin, sousTitre },
   });
@@ -152,10 +178,11 @@ export function createProgrammation({ filmId, cinemaId, dateDeb, dateFin, crenea
 
 // --------- LocalStorage helpers (optionnel, pratique) ---------
 
-export function saveSession({ userId, role, email }) {
+export function saveSession({ userId, role, email, token }) {
   localStorage.setItem('userId', String(userId));
   localStorage.setItem('role', role || '');
   localStorage.setItem('email', email || '');
+  localStorage.setItem('token', token || '');
 }
 
 export function getSession() {
@@ -173,4 +200,5 @@ export function clearSession() {
   localStorage.removeItem('userId');
   localStorage.removeItem('role');
   localStorage.removeItem('email');
+  localStorage.removeItem('token');
 }
\ No newline at end of file
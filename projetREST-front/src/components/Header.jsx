@@ -6,6 +6,7 @@ export default function Header({ isConnected, onAuthChange }) {
   const handleLogout = () => {
     localStorage.removeItem('userId')
     localStorage.removeItem('role')
+    localStorage.removeItem('token')
     if (onAuthChange) {
       onAuthChange()
     }
@@ -20,6 +20,7 @@ export default function CinemaDetails() {
   const navigate = useNavigate()
   const [cinema, setCinema] = useState(null)
   const [films, setFilms] = useState([])
+  const [filmsNext, setFilmsNext] = useState(null)
   const [loading, setLoading] = useState(true)
   const [error, setError] = useState(null)
   const [showForm, setShowForm] = useState(false)
@@ -41,12 +42,13 @@ export default function CinemaDetails() {
     async function fetchData() {
       try {
         setLoading(true)
-        const [cinemaData, filmsData] = await Promise.all([
+        const [cinemaData, filmsPage] = await Promise.all([
           getCinemaDetails(id),
           getFilms({}),
         ])
         setCinema(cinemaData)
-        setFilms(filmsData || [])
+        setFilms(filmsPage.items)
+        setFilmsNext(filmsPage.next)
         const session = getSession()
         const userId = Number(session.userId)
         const idProprietaire = Number(cinemaData.idProprietaire)
@@ -66,6 +68,16 @@ export default function CinemaDetails() {
   }, [id])
 
 
+  async function chargerPlusDeFilms() {
+    try {
+      const page = await getFilms({ after: filmsNext })
+      setFilms(films => [...films, ...page.items])
+      setFilmsNext(page.next)
+    } catch (err) {
+      console.error(err)
+    }
+  }
+
   const updateCreneau = (index, field, value) => {
     const newCreneaux = [...formData.creneaux]
     newCreneaux[index] = { ...newCreneaux[index], [field]: value }
@@ -183,6 +195,11 @@ export default function CinemaDetails() {
                     ))}
                   </select>
                 </label>
+                {filmsNext && (
+                  <button style={styles.loadMoreButton} type="button" onClick={chargerPlusDeFilms}>
+                    Plus de films
+                  </button>
+                )}
               </div>
 
               <div style={styles.formRow}>
@@ -566,6 +583,17 @@ const styles = {
     color: '#1a1a1a',
     flex: 1,
   },
+  loadMoreButton: {
+    alignSelf: 'flex-start',
+    padding: '0.4em 1em',
+    fontSize: '0.9em',
+    borderRadius: '12px',
+    border: '2px solid #667eea',
+    cursor: 'pointer',
+    backgroundColor: 'white',
+    color: '#667eea',
+    fontWeight: '600',
+  },
   submitButton: {
     padding: '0.8em 1.8em',
     fontSize: '1em',
@@ -5,6 +5,8 @@ import { getCinemas, getSession } from '../api/api'
 export default function Cinemas() {
   const navigate = useNavigate()
   const [cinemas, setCinemas] = useState([])
+  // Curseur de la page suivante (null : tous les cinémas sont affichés)
+  const [next, setNext] = useState(null)
   const [loading, setLoading] = useState(true)
   const [userId, setUserId] = useState(null)
 
@@ -14,8 +16,9 @@ export default function Cinemas() {
         setLoading(true)
         const session = getSession()
         setUserId(session.userId)
-        const data = await getCinemas()
-        setCinemas(data || [])
+        const page = await getCinemas()
+        setCinemas(page.items)
+        setNext(page.next)
       } catch (error) {
         console.error('Erreur lors du chargement des cinémas:', error)
         setCinemas([])
@@ -27,6 +30,16 @@ export default function Cinemas() {
     fetchCinemas()
   }, [])
 
+  async function chargerPlus() {
+    try {
+      const page = await getCinemas({ after: next })
+      setCinemas(cinemas => [...cinemas, ...page.items])
+      setNext(page.next)
+    } catch (error) {
+      console.error('Erreur lors du chargement des cinémas:', error)
+    }
+  }
+
   // Filtrer les cinémas appartenant à l'utilisateur
   const myCinemas = userId
     ? cinemas.filter(cinema => cinema.idProprietaire === userId)
@@ -122,6 +135,13 @@ export default function Cinemas() {
               <p style={styles.noCinemas}>Aucun cinéma disponible.</p>
             </div>
           )}
+          {next && (
+            <div style={styles.loadMoreSection}>
+              <button style={styles.loadMoreButton} onClick={chargerPlus}>
+                Charger plus
+              </button>
+            </div>
+          )}
         </div>
       </div>
     </div>
@@ -254,6 +274,21 @@ const styles = {
     marginTop: '0.5rem',
     transition: 'transform 0.3s ease',
   },
+  loadMoreSection: {
+    textAlign: 'center',
+    marginTop: '2rem',
+  },
+  loadMoreButton: {
+    padding: '0.8em 1.8em',
+    fontSize: '1em',
+    borderRadius: '12px',
+    border: 'none',
+    cursor: 'pointer',
+    backgroundColor: 'rgba(255, 255, 255, 0.95)',
+    color: '#667eea',
+    fontWeight: '600',
+    boxShadow: '0 10px 40px rgba(0, 0, 0, 0.2)',
+  },
   noCinemasCard: {
     backgroundColor: 'rgba(255, 255, 255, 0.95)',
     padding: '3rem',
@@ -6,6 +6,9 @@ export default function Films() {
   const navigate = useNavigate()
   const [ville, setVille] = useState('')
   const [films, setFilms] = useState([])
+  // Critères de la liste affichée et curseur de sa page suivante (null : tout est affiché)
+  const [criteres, setCriteres] = useState({})
+  const [next, setNext] = useState(null)
   const [showForm, setShowForm] = useState(false)
   const [isProprioFilm, setIsProprioFilm] = useState(false)
   
@@ -22,13 +25,25 @@ export default function Films() {
   useEffect(() => {
     const session = getSession()
     setIsProprioFilm(session.role === 'proprio_film')
-    // Charger tous les films au démarrage
-    getFilms({}).then(setFilms).catch(console.error)
+    // Première page des films au démarrage
+    charger({}).catch(console.error)
   }, [])
 
+  async function charger(nouveauxCriteres) {
+    const page = await getFilms(nouveauxCriteres)
+    setCriteres(nouveauxCriteres)
+    setFilms(page.items)
+    setNext(page.next)
+  }
+
   async function search() {
-    const res = await getFilms({ ville: ville.trim() || undefined })
-    setFilms(res)
+    await charger({ ville: ville.trim() || undefined })
+  }
+
+  async function chargerPlus() {
+    const page = await getFilms({ ...criteres, after: next })
+    setFilms(films => [...films, ...page.items])
+    setNext(page.next)
   }
 
   async function handleCreateFilm(e) {
@@ -49,7 +64,7 @@ export default function Films() {
         sousTitre: formData.sousTitre,
       }
 
-      await createFilm(session.userId, filmData)
+      await createFilm(filmData)
       alert('Film créé avec succès!')
       setShowForm(false)
       setFormData({
@@ -61,8 +76,7 @@ export default function Films() {
         sousTitre: false,
       })
       // Rafraîchir la liste des films avec les mêmes critères de recherche
-      const res = await getFilms({ ville: ville.trim() || undefined })
-      setFilms(res)
+      await search()
     } catch (error) {
       alert('Erreur lors de la création du film: ' + error.message)
     }
@@ -210,6 +224,14 @@ export default function Films() {
           </div>
         ))}
       </div>
+
+      {next && (
+        <div style={styles.loadMoreSection}>
+          <button style={styles.searchButton} onClick={() => chargerPlus().catch(console.error)}>
+            Charger plus
+          </button>
+        </div>
+      )}
     </div>
   )
 }
@@ -389,6 +411,10 @@ const styles = {
     maxWidth: '1200px',
     margin: '0 auto',
   },
+  loadMoreSection: {
+    textAlign: 'center',
+    marginTop: '2rem',
+  },
   filmCard: {
     backgroundColor: 'rgba(255, 255, 255, 0.95)',
     padding: '2rem',
@@ -17,8 +17,9 @@ export default function Home() {
 
     try {
       setIsSearching(true)
-      const films = await getFilms({ query: searchQuery.trim() })
-      setSearchResults(films || [])
+      // suggestions : la première page suffit
+      const page = await getFilms({ query: searchQuery.trim() })
+      setSearchResults(page.items)
     } catch (error) {
       console.error('Erreur lors de la recherche:', error)
       setSearchResults([])
@@ -17,6 +17,7 @@ export default function Login({ onAuthChange }) {
       const res = await login(email, mdp)
       localStorage.setItem('userId', res.userId)
       localStorage.setItem('role', res.role)
+      localStorage.setItem('token', res.token)
       if (onAuthChange) {
         onAuthChange()
       }
@@ -33,6 +34,7 @@ export default function Login({ onAuthChange }) {
       const res = await register(registerEmail, registerMdp, registerRole)
       localStorage.setItem('userId', res.userId)
       localStorage.setItem('role', res.role)
+      localStorage.setItem('token', res.token)
       if (onAuthChange) {
         onAuthChange()
       }